@@ -4,6 +4,7 @@ plugins {
     kotlin("jvm") version "1.5.30"
     application
     jacoco
+    id("me.champeau.jmh") version "0.6.5"
 }
 
 group = "com.baidu"
@@ -17,7 +18,11 @@ dependencies {
     implementation("com.fasterxml.jackson.core:jackson-databind:2.12.5")
     implementation("commons-validator:commons-validator:1.7")
     implementation("org.apache.commons:commons-lang3:3.12.0")
+    implementation("org.ow2.asm:asm:9.2")
+    // 使用 GraalJS 时需要自行添加 org.graalvm.js:js 依赖
+    compileOnly("org.graalvm.sdk:graal-sdk:21.2.0")
     testImplementation("org.jetbrains.kotlin:kotlin-test-junit5:1.5.21")
+    testImplementation("org.graalvm.js:js:21.2.0")
 }
 
 jacoco {
@@ -38,6 +43,43 @@ tasks.jacocoTestReport {
     }
 }
 
+// JFR 事件类依赖 jdk.jfr，8u262 之前的 JDK 8 没有，用这样的 JDK 构建时跳过这些类，运行时 JfrEvents 会退化为空实现
+val jfrPresent = try {
+    Class.forName("jdk.jfr.Event")
+    true
+} catch (e: ClassNotFoundException) {
+    false
+}
+
+if (!jfrPresent) {
+    sourceSets {
+        main {
+            java.exclude("com/baidu/amis/jfr/JfrEventRecorder.java", "com/baidu/amis/jfr/*Event.java")
+        }
+        test {
+            withConvention(org.jetbrains.kotlin.gradle.plugin.KotlinSourceSet::class) {
+                kotlin.exclude("com/baidu/amis/jfr/**")
+            }
+        }
+    }
+}
+
+// 基准测试在 src/jmh 下，通过 ./gradlew jmh 运行，可以用 -PjmhIncludes=ValidatorBenchmark 只运行部分
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    if (project.hasProperty("jmhIncludes")) {
+        includes.set(listOf(project.property("jmhIncludes").toString()))
+    }
+}
+
+// 统计每次校验分配的字节数，见 AllocationBenchmark
+tasks.register<JavaExec>("allocationBenchmark") {
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.baidu.amis.validation.AllocationBenchmark")
+}
+
 tasks.withType<KotlinCompile>() {
     kotlinOptions.jvmTarget = "1.8"
 }
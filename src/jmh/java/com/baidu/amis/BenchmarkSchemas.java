@@ -0,0 +1,88 @@
+package com.baidu.amis;
+
+import java.util.Locale;
+
+/**
+ * 基准测试用的 schema 和数据，表单项的写法参考 ValidatorTest 中的用例
+ * 表单项按下面几种类型循环生成，这样表单越大各种规则的占比越接近真实页面
+ */
+public class BenchmarkSchemas {
+
+    /**
+     * 表单名
+     */
+    public static final String FORM_NAME = "myForm";
+
+    // 表单项模板，%1$s 是字段名
+    private static final String[] ITEM_TEMPLATES = {
+            "{\"type\": \"input-text\", \"label\": \"文本\", \"name\": \"%1$s\", \"required\": true,"
+                    + " \"validations\": {\"maxLength\": 20},"
+                    + " \"validationErrors\": {\"maxLength\": \"最多 $1 个字\"}}",
+            "{\"type\": \"input-text\", \"label\": \"数字\", \"name\": \"%1$s\","
+                    + " \"validations\": {\"isNumeric\": true, \"minimum\": 1, \"maximum\": 10000}}",
+            "{\"type\": \"input-email\", \"label\": \"邮箱\", \"name\": \"%1$s\", \"validations\": \"isEmail\"}",
+            "{\"type\": \"input-text\", \"label\": \"手机\", \"name\": \"%1$s\","
+                    + " \"requireOn\": \"this.type == 'mobile'\", \"validations\": {\"isPhoneNumber\": true}}",
+            "{\"type\": \"input-text\", \"label\": \"编码\", \"name\": \"%1$s\","
+                    + " \"hiddenOn\": \"data.type == 'hidden'\", \"validations\": {\"matchRegexp\": \"^[A-Z]{2}\\\\d{4}$\"}}",
+            "{\"type\": \"input-url\", \"label\": \"网址\", \"name\": \"%1$s\","
+                    + " \"visibleOn\": \"data.count > 3 && data.type != 'none'\", \"validations\": {\"isUrl\": true}}",
+            "{\"type\": \"input-text\", \"label\": \"身份证\", \"name\": \"%1$s\", \"validations\": {\"isId\": true}}",
+            "{\"type\": \"static\", \"label\": \"说明\", \"name\": \"%1$s\"}"
+    };
+
+    // 和模板一一对应的合法数据
+    private static final String[] ITEM_VALUES = {
+            "\"amis\"",
+            "\"42\"",
+            "\"amis@baidu.com\"",
+            "\"13800138000\"",
+            "\"AB1234\"",
+            "\"https://aisuda.bce.baidu.com/amis\"",
+            "\"11010519491231002X\"",
+            "\"text\""
+    };
+
+    /**
+     * 生成包含 itemCount 个表单项的页面，表单嵌在 page 中，需要通过表单名查找
+     */
+    public static String page(int itemCount) {
+        return "{\"type\": \"page\", \"body\": [{\"type\": \"tpl\", \"tpl\": \"表单\"}, " + form(itemCount) + "]}";
+    }
+
+    /**
+     * 生成包含 itemCount 个表单项的表单
+     */
+    public static String form(int itemCount) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"type\": \"form\", \"name\": \"").append(FORM_NAME).append("\",")
+                .append(" \"api\": \"/api/mock2/form/saveForm\",")
+                .append(" \"rules\": [{\"rule\": \"!(data.a && data.b)\", \"message\": \"a 和 b 不能同时有值\"}],")
+                .append(" \"body\": [");
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(String.format(Locale.ROOT, ITEM_TEMPLATES[i % ITEM_TEMPLATES.length], fieldName(i)));
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * 生成对应表单的数据
+     *
+     * @param valid 为 false 时每个字段都是不合法的值
+     */
+    public static String data(int itemCount, boolean valid) {
+        StringBuilder sb = new StringBuilder("{\"type\": \"mobile\", \"count\": 5");
+        for (int i = 0; i < itemCount; i++) {
+            sb.append(", \"").append(fieldName(i)).append("\": ");
+            sb.append(valid ? ITEM_VALUES[i % ITEM_VALUES.length] : "\"?\"");
+        }
+        return sb.append("}").toString();
+    }
+
+    private static String fieldName(int index) {
+        return "field" + index;
+    }
+}
@@ -0,0 +1,62 @@
+package com.baidu.amis.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.baidu.amis.BenchmarkSchemas;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * schema 解析、查找表单以及建立索引的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JSONHelperBenchmark {
+
+    @Param({"5", "50", "2000"})
+    public int itemCount;
+
+    private String schema;
+
+    private JsonNode schemaNode;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        schema = BenchmarkSchemas.page(itemCount);
+        schemaNode = JSONHelper.toJSONNode(schema);
+    }
+
+    @Benchmark
+    public JsonNode toJSONNode() throws JsonProcessingException {
+        return JSONHelper.toJSONNode(schema);
+    }
+
+    @Benchmark
+    public JsonNode findObject() {
+        return JSONHelper.findObject(schemaNode, (key, value, parent) ->
+                key.equals("name") && value.asText().equals(BenchmarkSchemas.FORM_NAME)
+                        && parent.has("type") && parent.get("type").asText().equals("form"));
+    }
+
+    @Benchmark
+    public SchemaIndex buildIndex() {
+        return SchemaIndex.build(schemaNode);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public JsonNode toJSONNodeThreads4() throws JsonProcessingException {
+        return JSONHelper.toJSONNode(schema);
+    }
+}
@@ -0,0 +1,53 @@
+package com.baidu.amis.util;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.script.SimpleBindings;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 脚本引擎执行 requireOn 这类表达式的开销，使用哪个引擎取决于运行时的 classpath
+ * 没有任何可用的引擎时测出来的只是报错的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScriptBenchmark {
+
+    @Param({"this.type == 'mobile'", "data.count > 3 && data.type != 'none'", "!(data.a && data.b)"})
+    public String script;
+
+    private SimpleBindings dataBindings;
+
+    @Setup
+    public void setup() {
+        ObjectNode data = JsonNodeFactory.instance.objectNode()
+                .put("type", "mobile")
+                .put("count", 5)
+                .put("a", "a");
+        dataBindings = JsonBindings.of(data);
+    }
+
+    @Benchmark
+    public boolean eval() {
+        return Script.eval(script, dataBindings);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean evalThreads4() {
+        return Script.eval(script, dataBindings);
+    }
+}
@@ -0,0 +1,71 @@
+package com.baidu.amis.validation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+
+import com.baidu.amis.BenchmarkSchemas;
+import com.baidu.amis.util.JSONHelper;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 统计每次校验分配的字节数，通过 ThreadMXBean 读取当前线程累计分配的内存，预热之后取平均值
+ * 不依赖 JMH，可以直接运行，也可以通过 ./gradlew allocationBenchmark 运行：
+ *
+ * <pre>
+ * itemCount  valid  bytes/op
+ * 50         true   0.0
+ * </pre>
+ *
+ * 校验通过时应该接近 0，数字明显变大说明成功路径上又有了新的分配
+ */
+public class AllocationBenchmark {
+
+    private static final int WARMUP = 20000;
+
+    private static final int ITERATIONS = 20000;
+
+    /**
+     * 测量编译好的表单校验一次数据平均分配的字节数
+     *
+     * @return 运行时不支持统计线程分配时返回 -1
+     */
+    public static double bytesPerValidation(CompiledForm form, JsonNode data, int warmup, int iterations) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long threadId = Thread.currentThread().getId();
+        int sink = 0;
+        for (int i = 0; i < warmup; i++) {
+            sink += form.validate(data).size();
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            sink += form.validate(data).size();
+        }
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+        // 防止循环被优化掉
+        if (sink == Integer.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return (double) (after - before) / iterations;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("itemCount  valid  bytes/op");
+        for (int itemCount : new int[]{5, 50, 2000}) {
+            CompiledForm form = Validator.compile(JSONHelper.toJSONNode(BenchmarkSchemas.form(itemCount)));
+            for (boolean valid : new boolean[]{true, false}) {
+                JsonNode data = JSONHelper.toJSONNode(BenchmarkSchemas.data(itemCount, valid));
+                int iterations = Math.max(100, ITERATIONS * 5 / itemCount);
+                double bytes = bytesPerValidation(form, data, Math.max(100, WARMUP * 5 / itemCount), iterations);
+                System.out.println(String.format(Locale.ROOT, "%-10d %-6s %.1f", itemCount, valid, bytes));
+            }
+        }
+    }
+}
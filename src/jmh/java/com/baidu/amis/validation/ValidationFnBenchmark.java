@@ -0,0 +1,218 @@
+package com.baidu.amis.validation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+/**
+ * 每个校验方法单独的开销，输入都是能通过校验的值
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidationFnBenchmark {
+
+    private final JsonNode text = TextNode.valueOf("amis");
+
+    private final JsonNode words = TextNode.valueOf("hello amis");
+
+    private final JsonNode number = TextNode.valueOf("42");
+
+    private final JsonNode bool = BooleanNode.TRUE;
+
+    private final JsonNode email = TextNode.valueOf("amis@baidu.com");
+
+    private final JsonNode url = TextNode.valueOf("https://aisuda.bce.baidu.com/amis");
+
+    private final JsonNode json = TextNode.valueOf("{\"type\": \"page\", \"body\": [1, 2, 3]}");
+
+    private final JsonNode phone = TextNode.valueOf("13800138000");
+
+    private final JsonNode tel = TextNode.valueOf("010-12345678");
+
+    private final JsonNode zipcode = TextNode.valueOf("100085");
+
+    private final JsonNode id = TextNode.valueOf("11010519491231002X");
+
+    private final JsonNode code = TextNode.valueOf("AB1234");
+
+    private final JsonNode object = JsonNodeFactory.instance.objectNode().put("a", "amis");
+
+    @Benchmark
+    public boolean isRequired() {
+        return ValidationFn.isRequired(text);
+    }
+
+    @Benchmark
+    public boolean isExisty() {
+        return ValidationFn.isExisty(text);
+    }
+
+    @Benchmark
+    public boolean isEmptyString() {
+        return ValidationFn.isEmptyString(text);
+    }
+
+    @Benchmark
+    public boolean isEmail() {
+        return ValidationFn.isEmail(email);
+    }
+
+    @Benchmark
+    public boolean isUrl() {
+        return ValidationFn.isUrl(url);
+    }
+
+    @Benchmark
+    public boolean isTrue() {
+        return ValidationFn.isTrue(bool);
+    }
+
+    @Benchmark
+    public boolean isFalse() {
+        return ValidationFn.isFalse(bool);
+    }
+
+    @Benchmark
+    public boolean isNumeric() {
+        return ValidationFn.isNumeric(number);
+    }
+
+    @Benchmark
+    public boolean isAlpha() {
+        return ValidationFn.isAlpha(text);
+    }
+
+    @Benchmark
+    public boolean isAlphanumeric() {
+        return ValidationFn.isAlphanumeric(text);
+    }
+
+    @Benchmark
+    public boolean isInt() {
+        return ValidationFn.isInt(number);
+    }
+
+    @Benchmark
+    public boolean isFloat() {
+        return ValidationFn.isFloat(number);
+    }
+
+    @Benchmark
+    public boolean isWords() {
+        return ValidationFn.isWords(words);
+    }
+
+    @Benchmark
+    public boolean isSpecialWords() {
+        return ValidationFn.isSpecialWords(words);
+    }
+
+    @Benchmark
+    public boolean isLength() {
+        return ValidationFn.isLength(text, 4);
+    }
+
+    @Benchmark
+    public boolean equals() {
+        return ValidationFn.equals(text, text);
+    }
+
+    @Benchmark
+    public boolean equalsField() {
+        return ValidationFn.equalsField(object, "a");
+    }
+
+    @Benchmark
+    public boolean maxLength() {
+        return ValidationFn.maxLength(text, 20);
+    }
+
+    @Benchmark
+    public boolean minLength() {
+        return ValidationFn.minLength(text, 2);
+    }
+
+    @Benchmark
+    public boolean isUrlPath() {
+        return ValidationFn.isUrlPath(text);
+    }
+
+    @Benchmark
+    public boolean maximum() {
+        return ValidationFn.maximum(number, 10000.0);
+    }
+
+    @Benchmark
+    public boolean lt() {
+        return ValidationFn.lt(number, 10000.0);
+    }
+
+    @Benchmark
+    public boolean minimum() {
+        return ValidationFn.minimum(number, 1.0);
+    }
+
+    @Benchmark
+    public boolean gt() {
+        return ValidationFn.gt(number, 1.0);
+    }
+
+    @Benchmark
+    public boolean isJson() {
+        return ValidationFn.isJson(json);
+    }
+
+    @Benchmark
+    public boolean isPhoneNumber() {
+        return ValidationFn.isPhoneNumber(phone);
+    }
+
+    @Benchmark
+    public boolean isTelNumber() {
+        return ValidationFn.isTelNumber(tel);
+    }
+
+    @Benchmark
+    public boolean isZipcode() {
+        return ValidationFn.isZipcode(zipcode);
+    }
+
+    @Benchmark
+    public boolean isId() {
+        return ValidationFn.isId(id);
+    }
+
+    @Benchmark
+    public boolean notEmptyString() {
+        return ValidationFn.notEmptyString(text);
+    }
+
+    @Benchmark
+    public boolean matchRegexp() {
+        return ValidationFn.matchRegexp(code, "^[A-Z]{2}\\d{4}$");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean matchRegexpThreads4() {
+        return ValidationFn.matchRegexp(code, "^[A-Z]{2}\\d{4}$");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean isEmailThreads4() {
+        return ValidationFn.isEmail(email);
+    }
+}
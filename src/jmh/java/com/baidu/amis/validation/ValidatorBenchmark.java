@@ -0,0 +1,89 @@
+package com.baidu.amis.validation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.baidu.amis.BenchmarkSchemas;
+import com.baidu.amis.util.JSONHelper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 整个表单的校验，分别对应小表单、常见的中等表单和上千个表单项的大表单
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ValidatorBenchmark {
+
+    @Param({"5", "50", "2000"})
+    public int itemCount;
+
+    @Param({"true", "false"})
+    public boolean valid;
+
+    private String schema;
+
+    private String dataStr;
+
+    private JsonNode form;
+
+    private JsonNode data;
+
+    private CompiledForm compiledForm;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        schema = BenchmarkSchemas.page(itemCount);
+        dataStr = BenchmarkSchemas.data(itemCount, valid);
+        form = JSONHelper.toJSONNode(BenchmarkSchemas.form(itemCount));
+        data = JSONHelper.toJSONNode(dataStr);
+        compiledForm = Validator.compile(form);
+    }
+
+    /**
+     * 最常用的字符串接口，包括解析数据和查找表单
+     */
+    @Benchmark
+    public List<ConstraintViolation> validateString() throws JsonProcessingException {
+        return Validator.validate(schema, BenchmarkSchemas.FORM_NAME, dataStr);
+    }
+
+    /**
+     * 每次都重新编译表单
+     */
+    @Benchmark
+    public List<ConstraintViolation> validateJsonNode() {
+        return Validator.validate(form, data);
+    }
+
+    /**
+     * 只有校验本身的开销
+     */
+    @Benchmark
+    public List<ConstraintViolation> validateCompiled() {
+        return compiledForm.validate(data);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<ConstraintViolation> validateStringThreads4() throws JsonProcessingException {
+        return Validator.validate(schema, BenchmarkSchemas.FORM_NAME, dataStr);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<ConstraintViolation> validateCompiledThreads4() {
+        return compiledForm.validate(data);
+    }
+}
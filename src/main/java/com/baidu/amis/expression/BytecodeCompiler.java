@@ -0,0 +1,392 @@
+package com.baidu.amis.expression;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * 将表达式语法树编译成 {@link JsonPredicate} 的实现类
+ * 生成的代码只是按顺序调用 {@link ExpressionRuntime} 中的静态方法，没有解释执行时的虚方法分派，JIT 可以整体内联
+ * JDK 15 及以上使用 hidden class 加载，之前的版本每个类用单独的 ClassLoader 加载，两种方式生成的类都可以被回收
+ */
+final class BytecodeCompiler implements Opcodes {
+
+    private static final String RUNTIME = "com/baidu/amis/expression/ExpressionRuntime";
+
+    private static final String OBJECT = "java/lang/Object";
+
+    private static final String JSON_NODE = "com/fasterxml/jackson/databind/JsonNode";
+
+    private static final String CLASS_NAME = "com/baidu/amis/expression/GeneratedPredicate";
+
+    private static final String CONSTANTS_DESC = "[Ljava/lang/Object;";
+
+    // 普通 ClassLoader 加载时用于区分类名
+    private static final AtomicLong counter = new AtomicLong();
+
+    // JDK 15 的 Lookup.defineHiddenClass，之前的版本没有
+    private static final Method defineHiddenClass = findDefineHiddenClass();
+
+    private static final Object emptyClassOptions = defineHiddenClass == null ? null
+            : Array.newInstance(defineHiddenClass.getParameterTypes()[2].getComponentType(), 0);
+
+    // 字面量常量，数字等需要装箱的值放到实例字段里，避免每次执行都装箱
+    private final List<Object> constants = new ArrayList<>();
+
+    private MethodVisitor mv;
+
+    private BytecodeCompiler() {
+    }
+
+    private static Method findDefineHiddenClass() {
+        try {
+            Class<?> optionClass = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            return MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class,
+                    Array.newInstance(optionClass, 0).getClass());
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 编译表达式
+     *
+     * @param root 语法树
+     * @return 生成类的实例
+     */
+    static JsonPredicate compile(Node root) throws ReflectiveOperationException {
+        BytecodeCompiler compiler = new BytecodeCompiler();
+        String className = defineHiddenClass != null ? CLASS_NAME : CLASS_NAME + counter.incrementAndGet();
+        byte[] bytes = compiler.generate(root, className);
+        Class<?> generated = defineClass(className, bytes);
+        return (JsonPredicate) generated.getConstructor(Object[].class)
+                .newInstance((Object) compiler.constants.toArray());
+    }
+
+    private static Class<?> defineClass(String className, byte[] bytes) throws ReflectiveOperationException {
+        if (defineHiddenClass != null) {
+            MethodHandles.Lookup lookup = (MethodHandles.Lookup) defineHiddenClass.invoke(MethodHandles.lookup(),
+                    bytes, true, emptyClassOptions);
+            return lookup.lookupClass();
+        }
+        return new GeneratedClassLoader(BytecodeCompiler.class.getClassLoader())
+                .define(className.replace('/', '.'), bytes);
+    }
+
+    private byte[] generate(Node root, String className) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // 栈上只有 Object，不需要加载类来计算公共父类
+                return OBJECT;
+            }
+        };
+        cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, className, null, OBJECT,
+                new String[]{"com/baidu/amis/expression/JsonPredicate"});
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, "constants", CONSTANTS_DESC, null, null).visitEnd();
+
+        MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + CONSTANTS_DESC + ")V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 1);
+        init.visitFieldInsn(PUTFIELD, className, "constants", CONSTANTS_DESC);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC, "test", "(L" + JSON_NODE + ";)Z", null, null);
+        mv.visitCode();
+        // 常量数组放到局部变量 2 里
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, className, "constants", CONSTANTS_DESC);
+        mv.visitVarInsn(ASTORE, 2);
+        emitTest(root);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private void invokeRuntime(String name, String desc) {
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, name, desc, false);
+    }
+
+    private void boxBoolean() {
+        mv.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
+    }
+
+    private void negateBoolean() {
+        mv.visitInsn(ICONST_1);
+        mv.visitInsn(IXOR);
+    }
+
+    /**
+     * 生成求值并转成 boolean 的代码，执行后栈顶是一个 int
+     * 比较和逻辑运算直接生成跳转，不需要先装箱再转回 boolean
+     */
+    private void emitTest(Node node) {
+        if (node instanceof Node.Binary && emitComparison((Node.Binary) node)) {
+            return;
+        }
+        if (node instanceof Node.Unary && ((Node.Unary) node).operator.equals("!")) {
+            emitTest(((Node.Unary) node).operand);
+            negateBoolean();
+            return;
+        }
+        if (node instanceof Node.Logical) {
+            Node.Logical logical = (Node.Logical) node;
+            Label shortCircuit = new Label();
+            Label end = new Label();
+            emitTest(logical.left);
+            mv.visitJumpInsn(logical.and ? IFEQ : IFNE, shortCircuit);
+            emitTest(logical.right);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(shortCircuit);
+            mv.visitInsn(logical.and ? ICONST_0 : ICONST_1);
+            mv.visitLabel(end);
+            return;
+        }
+        if (node instanceof Node.Literal && ((Node.Literal) node).value instanceof Boolean) {
+            mv.visitInsn((Boolean) ((Node.Literal) node).value ? ICONST_1 : ICONST_0);
+            return;
+        }
+        emit(node);
+        invokeRuntime("toBoolean", "(Ljava/lang/Object;)Z");
+    }
+
+    // 比较运算，执行后栈顶是一个 int，不是比较运算时返回 false
+    private boolean emitComparison(Node.Binary binary) {
+        String method;
+        boolean swap = false;
+        boolean negate = false;
+        switch (binary.operator) {
+            case "==":
+                method = "looseEquals";
+                break;
+            case "!=":
+                method = "looseEquals";
+                negate = true;
+                break;
+            case "===":
+                method = "strictEquals";
+                break;
+            case "!==":
+                method = "strictEquals";
+                negate = true;
+                break;
+            case "<":
+                method = "lessThan";
+                break;
+            case ">":
+                method = "lessThan";
+                swap = true;
+                break;
+            case "<=":
+                method = "lessOrEquals";
+                break;
+            case ">=":
+                method = "lessOrEquals";
+                swap = true;
+                break;
+            default:
+                return false;
+        }
+        // 和 js 一样先算左边再算右边
+        emit(binary.left);
+        emit(binary.right);
+        if (swap) {
+            mv.visitInsn(SWAP);
+        }
+        invokeRuntime(method, "(Ljava/lang/Object;Ljava/lang/Object;)Z");
+        if (negate) {
+            negateBoolean();
+        }
+        return true;
+    }
+
+    /**
+     * 生成求值代码，执行后栈顶是一个 Object
+     */
+    private void emit(Node node) {
+        if (node instanceof Node.Literal) {
+            emitLiteral(((Node.Literal) node).value);
+        } else if (node instanceof Node.Root) {
+            mv.visitVarInsn(ALOAD, 1);
+            invokeRuntime("root", "(L" + JSON_NODE + ";)Ljava/lang/Object;");
+        } else if (node instanceof Node.MathObject) {
+            mv.visitFieldInsn(GETSTATIC, RUNTIME, "MATH", "Ljava/lang/Object;");
+        } else if (node instanceof Node.Variable) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitLdcInsn(((Node.Variable) node).name);
+            invokeRuntime("variable", "(L" + JSON_NODE + ";Ljava/lang/String;)Ljava/lang/Object;");
+        } else if (node instanceof Node.TypeOfVariable) {
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitLdcInsn(((Node.TypeOfVariable) node).name);
+            invokeRuntime("typeOfVariable", "(L" + JSON_NODE + ";Ljava/lang/String;)Ljava/lang/String;");
+        } else if (node instanceof Node.Member) {
+            Node.Member member = (Node.Member) node;
+            emit(member.object);
+            mv.visitLdcInsn(member.name);
+            invokeRuntime("member", "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;");
+        } else if (node instanceof Node.Index) {
+            Node.Index index = (Node.Index) node;
+            emit(index.object);
+            emit(index.key);
+            invokeRuntime("index", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+        } else if (node instanceof Node.Unary) {
+            emitUnary((Node.Unary) node);
+        } else if (node instanceof Node.Binary) {
+            emitBinary((Node.Binary) node);
+        } else if (node instanceof Node.Logical) {
+            Node.Logical logical = (Node.Logical) node;
+            Label end = new Label();
+            emit(logical.left);
+            mv.visitInsn(DUP);
+            invokeRuntime("toBoolean", "(Ljava/lang/Object;)Z");
+            // && 在左边为假时返回左边，|| 在左边为真时返回左边
+            mv.visitJumpInsn(logical.and ? IFEQ : IFNE, end);
+            mv.visitInsn(POP);
+            emit(logical.right);
+            mv.visitLabel(end);
+        } else if (node instanceof Node.Conditional) {
+            Node.Conditional conditional = (Node.Conditional) node;
+            Label alternate = new Label();
+            Label end = new Label();
+            emitTest(conditional.test);
+            mv.visitJumpInsn(IFEQ, alternate);
+            emit(conditional.consequent);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(alternate);
+            emit(conditional.alternate);
+            mv.visitLabel(end);
+        } else if (node instanceof Node.Call) {
+            Node.Call call = (Node.Call) node;
+            mv.visitLdcInsn(call.name);
+            emitArguments(call.arguments);
+            invokeRuntime("callFunction", "(Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/Object;");
+        } else if (node instanceof Node.MethodCall) {
+            Node.MethodCall call = (Node.MethodCall) node;
+            emit(call.object);
+            mv.visitLdcInsn(call.name);
+            emitArguments(call.arguments);
+            invokeRuntime("callMethod", "(Ljava/lang/Object;Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/Object;");
+        } else {
+            throw new ExpressionException("Unsupported node " + node.getClass().getSimpleName());
+        }
+    }
+
+    private void emitLiteral(Object value) {
+        if (value == null) {
+            mv.visitInsn(ACONST_NULL);
+        } else if (value == ExpressionRuntime.UNDEFINED) {
+            mv.visitFieldInsn(GETSTATIC, RUNTIME, "UNDEFINED", "Ljava/lang/Object;");
+        } else if (value instanceof Boolean) {
+            mv.visitFieldInsn(GETSTATIC, "java/lang/Boolean", (Boolean) value ? "TRUE" : "FALSE",
+                    "Ljava/lang/Boolean;");
+        } else if (value instanceof String) {
+            mv.visitLdcInsn(value);
+        } else {
+            mv.visitVarInsn(ALOAD, 2);
+            pushInt(constants.size());
+            mv.visitInsn(AALOAD);
+            constants.add(value);
+        }
+    }
+
+    private void emitUnary(Node.Unary unary) {
+        if (unary.operator.equals("!")) {
+            emitTest(unary.operand);
+            negateBoolean();
+            boxBoolean();
+            return;
+        }
+        emit(unary.operand);
+        switch (unary.operator) {
+            case "-":
+                invokeRuntime("negate", "(Ljava/lang/Object;)Ljava/lang/Object;");
+                break;
+            case "+":
+                invokeRuntime("plus", "(Ljava/lang/Object;)Ljava/lang/Object;");
+                break;
+            case "typeof":
+                invokeRuntime("typeOf", "(Ljava/lang/Object;)Ljava/lang/String;");
+                break;
+            default:
+                throw new ExpressionException("Unknown operator " + unary.operator);
+        }
+    }
+
+    private void emitBinary(Node.Binary binary) {
+        if (emitComparison(binary)) {
+            boxBoolean();
+            return;
+        }
+        String method;
+        switch (binary.operator) {
+            case "+":
+                method = "add";
+                break;
+            case "-":
+                method = "subtract";
+                break;
+            case "*":
+                method = "multiply";
+                break;
+            case "/":
+                method = "divide";
+                break;
+            case "%":
+                method = "remainder";
+                break;
+            default:
+                throw new ExpressionException("Unknown operator " + binary.operator);
+        }
+        emit(binary.left);
+        emit(binary.right);
+        invokeRuntime(method, "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+    }
+
+    private void emitArguments(Node[] arguments) {
+        pushInt(arguments.length);
+        mv.visitTypeInsn(ANEWARRAY, OBJECT);
+        for (int i = 0; i < arguments.length; i++) {
+            mv.visitInsn(DUP);
+            pushInt(i);
+            emit(arguments[i]);
+            mv.visitInsn(AASTORE);
+        }
+    }
+
+    private void pushInt(int value) {
+        if (value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+
+    // JDK 15 之前用的 ClassLoader，每个生成的类一个，这样类不用了就可以和 ClassLoader 一起被回收
+    private static final class GeneratedClassLoader extends ClassLoader {
+        private GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.baidu.amis.expression;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 解析好的 amis 表达式，直接在 JsonNode 上求值，不依赖脚本引擎
+ * 解析结果可以在多个线程间共享
+ * 刚解析时是解释执行，调用次数达到 {@link #getCompileThreshold()} 后会编译成字节码，之后都直接执行生成的类
+ *
+ * <pre>
+ * Expression expression = Expression.parse("data.type == 'a' &amp;&amp; data.count &gt; 3");
+ * boolean result = expression.test(data);
+ * </pre>
+ */
+public final class Expression {
+
+    private static Logger logger = Logger.getLogger("Validator");
+
+    /**
+     * 默认调用多少次之后编译成字节码
+     */
+    public static final int DEFAULT_COMPILE_THRESHOLD = 1000;
+
+    private static volatile int compileThreshold = DEFAULT_COMPILE_THRESHOLD;
+
+    private final String source;
+
+    private final Node root;
+
+    // 用到的顶层字段，用到整个数据时为 null
+    private final Set<String> referencedFields;
+
+    // 编译后的实现，编译前为 null
+    private volatile JsonPredicate compiled;
+
+    // 调用次数，只用于判断是否需要编译，多线程下不准确也没关系
+    private int invocations;
+
+    // 编译失败后就一直解释执行
+    private volatile boolean compileFailed;
+
+    private Expression(String source, Node root) {
+        this.source = source;
+        this.root = root;
+        Set<String> fields = new LinkedHashSet<>();
+        this.referencedFields = root.collectFields(fields) ? Collections.unmodifiableSet(fields) : null;
+    }
+
+    /**
+     * 解析表达式
+     *
+     * @param source 表达式源码
+     * @return 解析后的表达式
+     * @throws ExpressionException 语法错误或者用到了不支持的语法
+     */
+    public static Expression parse(String source) {
+        return new Expression(source, Parser.parse(source));
+    }
+
+    /**
+     * 求值，数据中的字段可以通过 this.xxx、data.xxx 或者直接用 xxx 访问
+     *
+     * @param data 表单数据
+     * @return 取值范围见 {@link ExpressionRuntime}
+     * @throws ExpressionException 执行出错，比如读取 undefined 的属性
+     */
+    public Object evaluate(JsonNode data) {
+        return root.eval(data);
+    }
+
+    /**
+     * 求值并按 js 的规则转成布尔值
+     *
+     * @throws ExpressionException 执行出错，比如读取 undefined 的属性
+     */
+    public boolean test(JsonNode data) {
+        JsonPredicate predicate = compiled;
+        if (predicate != null) {
+            return predicate.test(data);
+        }
+        if (!compileFailed) {
+            int threshold = compileThreshold;
+            if (threshold >= 0 && ++invocations >= threshold) {
+                compile();
+            }
+        }
+        return ExpressionRuntime.toBoolean(root.eval(data));
+    }
+
+    // 编译成字节码，同一个表达式只会编译一次
+    private synchronized void compile() {
+        if (compiled != null || compileFailed) {
+            return;
+        }
+        try {
+            compiled = BytecodeCompiler.compile(root);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            // 比如运行时没有 asm，或者不允许定义类
+            compileFailed = true;
+            logger.warning("compile expression failed: " + source + ", " + e);
+        }
+    }
+
+    /**
+     * 是否已经编译成字节码
+     */
+    public boolean isCompiled() {
+        return compiled != null;
+    }
+
+    /**
+     * 调用多少次之后编译成字节码
+     */
+    public static int getCompileThreshold() {
+        return compileThreshold;
+    }
+
+    /**
+     * 设置调用多少次之后编译成字节码，0 表示第一次调用就编译，小于 0 表示不编译
+     */
+    public static void setCompileThreshold(int threshold) {
+        compileThreshold = threshold;
+    }
+
+    /**
+     * 表达式用到了哪些顶层字段，比如 data.a.b &gt; 1 &amp;&amp; c 用到的是 a 和 c
+     * 流式校验时只需要保留这些字段的值
+     *
+     * @return 用到了整个数据时返回 null，比如单独使用 data 或者 data[key]
+     */
+    public Set<String> getReferencedFields() {
+        return referencedFields;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
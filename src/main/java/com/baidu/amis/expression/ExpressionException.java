@@ -0,0 +1,11 @@
+package com.baidu.amis.expression;
+
+/**
+ * 表达式解析或执行出错，解析时抛出一般意味着这个表达式超出了内置解析器支持的范围，需要交给脚本引擎执行
+ */
+public class ExpressionException extends RuntimeException {
+
+    public ExpressionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,718 @@
+package com.baidu.amis.expression;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Locale;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 表达式运行时，按照 js 的语义实现类型转换和运算符
+ * 表达式中的值只有这几种类型：null、{@link #UNDEFINED}、Boolean、Double、String，对象和数组直接使用 JsonNode
+ */
+public final class ExpressionRuntime {
+
+    /**
+     * 对应 js 中的 undefined
+     */
+    public static final Object UNDEFINED = new Object() {
+        @Override
+        public String toString() {
+            return "undefined";
+        }
+    };
+
+    /**
+     * 对应 js 中的 Math 对象，只用于调用它的方法和读取常量
+     */
+    public static final Object MATH = new Object() {
+        @Override
+        public String toString() {
+            return "[object Math]";
+        }
+    };
+
+    // 数据不是对象的时候当成空对象处理
+    private static final ObjectNode EMPTY_OBJECT = JsonNodeFactory.instance.objectNode();
+
+    private static final Double ZERO = 0.0;
+
+    private ExpressionRuntime() {
+    }
+
+    /**
+     * 表达式的根节点，也就是 this 和 data 对应的值
+     */
+    public static Object root(JsonNode data) {
+        if (data == null || !data.isObject()) {
+            return EMPTY_OBJECT;
+        }
+        return data;
+    }
+
+    /**
+     * 查找顶层变量，和 amis 前端一样，找不到的变量会报错
+     */
+    public static Object variable(JsonNode data, String name) {
+        if (data != null && data.isObject()) {
+            JsonNode value = data.get(name);
+            if (value != null) {
+                return fromJson(value);
+            }
+        }
+        throw new ExpressionException(name + " is not defined");
+    }
+
+    /**
+     * 将 JSON 节点转成表达式中的值
+     */
+    public static Object fromJson(JsonNode node) {
+        if (node == null || node.isMissingNode()) {
+            return UNDEFINED;
+        }
+        switch (node.getNodeType()) {
+            case NULL:
+                return null;
+            case BOOLEAN:
+                return node.booleanValue();
+            case NUMBER:
+                return node.doubleValue();
+            case STRING:
+                return node.textValue();
+            case BINARY:
+            case POJO:
+                return node.asText();
+            default:
+                return node;
+        }
+    }
+
+    /**
+     * 读取属性，对应 obj.name
+     */
+    public static Object member(Object obj, String name) {
+        if (obj == null || obj == UNDEFINED) {
+            throw new ExpressionException("Cannot read property '" + name + "' of " + toStr(obj));
+        }
+        if (obj == MATH) {
+            return mathConstant(name);
+        }
+        if (obj instanceof JsonNode) {
+            JsonNode node = (JsonNode) obj;
+            if (node.isArray()) {
+                if (name.equals("length")) {
+                    return (double) node.size();
+                }
+                int index = arrayIndex(name);
+                return index >= 0 ? fromJson(node.get(index)) : UNDEFINED;
+            }
+            return fromJson(node.get(name));
+        }
+        if (obj instanceof String) {
+            String str = (String) obj;
+            if (name.equals("length")) {
+                return (double) str.length();
+            }
+            int index = arrayIndex(name);
+            return index >= 0 && index < str.length() ? String.valueOf(str.charAt(index)) : UNDEFINED;
+        }
+        return UNDEFINED;
+    }
+
+    /**
+     * 读取属性，对应 obj[key]
+     */
+    public static Object index(Object obj, Object key) {
+        if (key instanceof Double && obj instanceof JsonNode && ((JsonNode) obj).isArray()) {
+            double d = (Double) key;
+            int i = (int) d;
+            if (i == d && i >= 0) {
+                return fromJson(((JsonNode) obj).get(i));
+            }
+        }
+        return member(obj, toStr(key));
+    }
+
+    // 数组下标，不是合法下标时返回 -1
+    private static int arrayIndex(String name) {
+        int length = name.length();
+        if (length == 0 || length > 9) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9' || (i == 0 && c == '0' && length > 1)) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(name);
+    }
+
+    /**
+     * 转成布尔值，规则和 js 一致
+     */
+    public static boolean toBoolean(Object value) {
+        if (value == null || value == UNDEFINED) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Double) {
+            double d = (Double) value;
+            return d != 0 && !Double.isNaN(d);
+        }
+        if (value instanceof String) {
+            return !((String) value).isEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * 转成数字，规则和 js 的 Number() 一致
+     */
+    public static double toNumber(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        if (value instanceof String) {
+            return stringToNumber((String) value);
+        }
+        if (value instanceof JsonNode) {
+            return toNumber(toPrimitive(value));
+        }
+        return Double.NaN;
+    }
+
+    private static double stringToNumber(String str) {
+        String s = trim(str);
+        if (s.isEmpty()) {
+            return 0;
+        }
+        if (s.length() > 2 && s.charAt(0) == '0' && (s.charAt(1) == 'x' || s.charAt(1) == 'X')) {
+            try {
+                return Long.parseLong(s.substring(2), 16);
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        switch (s) {
+            case "Infinity":
+            case "+Infinity":
+                return Double.POSITIVE_INFINITY;
+            case "-Infinity":
+                return Double.NEGATIVE_INFINITY;
+        }
+        // Java 能解析但 js 不认的写法，比如 1d、1f、NaN，以及 Java 会忽略的两端的控制字符
+        char last = s.charAt(s.length() - 1);
+        if ((!(last >= '0' && last <= '9') && last != '.') || s.charAt(0) <= ' ') {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * 转成字符串，规则和 js 的 String() 一致
+     */
+    public static String toStr(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Double) {
+            return numberToString((Double) value);
+        }
+        if (value instanceof JsonNode) {
+            return (String) toPrimitive(value);
+        }
+        return value.toString();
+    }
+
+    /**
+     * 数字转字符串，整数不会带上 .0
+     */
+    public static String numberToString(double d) {
+        if (Double.isNaN(d)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(d)) {
+            return d > 0 ? "Infinity" : "-Infinity";
+        }
+        if (d == 0) {
+            return "0";
+        }
+        double abs = Math.abs(d);
+        if (abs < 9007199254740992.0 && d == Math.rint(d)) {
+            return Long.toString((long) d);
+        }
+        if (abs >= 1e-6 && abs < 1e21) {
+            return new BigDecimal(Double.toString(d)).stripTrailingZeros().toPlainString();
+        }
+        // 科学计数法，Java 是 1.0E21 而 js 是 1e+21
+        BigDecimal decimal = new BigDecimal(Double.toString(d)).stripTrailingZeros();
+        String unscaled = decimal.unscaledValue().abs().toString();
+        int exponent = unscaled.length() - 1 - decimal.scale();
+        StringBuilder sb = new StringBuilder();
+        if (d < 0) {
+            sb.append('-');
+        }
+        sb.append(unscaled.charAt(0));
+        if (unscaled.length() > 1) {
+            sb.append('.').append(unscaled, 1, unscaled.length());
+        }
+        sb.append('e').append(exponent > 0 ? "+" : "-").append(Math.abs(exponent));
+        return sb.toString();
+    }
+
+    // 对象转成原始值，数组会用逗号拼接，对象是 [object Object]
+    private static Object toPrimitive(Object value) {
+        if (!(value instanceof JsonNode)) {
+            return value;
+        }
+        JsonNode node = (JsonNode) value;
+        if (node.isArray()) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < node.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                Object item = fromJson(node.get(i));
+                if (item != null && item != UNDEFINED) {
+                    sb.append(toStr(item));
+                }
+            }
+            return sb.toString();
+        }
+        return "[object Object]";
+    }
+
+    /**
+     * typeof 运算
+     */
+    public static String typeOf(Object value) {
+        if (value == UNDEFINED) {
+            return "undefined";
+        }
+        if (value instanceof Boolean) {
+            return "boolean";
+        }
+        if (value instanceof Double) {
+            return "number";
+        }
+        if (value instanceof String) {
+            return "string";
+        }
+        return "object";
+    }
+
+    /**
+     * 对变量做 typeof 运算，和 js 一样，未定义的变量不会报错
+     */
+    public static String typeOfVariable(JsonNode data, String name) {
+        if (data == null || !data.isObject() || data.get(name) == null) {
+            return "undefined";
+        }
+        return typeOf(variable(data, name));
+    }
+
+    /**
+     * === 运算
+     */
+    public static boolean strictEquals(Object a, Object b) {
+        if (a == b) {
+            // NaN 和自己也不相等
+            return !(a instanceof Double && Double.isNaN((Double) a));
+        }
+        if (a == null || b == null || a == UNDEFINED || b == UNDEFINED) {
+            return false;
+        }
+        if (a instanceof Double && b instanceof Double) {
+            return ((Double) a).doubleValue() == ((Double) b).doubleValue();
+        }
+        if (a instanceof JsonNode || b instanceof JsonNode) {
+            // 对象只有同一个引用才相等
+            return false;
+        }
+        return a.equals(b);
+    }
+
+    /**
+     * == 运算，实现了 js 中的隐式类型转换
+     */
+    public static boolean looseEquals(Object a, Object b) {
+        boolean aNullish = a == null || a == UNDEFINED;
+        boolean bNullish = b == null || b == UNDEFINED;
+        if (aNullish || bNullish) {
+            return aNullish && bNullish;
+        }
+        if (a.getClass() == b.getClass() || (a instanceof JsonNode && b instanceof JsonNode)) {
+            return strictEquals(a, b);
+        }
+        if (a instanceof Boolean) {
+            return looseEquals(toNumber(a), b);
+        }
+        if (b instanceof Boolean) {
+            return looseEquals(a, toNumber(b));
+        }
+        if (a instanceof Double && b instanceof String) {
+            return (Double) a == stringToNumber((String) b);
+        }
+        if (a instanceof String && b instanceof Double) {
+            return stringToNumber((String) a) == (Double) b;
+        }
+        if (a instanceof JsonNode) {
+            return looseEquals(toPrimitive(a), b);
+        }
+        if (b instanceof JsonNode) {
+            return looseEquals(a, toPrimitive(b));
+        }
+        return false;
+    }
+
+    /**
+     * &lt; 运算，另外几个比较运算都可以转成这个
+     */
+    public static boolean lessThan(Object a, Object b) {
+        Object pa = toPrimitive(a);
+        Object pb = toPrimitive(b);
+        if (pa instanceof String && pb instanceof String) {
+            return ((String) pa).compareTo((String) pb) < 0;
+        }
+        return toNumber(pa) < toNumber(pb);
+    }
+
+    /**
+     * &lt;= 运算，NaN 参与时总是 false
+     */
+    public static boolean lessOrEquals(Object a, Object b) {
+        Object pa = toPrimitive(a);
+        Object pb = toPrimitive(b);
+        if (pa instanceof String && pb instanceof String) {
+            return ((String) pa).compareTo((String) pb) <= 0;
+        }
+        return toNumber(pa) <= toNumber(pb);
+    }
+
+    /**
+     * + 运算，有一个是字符串时就是字符串拼接
+     */
+    public static Object add(Object a, Object b) {
+        Object pa = toPrimitive(a);
+        Object pb = toPrimitive(b);
+        if (pa instanceof String || pb instanceof String) {
+            return toStr(pa).concat(toStr(pb));
+        }
+        return toNumber(pa) + toNumber(pb);
+    }
+
+    public static Object subtract(Object a, Object b) {
+        return toNumber(a) - toNumber(b);
+    }
+
+    public static Object multiply(Object a, Object b) {
+        return toNumber(a) * toNumber(b);
+    }
+
+    public static Object divide(Object a, Object b) {
+        return toNumber(a) / toNumber(b);
+    }
+
+    public static Object remainder(Object a, Object b) {
+        return toNumber(a) % toNumber(b);
+    }
+
+    public static Object not(Object a) {
+        return !toBoolean(a);
+    }
+
+    public static Object negate(Object a) {
+        return -toNumber(a);
+    }
+
+    public static Object plus(Object a) {
+        return toNumber(a);
+    }
+
+    /**
+     * 调用全局函数，支持的函数名在解析时就检查过了
+     */
+    public static Object callFunction(String name, Object[] args) {
+        Object first = args.length > 0 ? args[0] : UNDEFINED;
+        switch (name) {
+            case "Number":
+                return args.length > 0 ? toNumber(first) : ZERO;
+            case "String":
+                return args.length > 0 ? toStr(first) : "";
+            case "Boolean":
+                return toBoolean(first);
+            case "isNaN":
+                return Double.isNaN(toNumber(first));
+            case "isFinite":
+                double d = toNumber(first);
+                return !Double.isNaN(d) && !Double.isInfinite(d);
+            case "parseInt":
+                return parseInt(toStr(first), args.length > 1 ? (int) toNumber(args[1]) : 0);
+            case "parseFloat":
+                return parseFloat(toStr(first));
+        }
+        throw new ExpressionException(name + " is not a function");
+    }
+
+    /**
+     * 调用方法，根据调用对象的类型分派
+     */
+    public static Object callMethod(Object receiver, String name, Object[] args) {
+        if (receiver == MATH) {
+            return callMath(name, args);
+        }
+        if (receiver instanceof String) {
+            String str = (String) receiver;
+            switch (name) {
+                case "indexOf":
+                    return (double) str.indexOf(toStr(arg(args, 0)));
+                case "includes":
+                    return str.contains(toStr(arg(args, 0)));
+                case "startsWith":
+                    return str.startsWith(toStr(arg(args, 0)));
+                case "endsWith":
+                    return str.endsWith(toStr(arg(args, 0)));
+                case "trim":
+                    return trim(str);
+                case "toLowerCase":
+                    // 和 js 一样不受默认语言环境影响，比如土耳其语中 I 会变成没有点的 ı
+                    return str.toLowerCase(Locale.ROOT);
+                case "toUpperCase":
+                    return str.toUpperCase(Locale.ROOT);
+                case "toString":
+                    return str;
+            }
+        } else if (receiver instanceof JsonNode && ((JsonNode) receiver).isArray()) {
+            JsonNode array = (JsonNode) receiver;
+            switch (name) {
+                case "indexOf":
+                    return (double) arrayIndexOf(array, arg(args, 0));
+                case "includes":
+                    return arrayIndexOf(array, arg(args, 0)) >= 0;
+                case "join":
+                    return join(array, args.length > 0 && arg(args, 0) != UNDEFINED ? toStr(arg(args, 0)) : ",");
+                case "toString":
+                    return toPrimitive(array);
+            }
+        } else if (receiver instanceof Double || receiver instanceof Boolean) {
+            if (name.equals("toString")) {
+                return toStr(receiver);
+            }
+        }
+        if (receiver == null || receiver == UNDEFINED) {
+            throw new ExpressionException("Cannot read property '" + name + "' of " + toStr(receiver));
+        }
+        throw new ExpressionException(name + " is not a function");
+    }
+
+    private static Object callMath(String name, Object[] args) {
+        switch (name) {
+            case "abs":
+                return Math.abs(toNumber(arg(args, 0)));
+            case "floor":
+                return Math.floor(toNumber(arg(args, 0)));
+            case "ceil":
+                return Math.ceil(toNumber(arg(args, 0)));
+            case "round":
+                // js 的 round 是向正无穷方向取整的
+                return Math.floor(toNumber(arg(args, 0)) + 0.5);
+            case "max": {
+                double max = Double.NEGATIVE_INFINITY;
+                for (Object arg : args) {
+                    double d = toNumber(arg);
+                    if (Double.isNaN(d)) {
+                        return Double.NaN;
+                    }
+                    max = Math.max(max, d);
+                }
+                return max;
+            }
+            case "min": {
+                double min = Double.POSITIVE_INFINITY;
+                for (Object arg : args) {
+                    double d = toNumber(arg);
+                    if (Double.isNaN(d)) {
+                        return Double.NaN;
+                    }
+                    min = Math.min(min, d);
+                }
+                return min;
+            }
+        }
+        throw new ExpressionException("Math." + name + " is not a function");
+    }
+
+    // 和 js 引擎中的值逐位一致，所以直接写出来而不是计算
+    private static Object mathConstant(String name) {
+        switch (name) {
+            case "PI":
+                return Math.PI;
+            case "E":
+                return Math.E;
+            case "LN2":
+                return 0.6931471805599453;
+            case "LN10":
+                return 2.302585092994046;
+            case "LOG2E":
+                return 1.4426950408889634;
+            case "LOG10E":
+                return 0.4342944819032518;
+            case "SQRT2":
+                return 1.4142135623730951;
+            case "SQRT1_2":
+                return 0.7071067811865476;
+        }
+        return UNDEFINED;
+    }
+
+    private static Object arg(Object[] args, int i) {
+        return i < args.length ? args[i] : UNDEFINED;
+    }
+
+    private static int arrayIndexOf(JsonNode array, Object search) {
+        for (int i = 0; i < array.size(); i++) {
+            if (strictEquals(fromJson(array.get(i)), search)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String join(JsonNode array, String separator) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < array.size(); i++) {
+            if (i > 0) {
+                sb.append(separator);
+            }
+            Object item = fromJson(array.get(i));
+            if (item != null && item != UNDEFINED) {
+                sb.append(toStr(item));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 和 js 的 String.prototype.trim 一致，去掉两端的空白和换行，包括 String.trim() 不处理的 \u00A0、全角空格 \u3000 等
+     */
+    static String trim(String str) {
+        int start = 0;
+        int end = str.length();
+        while (start < end && isJsWhitespace(str.charAt(start))) {
+            start++;
+        }
+        while (end > start && isJsWhitespace(str.charAt(end - 1))) {
+            end--;
+        }
+        return start == 0 && end == str.length() ? str : str.substring(start, end);
+    }
+
+    // js 中的 WhiteSpace 和 LineTerminator
+    private static boolean isJsWhitespace(char c) {
+        switch (c) {
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+            case ' ':
+            case '\u00A0':
+            case '\u1680':
+            case '\u2028':
+            case '\u2029':
+            case '\u202F':
+            case '\u205F':
+            case '\u3000':
+            case '\uFEFF':
+                return true;
+            default:
+                return c >= '\u2000' && c <= '\u200A';
+        }
+    }
+
+    private static double parseInt(String str, int radix) {
+        String s = trim(str);
+        boolean negative = false;
+        if (!s.isEmpty() && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+            negative = s.charAt(0) == '-';
+            s = s.substring(1);
+        }
+        if (radix == 0) {
+            radix = 10;
+            if (s.length() > 1 && s.charAt(0) == '0' && (s.charAt(1) == 'x' || s.charAt(1) == 'X')) {
+                radix = 16;
+                s = s.substring(2);
+            }
+        } else if (radix < 2 || radix > 36) {
+            return Double.NaN;
+        }
+        // 和 js 一样只取前面合法的部分
+        int end = 0;
+        while (end < s.length() && Character.digit(s.charAt(end), radix) >= 0) {
+            end++;
+        }
+        if (end == 0) {
+            return Double.NaN;
+        }
+        double result = new BigInteger(s.substring(0, end), radix).doubleValue();
+        return negative ? -result : result;
+    }
+
+    private static double parseFloat(String str) {
+        String s = trim(str);
+        int end = 0;
+        int length = s.length();
+        if (end < length && (s.charAt(end) == '-' || s.charAt(end) == '+')) {
+            end++;
+        }
+        if (s.startsWith("Infinity", end)) {
+            return s.charAt(0) == '-' ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        int digitsStart = end;
+        while (end < length && Character.isDigit(s.charAt(end))) {
+            end++;
+        }
+        if (end < length && s.charAt(end) == '.') {
+            end++;
+            while (end < length && Character.isDigit(s.charAt(end))) {
+                end++;
+            }
+        }
+        if (end == digitsStart || (end == digitsStart + 1 && s.charAt(digitsStart) == '.')) {
+            return Double.NaN;
+        }
+        // 指数部分要完整才算
+        if (end < length && (s.charAt(end) == 'e' || s.charAt(end) == 'E')) {
+            int expEnd = end + 1;
+            if (expEnd < length && (s.charAt(expEnd) == '-' || s.charAt(expEnd) == '+')) {
+                expEnd++;
+            }
+            int expDigits = expEnd;
+            while (expEnd < length && Character.isDigit(s.charAt(expEnd))) {
+                expEnd++;
+            }
+            if (expEnd > expDigits) {
+                end = expEnd;
+            }
+        }
+        return Double.parseDouble(s.substring(0, end));
+    }
+}
@@ -0,0 +1,16 @@
+package com.baidu.amis.expression;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 基于 JSON 数据的条件判断，热点表达式编译成字节码后会生成这个接口的实现类
+ */
+@FunctionalInterface
+public interface JsonPredicate {
+
+    /**
+     * @param data 表单数据
+     * @return 按 js 规则转成布尔值后的结果
+     */
+    boolean test(JsonNode data);
+}
@@ -0,0 +1,390 @@
+package com.baidu.amis.expression;
+
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 表达式语法树，解释执行时直接在 JsonNode 上求值
+ */
+abstract class Node {
+
+    /**
+     * 求值
+     *
+     * @param data 表单数据
+     * @return 取值范围见 {@link ExpressionRuntime}
+     */
+    abstract Object eval(JsonNode data);
+
+    /**
+     * 收集用到的顶层字段名
+     *
+     * @param fields 用于收集结果
+     * @return 用到了整个数据时返回 false，比如单独使用 data 或者 data[a]
+     */
+    abstract boolean collectFields(Set<String> fields);
+
+    /**
+     * 常量，包括数字、字符串、布尔值、null 和 undefined
+     */
+    static final class Literal extends Node {
+        final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            return true;
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            return value;
+        }
+    }
+
+    /**
+     * this 和 data，都指向整个表单数据
+     */
+    static final class Root extends Node {
+        @Override
+        boolean collectFields(Set<String> fields) {
+            return false;
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            return ExpressionRuntime.root(data);
+        }
+    }
+
+    /**
+     * Math 对象
+     */
+    static final class MathObject extends Node {
+        @Override
+        boolean collectFields(Set<String> fields) {
+            return true;
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            return ExpressionRuntime.MATH;
+        }
+    }
+
+    /**
+     * 顶层变量，比如 a == 1 中的 a
+     */
+    static final class Variable extends Node {
+        final String name;
+
+        Variable(String name) {
+            this.name = name;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            fields.add(name);
+            return true;
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            return ExpressionRuntime.variable(data, name);
+        }
+    }
+
+    /**
+     * 属性访问 obj.name
+     */
+    static final class Member extends Node {
+        final Node object;
+        final String name;
+
+        Member(Node object, String name) {
+            this.object = object;
+            this.name = name;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            if (object instanceof Root) {
+                fields.add(name);
+                return true;
+            }
+            return object.collectFields(fields);
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            return ExpressionRuntime.member(object.eval(data), name);
+        }
+    }
+
+    /**
+     * 下标访问 obj[key]
+     */
+    static final class Index extends Node {
+        final Node object;
+        final Node key;
+
+        Index(Node object, Node key) {
+            this.object = object;
+            this.key = key;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            if (object instanceof Root) {
+                if (key instanceof Literal && ((Literal) key).value instanceof String) {
+                    fields.add((String) ((Literal) key).value);
+                    return true;
+                }
+                return false;
+            }
+            return object.collectFields(fields) && key.collectFields(fields);
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            Object obj = object.eval(data);
+            return ExpressionRuntime.index(obj, key.eval(data));
+        }
+    }
+
+    /**
+     * 一元运算
+     */
+    static final class Unary extends Node {
+        final String operator;
+        final Node operand;
+
+        Unary(String operator, Node operand) {
+            this.operator = operator;
+            this.operand = operand;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            return operand.collectFields(fields);
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            Object value = operand.eval(data);
+            switch (operator) {
+                case "!":
+                    return ExpressionRuntime.not(value);
+                case "-":
+                    return ExpressionRuntime.negate(value);
+                case "+":
+                    return ExpressionRuntime.plus(value);
+                case "typeof":
+                    return ExpressionRuntime.typeOf(value);
+            }
+            throw new ExpressionException("Unknown operator " + operator);
+        }
+    }
+
+    /**
+     * typeof 比较特殊，未定义的变量不会报错
+     */
+    static final class TypeOfVariable extends Node {
+        final String name;
+
+        TypeOfVariable(String name) {
+            this.name = name;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            fields.add(name);
+            return true;
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            return ExpressionRuntime.typeOfVariable(data, name);
+        }
+    }
+
+    /**
+     * 二元运算，不包括 &amp;&amp; 和 ||
+     */
+    static final class Binary extends Node {
+        final String operator;
+        final Node left;
+        final Node right;
+
+        Binary(String operator, Node left, Node right) {
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            return left.collectFields(fields) && right.collectFields(fields);
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            Object a = left.eval(data);
+            Object b = right.eval(data);
+            switch (operator) {
+                case "==":
+                    return ExpressionRuntime.looseEquals(a, b);
+                case "!=":
+                    return !ExpressionRuntime.looseEquals(a, b);
+                case "===":
+                    return ExpressionRuntime.strictEquals(a, b);
+                case "!==":
+                    return !ExpressionRuntime.strictEquals(a, b);
+                case "<":
+                    return ExpressionRuntime.lessThan(a, b);
+                case ">":
+                    return ExpressionRuntime.lessThan(b, a);
+                case "<=":
+                    return ExpressionRuntime.lessOrEquals(a, b);
+                case ">=":
+                    return ExpressionRuntime.lessOrEquals(b, a);
+                case "+":
+                    return ExpressionRuntime.add(a, b);
+                case "-":
+                    return ExpressionRuntime.subtract(a, b);
+                case "*":
+                    return ExpressionRuntime.multiply(a, b);
+                case "/":
+                    return ExpressionRuntime.divide(a, b);
+                case "%":
+                    return ExpressionRuntime.remainder(a, b);
+            }
+            throw new ExpressionException("Unknown operator " + operator);
+        }
+    }
+
+    /**
+     * &amp;&amp; 和 ||，和 js 一样会短路，并且返回的是操作数本身而不是布尔值
+     */
+    static final class Logical extends Node {
+        final boolean and;
+        final Node left;
+        final Node right;
+
+        Logical(boolean and, Node left, Node right) {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            return left.collectFields(fields) && right.collectFields(fields);
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            Object a = left.eval(data);
+            if (ExpressionRuntime.toBoolean(a) == and) {
+                return right.eval(data);
+            }
+            return a;
+        }
+    }
+
+    /**
+     * 三元运算 test ? consequent : alternate
+     */
+    static final class Conditional extends Node {
+        final Node test;
+        final Node consequent;
+        final Node alternate;
+
+        Conditional(Node test, Node consequent, Node alternate) {
+            this.test = test;
+            this.consequent = consequent;
+            this.alternate = alternate;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            return test.collectFields(fields) && consequent.collectFields(fields)
+                    && alternate.collectFields(fields);
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            return ExpressionRuntime.toBoolean(test.eval(data)) ? consequent.eval(data) : alternate.eval(data);
+        }
+    }
+
+    /**
+     * 全局函数调用，比如 parseInt(a)
+     */
+    static final class Call extends Node {
+        final String name;
+        final Node[] arguments;
+
+        Call(String name, Node[] arguments) {
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            return collectAllFields(arguments, fields);
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            return ExpressionRuntime.callFunction(name, evalArguments(arguments, data));
+        }
+    }
+
+    /**
+     * 方法调用，比如 a.indexOf('b')
+     */
+    static final class MethodCall extends Node {
+        final Node object;
+        final String name;
+        final Node[] arguments;
+
+        MethodCall(Node object, String name, Node[] arguments) {
+            this.object = object;
+            this.name = name;
+            this.arguments = arguments;
+        }
+
+        @Override
+        boolean collectFields(Set<String> fields) {
+            return object.collectFields(fields) && collectAllFields(arguments, fields);
+        }
+
+        @Override
+        Object eval(JsonNode data) {
+            Object receiver = object.eval(data);
+            return ExpressionRuntime.callMethod(receiver, name, evalArguments(arguments, data));
+        }
+    }
+
+    private static Object[] evalArguments(Node[] arguments, JsonNode data) {
+        Object[] values = new Object[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            values[i] = arguments[i].eval(data);
+        }
+        return values;
+    }
+
+    private static boolean collectAllFields(Node[] nodes, Set<String> fields) {
+        for (Node node : nodes) {
+            if (!node.collectFields(fields)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
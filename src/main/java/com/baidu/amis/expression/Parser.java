@@ -0,0 +1,439 @@
+package com.baidu.amis.expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * amis 条件表达式的解析器，只支持常用的子集：
+ * 属性访问、比较、逻辑运算、字面量、四则运算、三元运算以及少量常用函数
+ * 遇到不支持的语法会抛出 {@link ExpressionException}，调用方可以转而使用脚本引擎执行
+ */
+final class Parser {
+
+    // 支持的全局函数
+    private static final Set<String> FUNCTIONS = new HashSet<>(Arrays.asList(
+            "Number", "String", "Boolean", "isNaN", "isFinite", "parseInt", "parseFloat"));
+
+    // 支持的方法，具体能不能调用要看运行时的对象类型
+    private static final Set<String> METHODS = new HashSet<>(Arrays.asList(
+            "indexOf", "includes", "startsWith", "endsWith", "trim", "toLowerCase", "toUpperCase", "join",
+            "toString", "abs", "floor", "ceil", "round", "max", "min"));
+
+    // Math 上支持的方法和常量，其它属性交给脚本引擎，避免 Math.sqrt 这样的写法在这里被当成 undefined
+    private static final Set<String> MATH_METHODS = new HashSet<>(Arrays.asList(
+            "abs", "floor", "ceil", "round", "max", "min"));
+
+    private static final Set<String> MATH_CONSTANTS = new HashSet<>(Arrays.asList(
+            "PI", "E", "LN2", "LN10", "LOG2E", "LOG10E", "SQRT2", "SQRT1_2"));
+
+    // 不支持的关键字和全局对象，出现时直接交给脚本引擎
+    private static final Set<String> RESERVED = new HashSet<>(Arrays.asList(
+            "var", "let", "const", "function", "return", "new", "delete", "void", "in", "instanceof", "if",
+            "else", "for", "while", "do", "switch", "case", "break", "continue", "throw", "try", "catch",
+            "finally", "class", "yield", "await", "with", "debugger", "import", "export",
+            // 内置解析器没有实现的全局对象
+            "JSON", "Date", "Object", "Array", "RegExp", "Symbol", "Promise", "Map", "Set", "Error", "Intl",
+            "console", "window", "document", "globalThis", "encodeURIComponent", "decodeURIComponent",
+            "encodeURI", "decodeURI", "escape", "unescape"));
+
+    private final String source;
+
+    private int pos = 0;
+
+    // 当前的 token
+    private int type;
+    private String text;
+    private Object value;
+
+    private static final int EOF = 0;
+    private static final int NUMBER = 1;
+    private static final int STRING = 2;
+    private static final int NAME = 3;
+    private static final int PUNCTUATOR = 4;
+
+    private Parser(String source) {
+        this.source = source;
+    }
+
+    static Node parse(String source) {
+        Parser parser = new Parser(source);
+        parser.next();
+        Node node = parser.parseConditional();
+        if (parser.type != EOF) {
+            throw parser.error("Unexpected token " + parser.text);
+        }
+        return node;
+    }
+
+    private ExpressionException error(String message) {
+        return new ExpressionException(message + " at " + pos + " in: " + source);
+    }
+
+    private boolean isPunctuator(String p) {
+        return type == PUNCTUATOR && text.equals(p);
+    }
+
+    private void expect(String p) {
+        if (!isPunctuator(p)) {
+            throw error("Expected " + p);
+        }
+        next();
+    }
+
+    private Node parseConditional() {
+        Node test = parseOr();
+        if (isPunctuator("?")) {
+            next();
+            Node consequent = parseConditional();
+            expect(":");
+            Node alternate = parseConditional();
+            return new Node.Conditional(test, consequent, alternate);
+        }
+        return test;
+    }
+
+    private Node parseOr() {
+        Node left = parseAnd();
+        while (isPunctuator("||")) {
+            next();
+            left = new Node.Logical(false, left, parseAnd());
+        }
+        return left;
+    }
+
+    private Node parseAnd() {
+        Node left = parseEquality();
+        while (isPunctuator("&&")) {
+            next();
+            left = new Node.Logical(true, left, parseEquality());
+        }
+        return left;
+    }
+
+    private Node parseEquality() {
+        Node left = parseRelational();
+        while (isPunctuator("==") || isPunctuator("!=") || isPunctuator("===") || isPunctuator("!==")) {
+            String operator = text;
+            next();
+            left = new Node.Binary(operator, left, parseRelational());
+        }
+        return left;
+    }
+
+    private Node parseRelational() {
+        Node left = parseAdditive();
+        while (isPunctuator("<") || isPunctuator(">") || isPunctuator("<=") || isPunctuator(">=")) {
+            String operator = text;
+            next();
+            left = new Node.Binary(operator, left, parseAdditive());
+        }
+        return left;
+    }
+
+    private Node parseAdditive() {
+        Node left = parseMultiplicative();
+        while (isPunctuator("+") || isPunctuator("-")) {
+            String operator = text;
+            next();
+            left = new Node.Binary(operator, left, parseMultiplicative());
+        }
+        return left;
+    }
+
+    private Node parseMultiplicative() {
+        Node left = parseUnary();
+        while (isPunctuator("*") || isPunctuator("/") || isPunctuator("%")) {
+            String operator = text;
+            next();
+            left = new Node.Binary(operator, left, parseUnary());
+        }
+        return left;
+    }
+
+    private Node parseUnary() {
+        if (isPunctuator("!") || isPunctuator("-") || isPunctuator("+")) {
+            String operator = text;
+            next();
+            return new Node.Unary(operator, parseUnary());
+        }
+        if (type == NAME && text.equals("typeof")) {
+            next();
+            Node operand = parseUnary();
+            if (operand instanceof Node.Variable) {
+                return new Node.TypeOfVariable(((Node.Variable) operand).name);
+            }
+            return new Node.Unary("typeof", operand);
+        }
+        return parsePostfix();
+    }
+
+    private Node parsePostfix() {
+        Node node = parsePrimary();
+        while (true) {
+            if (isPunctuator(".")) {
+                next();
+                if (type != NAME) {
+                    throw error("Expected property name");
+                }
+                String name = text;
+                next();
+                boolean math = node instanceof Node.MathObject;
+                if (isPunctuator("(")) {
+                    if (!(math ? MATH_METHODS : METHODS).contains(name)) {
+                        throw error("Unsupported method " + name);
+                    }
+                    node = new Node.MethodCall(node, name, parseArguments());
+                } else {
+                    if (math && !MATH_CONSTANTS.contains(name)) {
+                        throw error("Unsupported property Math." + name);
+                    }
+                    node = new Node.Member(node, name);
+                }
+            } else if (isPunctuator("[")) {
+                if (node instanceof Node.MathObject) {
+                    throw error("Unsupported property of Math");
+                }
+                next();
+                Node key = parseConditional();
+                expect("]");
+                node = new Node.Index(node, key);
+            } else if (isPunctuator("(")) {
+                throw error("Unsupported call");
+            } else {
+                return node;
+            }
+        }
+    }
+
+    private Node[] parseArguments() {
+        expect("(");
+        List<Node> arguments = new ArrayList<>();
+        if (!isPunctuator(")")) {
+            arguments.add(parseConditional());
+            while (isPunctuator(",")) {
+                next();
+                arguments.add(parseConditional());
+            }
+        }
+        expect(")");
+        return arguments.toArray(new Node[0]);
+    }
+
+    private Node parsePrimary() {
+        switch (type) {
+            case NUMBER:
+            case STRING: {
+                Object literal = value;
+                next();
+                return new Node.Literal(literal);
+            }
+            case NAME: {
+                String name = text;
+                next();
+                switch (name) {
+                    case "true":
+                        return new Node.Literal(Boolean.TRUE);
+                    case "false":
+                        return new Node.Literal(Boolean.FALSE);
+                    case "null":
+                        return new Node.Literal(null);
+                    case "undefined":
+                        return new Node.Literal(ExpressionRuntime.UNDEFINED);
+                    case "NaN":
+                        return new Node.Literal(Double.NaN);
+                    case "Infinity":
+                        return new Node.Literal(Double.POSITIVE_INFINITY);
+                    case "this":
+                    case "data":
+                        return new Node.Root();
+                    case "Math":
+                        return new Node.MathObject();
+                }
+                if (RESERVED.contains(name)) {
+                    throw error("Unsupported keyword " + name);
+                }
+                if (isPunctuator("(")) {
+                    if (!FUNCTIONS.contains(name)) {
+                        throw error("Unsupported function " + name);
+                    }
+                    return new Node.Call(name, parseArguments());
+                }
+                return new Node.Variable(name);
+            }
+            case PUNCTUATOR:
+                if (text.equals("(")) {
+                    next();
+                    Node node = parseConditional();
+                    expect(")");
+                    return node;
+                }
+                break;
+        }
+        throw error(type == EOF ? "Unexpected end of expression" : "Unexpected token " + text);
+    }
+
+    // 读取下一个 token
+    private void next() {
+        int length = source.length();
+        while (pos < length && Character.isWhitespace(source.charAt(pos))) {
+            pos++;
+        }
+        value = null;
+        if (pos >= length) {
+            type = EOF;
+            text = "";
+            return;
+        }
+        int start = pos;
+        char c = source.charAt(pos);
+        if (Character.isDigit(c) || (c == '.' && pos + 1 < length && Character.isDigit(source.charAt(pos + 1)))) {
+            readNumber();
+        } else if (c == '\'' || c == '"') {
+            readString(c);
+        } else if (Character.isJavaIdentifierStart(c)) {
+            while (pos < length && Character.isJavaIdentifierPart(source.charAt(pos))) {
+                pos++;
+            }
+            type = NAME;
+            text = source.substring(start, pos);
+        } else {
+            readPunctuator();
+        }
+    }
+
+    private void readNumber() {
+        int start = pos;
+        int length = source.length();
+        if (source.startsWith("0x", pos) || source.startsWith("0X", pos)) {
+            pos += 2;
+            while (pos < length && Character.digit(source.charAt(pos), 16) >= 0) {
+                pos++;
+            }
+            value = (double) Long.parseLong(source.substring(start + 2, pos), 16);
+        } else {
+            while (pos < length && Character.isDigit(source.charAt(pos))) {
+                pos++;
+            }
+            if (pos < length && source.charAt(pos) == '.') {
+                pos++;
+                while (pos < length && Character.isDigit(source.charAt(pos))) {
+                    pos++;
+                }
+            }
+            if (pos < length && (source.charAt(pos) == 'e' || source.charAt(pos) == 'E')) {
+                pos++;
+                if (pos < length && (source.charAt(pos) == '+' || source.charAt(pos) == '-')) {
+                    pos++;
+                }
+                while (pos < length && Character.isDigit(source.charAt(pos))) {
+                    pos++;
+                }
+            }
+            try {
+                value = Double.parseDouble(source.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+        if (pos < length && Character.isJavaIdentifierStart(source.charAt(pos))) {
+            throw error("Invalid number");
+        }
+        type = NUMBER;
+        text = source.substring(start, pos);
+    }
+
+    private void readString(char quote) {
+        int start = pos;
+        pos++;
+        StringBuilder sb = new StringBuilder();
+        int length = source.length();
+        while (true) {
+            if (pos >= length) {
+                throw error("Unterminated string");
+            }
+            char c = source.charAt(pos++);
+            if (c == quote) {
+                break;
+            }
+            if (c == '\\') {
+                if (pos >= length) {
+                    throw error("Unterminated string");
+                }
+                char escaped = source.charAt(pos++);
+                switch (escaped) {
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'v':
+                        sb.append('\u000B');
+                        break;
+                    case '0':
+                        sb.append('\0');
+                        break;
+                    case 'u':
+                        if (pos + 4 > length) {
+                            throw error("Invalid unicode escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(source.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Invalid unicode escape");
+                        }
+                        pos += 4;
+                        break;
+                    case 'x':
+                        throw error("Unsupported escape");
+                    default:
+                        sb.append(escaped);
+                }
+            } else if (c == '\n' || c == '\r') {
+                throw error("Unterminated string");
+            } else {
+                sb.append(c);
+            }
+        }
+        type = STRING;
+        text = source.substring(start, pos);
+        value = sb.toString();
+    }
+
+    private static final String[] PUNCTUATORS = {
+            "===", "!==", "==", "!=", "<=", ">=", "&&", "||",
+            "(", ")", "[", "]", ".", ",", "?", ":", "!", "<", ">", "+", "-", "*", "/", "%"
+    };
+
+    private void readPunctuator() {
+        for (String p : PUNCTUATORS) {
+            if (source.startsWith(p, pos)) {
+                // 类似 ++、=> 这样的写法不支持
+                int end = pos + p.length();
+                if (end < source.length()) {
+                    char following = source.charAt(end);
+                    if ((p.equals("+") && following == '+') || (p.equals("-") && following == '-')) {
+                        break;
+                    }
+                }
+                type = PUNCTUATOR;
+                text = p;
+                pos = end;
+                return;
+            }
+        }
+        throw error("Unexpected character " + source.charAt(pos));
+    }
+}
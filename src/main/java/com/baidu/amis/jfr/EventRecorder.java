@@ -0,0 +1,48 @@
+package com.baidu.amis.jfr;
+
+/**
+ * 事件的具体实现，隔离对 jdk.jfr 的引用
+ */
+interface EventRecorder {
+
+    EventRecorder NOOP = new EventRecorder() {
+        @Override
+        public Object beginValidation() {
+            return null;
+        }
+
+        @Override
+        public void endValidation(Object event, String formName, int fieldCount, int violationCount) {
+        }
+
+        @Override
+        public Object beginScript() {
+            return null;
+        }
+
+        @Override
+        public void endScript(Object event, String script, boolean success) {
+        }
+
+        @Override
+        public Object beginParse() {
+            return null;
+        }
+
+        @Override
+        public void endParse(Object event, boolean success) {
+        }
+    };
+
+    Object beginValidation();
+
+    void endValidation(Object event, String formName, int fieldCount, int violationCount);
+
+    Object beginScript();
+
+    void endScript(Object event, String script, boolean success);
+
+    Object beginParse();
+
+    void endParse(Object event, boolean success);
+}
@@ -0,0 +1,77 @@
+package com.baidu.amis.jfr;
+
+/**
+ * 基于 jdk.jfr 的实现，只有运行时有 jdk.jfr 时才会加载
+ * 事件没有开启时 begin 返回 null，不会创建事件对象
+ */
+final class JfrEventRecorder implements EventRecorder {
+
+    // 用来查询事件是否开启，开启状态由 JFR 维护，录制开始或结束时会自动变化
+    private final ValidationEvent validationProbe = new ValidationEvent();
+    private final ScriptEvent scriptProbe = new ScriptEvent();
+    private final ParseEvent parseProbe = new ParseEvent();
+
+    @Override
+    public Object beginValidation() {
+        if (!validationProbe.isEnabled()) {
+            return null;
+        }
+        ValidationEvent event = new ValidationEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endValidation(Object event, String formName, int fieldCount, int violationCount) {
+        ValidationEvent validationEvent = (ValidationEvent) event;
+        validationEvent.end();
+        if (validationEvent.shouldCommit()) {
+            validationEvent.formName = formName;
+            validationEvent.fieldCount = fieldCount;
+            validationEvent.violationCount = violationCount;
+            validationEvent.commit();
+        }
+    }
+
+    @Override
+    public Object beginScript() {
+        if (!scriptProbe.isEnabled()) {
+            return null;
+        }
+        ScriptEvent event = new ScriptEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endScript(Object event, String script, boolean success) {
+        ScriptEvent scriptEvent = (ScriptEvent) event;
+        scriptEvent.end();
+        if (scriptEvent.shouldCommit()) {
+            scriptEvent.expressionHash = script.hashCode();
+            scriptEvent.expressionLength = script.length();
+            scriptEvent.success = success;
+            scriptEvent.commit();
+        }
+    }
+
+    @Override
+    public Object beginParse() {
+        if (!parseProbe.isEnabled()) {
+            return null;
+        }
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void endParse(Object event, boolean success) {
+        ParseEvent parseEvent = (ParseEvent) event;
+        parseEvent.end();
+        if (parseEvent.shouldCommit()) {
+            parseEvent.success = success;
+            parseEvent.commit();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.baidu.amis.jfr;
+
+/**
+ * 发送 JFR 事件，事件定义见 {@link ValidationEvent}、{@link ScriptEvent}、{@link ParseEvent}
+ * 运行时没有 jdk.jfr 时什么都不做，所以可以在 Java 8 的早期版本上使用
+ * 是否记录、阈值、是否带调用栈都通过正常的 JFR 配置控制，比如：
+ *
+ * <pre>
+ * java -XX:StartFlightRecording=settings=profile,filename=app.jfr ...
+ * </pre>
+ *
+ * begin 返回的是事件对象，没有 JFR 时返回 null，调用方不需要关心具体类型，原样传给对应的 end 即可
+ */
+public final class JfrEvents {
+
+    private static final EventRecorder RECORDER = createRecorder();
+
+    private JfrEvents() {
+    }
+
+    /**
+     * 运行时是否支持 JFR
+     */
+    public static boolean isAvailable() {
+        return RECORDER != EventRecorder.NOOP;
+    }
+
+    public static Object beginValidation() {
+        return RECORDER.beginValidation();
+    }
+
+    /**
+     * @param event          {@link #beginValidation()} 的返回值
+     * @param formName       表单名
+     * @param fieldCount     表单项个数
+     * @param violationCount 违反的规则数
+     */
+    public static void endValidation(Object event, String formName, int fieldCount, int violationCount) {
+        if (event != null) {
+            RECORDER.endValidation(event, formName, fieldCount, violationCount);
+        }
+    }
+
+    public static Object beginScript() {
+        return RECORDER.beginScript();
+    }
+
+    /**
+     * @param event   {@link #beginScript()} 的返回值
+     * @param script  执行的脚本，事件中只记录它的 hashCode 和长度
+     * @param success 是否正常执行
+     */
+    public static void endScript(Object event, String script, boolean success) {
+        if (event != null) {
+            RECORDER.endScript(event, script, success);
+        }
+    }
+
+    public static Object beginParse() {
+        return RECORDER.beginParse();
+    }
+
+    /**
+     * @param event   {@link #beginParse()} 的返回值
+     * @param success 是否解析成功
+     */
+    public static void endParse(Object event, boolean success) {
+        if (event != null) {
+            RECORDER.endParse(event, success);
+        }
+    }
+
+    // 和 Script 中检测 GraalJS 一样，有 jdk.jfr 时才加载引用了它的类，除了 JfrEventRecorder 和事件类，其它类都不能直接引用 jdk.jfr
+    // 构建时 JDK 没有 jdk.jfr 的话这几个类不会被编译，见 build.gradle.kts，这时加载 JfrEventRecorder 会失败，同样退化为空实现
+    private static EventRecorder createRecorder() {
+        try {
+            Class<?> flightRecorder = Class.forName("jdk.jfr.FlightRecorder");
+            // 有 jdk.jfr 但是 JVM 关闭了 JFR 时也不需要创建事件
+            if (!(Boolean) flightRecorder.getMethod("isAvailable").invoke(null)) {
+                return EventRecorder.NOOP;
+            }
+            return (EventRecorder) Class.forName("com.baidu.amis.jfr.JfrEventRecorder")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError | SecurityException e) {
+            return EventRecorder.NOOP;
+        }
+    }
+}
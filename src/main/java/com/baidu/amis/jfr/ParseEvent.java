@@ -0,0 +1,17 @@
+package com.baidu.amis.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 通过 JSONHelper 解析一次 JSON
+ */
+@Name("com.baidu.amis.JsonParse")
+@Label("JSON Parse")
+@Category({"amis", "JSON"})
+class ParseEvent extends jdk.jfr.Event {
+
+    @Label("Success")
+    boolean success;
+}
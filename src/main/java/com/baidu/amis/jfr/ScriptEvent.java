@@ -0,0 +1,25 @@
+package com.baidu.amis.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 执行一次脚本，只记录脚本的 hashCode 和长度，避免把表达式原文写进录制文件
+ */
+@Name("com.baidu.amis.ScriptEval")
+@Label("Script Evaluation")
+@Category({"amis", "Script"})
+@Description("Evaluation of a requireOn/visibleOn/hiddenOn or form rule expression by the script engine")
+class ScriptEvent extends jdk.jfr.Event {
+
+    @Label("Expression Hash")
+    int expressionHash;
+
+    @Label("Expression Length")
+    int expressionLength;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,25 @@
+package com.baidu.amis.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * 校验一次表单
+ */
+@Name("com.baidu.amis.Validation")
+@Label("Form Validation")
+@Category({"amis", "Validation"})
+@Description("Validation of one form submission, including rules and scripts")
+class ValidationEvent extends jdk.jfr.Event {
+
+    @Label("Form Name")
+    String formName;
+
+    @Label("Field Count")
+    int fieldCount;
+
+    @Label("Violation Count")
+    int violationCount;
+}
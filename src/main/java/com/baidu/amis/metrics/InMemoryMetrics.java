@@ -0,0 +1,219 @@
+package com.baidu.amis.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 保存在内存中的指标，计数都用 LongAdder，多核并发写入时不会互相争抢
+ * 按名字分别统计次数、失败次数、耗时及耗时分布，名字的格式是：
+ * <ul>
+ *     <li>rule.规则名，比如 rule.isEmail，失败是指规则没有通过</li>
+ *     <li>form.表单名，失败是指有违反的规则</li>
+ *     <li>script，失败是指脚本报错</li>
+ *     <li>script.budget.超出的预算，比如 script.budget.expression_timeout，都算作失败</li>
+ *     <li>parse，失败是指 JSON 格式错误</li>
+ * </ul>
+ */
+public class InMemoryMetrics implements MetricsListener {
+
+    // 耗时分布按 2 的幂分桶，第 i 个桶的上限是 2^i 纳秒
+    private static final int BUCKETS = 64;
+
+    private final ConcurrentHashMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+
+    @Override
+    public void onRule(String rule, long nanos, boolean passed) {
+        record("rule." + rule, nanos, !passed);
+    }
+
+    @Override
+    public void onForm(String form, long nanos, int violations) {
+        record("form." + form, nanos, violations > 0);
+    }
+
+    @Override
+    public void onScript(long nanos, boolean success) {
+        record("script", nanos, !success);
+    }
+
+    @Override
+    public void onScriptBudgetExceeded(String kind, long nanos) {
+        record("script.budget." + kind.toLowerCase(), nanos, true);
+    }
+
+    @Override
+    public void onParse(long nanos, boolean success) {
+        record("parse", nanos, !success);
+    }
+
+    /**
+     * 记录一次耗时，也可以用来统计自定义的指标
+     *
+     * @param name    指标名
+     * @param nanos   耗时
+     * @param failure 是否算作失败
+     */
+    public void record(String name, long nanos, boolean failure) {
+        Recorder recorder = recorders.get(name);
+        if (recorder == null) {
+            recorder = recorders.computeIfAbsent(name, key -> new Recorder());
+        }
+        recorder.record(nanos, failure);
+    }
+
+    /**
+     * 当前所有指标的快照，按名字排序
+     */
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> result = new TreeMap<>();
+        for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * 单个指标的快照
+     *
+     * @return 没有这个指标时返回 null
+     */
+    public Snapshot snapshot(String name) {
+        Recorder recorder = recorders.get(name);
+        return recorder == null ? null : recorder.snapshot();
+    }
+
+    /**
+     * 清空所有指标
+     */
+    public void reset() {
+        recorders.clear();
+    }
+
+    /**
+     * 输出成文本，每个指标一行，耗时单位是微秒
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Snapshot> entry : snapshot().entrySet()) {
+            sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // 单个指标的计数器
+    private static final class Recorder {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder failureCount = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+        private Recorder() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos, boolean failure) {
+            count.increment();
+            if (failure) {
+                failureCount.increment();
+            }
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            buckets[bucketOf(nanos)].increment();
+        }
+
+        private Snapshot snapshot() {
+            long[] counts = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return new Snapshot(count.sum(), failureCount.sum(), totalNanos.sum(), maxNanos.get(), counts);
+        }
+    }
+
+    // 大于 2^(i-1) 且不超过 2^i 的耗时落在第 i 个桶
+    private static int bucketOf(long nanos) {
+        if (nanos <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos - 1));
+    }
+
+    /**
+     * 指标的快照，各个计数是分别读取的，并发写入时相互之间可能有细微的出入
+     */
+    public static final class Snapshot {
+        private final long count;
+        private final long failureCount;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] buckets;
+
+        private Snapshot(long count, long failureCount, long totalNanos, long maxNanos, long[] buckets) {
+            this.count = count;
+            this.failureCount = failureCount;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailureCount() {
+            return failureCount;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        /**
+         * 耗时的分位数，返回所在桶的上限，所以是一个不超过 2 倍的估计值
+         *
+         * @param quantile 0 到 1 之间，比如 0.99
+         */
+        public long getPercentileNanos(double quantile) {
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(total * quantile));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return Math.min(1L << Math.min(i, 62), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                    + " failures=" + failureCount
+                    + " mean=" + getMeanNanos() / 1000.0
+                    + " p50=" + getPercentileNanos(0.5) / 1000.0
+                    + " p99=" + getPercentileNanos(0.99) / 1000.0
+                    + " max=" + maxNanos / 1000.0;
+        }
+    }
+}
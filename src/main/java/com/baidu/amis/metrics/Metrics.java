@@ -0,0 +1,35 @@
+package com.baidu.amis.metrics;
+
+import java.util.Objects;
+
+/**
+ * 全局的指标上报入口，默认是 {@link MetricsListener#NOOP}
+ *
+ * <pre>
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * Metrics.set(metrics);
+ * ...
+ * System.out.println(metrics.dump());
+ * </pre>
+ */
+public final class Metrics {
+
+    private static volatile MetricsListener listener = MetricsListener.NOOP;
+
+    private Metrics() {
+    }
+
+    /**
+     * 当前的实现，热点路径上应该先取到局部变量，再判断 {@link MetricsListener#isEnabled()}
+     */
+    public static MetricsListener get() {
+        return listener;
+    }
+
+    /**
+     * 替换全局的实现，传入 {@link MetricsListener#NOOP} 就是关闭统计
+     */
+    public static void set(MetricsListener metricsListener) {
+        listener = Objects.requireNonNull(metricsListener);
+    }
+}
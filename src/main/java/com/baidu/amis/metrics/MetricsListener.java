@@ -0,0 +1,72 @@
+package com.baidu.amis.metrics;
+
+/**
+ * 校验过程中的指标上报接口，通过 {@link Metrics#set(MetricsListener)} 注册
+ * 所有方法默认什么都不做，只需要实现关心的部分；回调在校验线程中同步执行，实现需要线程安全并且尽量轻量
+ */
+public interface MetricsListener {
+
+    /**
+     * 默认的实现，关闭所有统计，校验时连计时都不会做
+     */
+    MetricsListener NOOP = new MetricsListener() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+    };
+
+    /**
+     * 返回 false 时不会计时也不会回调
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * 执行了一条校验规则
+     *
+     * @param rule   规则名，比如 isEmail、matchRegexp
+     * @param nanos  耗时
+     * @param passed 是否通过
+     */
+    default void onRule(String rule, long nanos, boolean passed) {
+    }
+
+    /**
+     * 校验完一个表单
+     *
+     * @param form       表单名，没有配置 name 的表单是空字符串
+     * @param nanos      耗时，包括其中所有规则和脚本的执行
+     * @param violations 违反的规则数
+     */
+    default void onForm(String form, long nanos, int violations) {
+    }
+
+    /**
+     * 执行了一次脚本
+     *
+     * @param nanos   耗时
+     * @param success 是否正常执行，脚本报错时为 false
+     */
+    default void onScript(long nanos, boolean success) {
+    }
+
+    /**
+     * 脚本超出预算被中止，这时 {@link #onScript(long, boolean)} 也会以失败回调一次
+     *
+     * @param kind  超出的预算，见 ScriptBudgetExceededException.Kind，比如 EXPRESSION_TIMEOUT
+     * @param nanos 从开始执行到被中止的耗时
+     */
+    default void onScriptBudgetExceeded(String kind, long nanos) {
+    }
+
+    /**
+     * 解析了一次 JSON
+     *
+     * @param nanos   耗时
+     * @param success 是否解析成功
+     */
+    default void onParse(long nanos, boolean success) {
+    }
+}
@@ -0,0 +1,210 @@
+package com.baidu.amis.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * 有容量上限的近似 LRU 缓存，同时支持按条目数和按权重淘汰，用于缓存解析好的 schema 等比较占内存的对象
+ * 读不加锁，只在缓存项上记下最近访问的时间，每次请求都会读缓存，不能让所有请求线程争同一把锁；
+ * 写入、删除在一把锁里完成，超出上限时按访问时间从早到晚淘汰，写入只在未命中时发生，所以淘汰时扫描整个缓存的开销可以接受
+ *
+ * @param <K> 键
+ * @param <V> 值
+ */
+public class BoundedCache<K, V> {
+
+    /**
+     * 用于计算每个缓存项的权重，比如 schema 的字符数
+     */
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        long weigh(K key, V value);
+    }
+
+    private final int maxEntries;
+
+    private final long maxWeight;
+
+    private final Weigher<K, V> weigher;
+
+    // 访问时间的精度，同一个缓存项在这个时间内被多次读取时只记一次，避免热点项所在的缓存行在 CPU 之间来回同步
+    private static final long ACCESS_RESOLUTION_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // 只在 this 上加锁时修改
+    private final ConcurrentHashMap<K, Entry<V>> map = new ConcurrentHashMap<>();
+
+    // 由 this 保护
+    private long totalWeight = 0;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * 只按条目数淘汰
+     *
+     * @param maxEntries 最多缓存多少项
+     */
+    public BoundedCache(int maxEntries) {
+        this(maxEntries, Long.MAX_VALUE, (key, value) -> 1);
+    }
+
+    /**
+     * @param maxEntries 最多缓存多少项
+     * @param maxWeight  所有缓存项的权重之和上限
+     * @param weigher    权重计算方法
+     */
+    public BoundedCache(int maxEntries, long maxWeight, Weigher<K, V> weigher) {
+        if (maxEntries <= 0 || maxWeight <= 0) {
+            throw new IllegalArgumentException("maxEntries and maxWeight must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * 读取缓存，会记录命中和未命中次数
+     *
+     * @return 没有缓存时返回 null
+     */
+    public V get(K key) {
+        Entry<V> entry = map.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        long now = System.nanoTime();
+        if (now - entry.accessed > ACCESS_RESOLUTION_NANOS) {
+            entry.accessed = now;
+        }
+        return entry.value;
+    }
+
+    /**
+     * 写入缓存，如果超出上限会淘汰最久没访问的项
+     * 单项权重超过上限的不会缓存
+     */
+    public void put(K key, V value) {
+        long weight = weigher.weigh(key, value);
+        if (weight > maxWeight) {
+            return;
+        }
+        synchronized (this) {
+            Entry<V> old = map.put(key, new Entry<>(value, weight));
+            if (old != null) {
+                totalWeight -= old.weight;
+            }
+            totalWeight += weight;
+            evict(key);
+        }
+    }
+
+    // 按访问时间从早到晚淘汰，直到满足上限为止，刚写入的项不会被淘汰
+    private void evict(K written) {
+        if (map.size() <= maxEntries && totalWeight <= maxWeight) {
+            return;
+        }
+        // 排序时访问时间还可能被读线程更新，先记下来再排序，保证比较的结果前后一致
+        List<Candidate<K, V>> candidates = new ArrayList<>(map.size());
+        for (Map.Entry<K, Entry<V>> entry : map.entrySet()) {
+            if (!entry.getKey().equals(written)) {
+                candidates.add(new Candidate<>(entry.getKey(), entry.getValue()));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.accessed));
+        for (int i = 0; i < candidates.size() && (map.size() > maxEntries || totalWeight > maxWeight); i++) {
+            Candidate<K, V> eldest = candidates.get(i);
+            map.remove(eldest.key);
+            totalWeight -= eldest.entry.weight;
+            evictionCount.increment();
+        }
+    }
+
+    /**
+     * 删除某一项
+     */
+    public synchronized void invalidate(K key) {
+        Entry<V> old = map.remove(key);
+        if (old != null) {
+            totalWeight -= old.weight;
+        }
+    }
+
+    /**
+     * 删除所有符合条件的项
+     */
+    public synchronized void invalidateIf(Predicate<K> predicate) {
+        for (Map.Entry<K, Entry<V>> entry : map.entrySet()) {
+            if (predicate.test(entry.getKey())) {
+                map.remove(entry.getKey());
+                totalWeight -= entry.getValue().weight;
+            }
+        }
+    }
+
+    /**
+     * 清空缓存，统计数据不会清空
+     */
+    public synchronized void invalidateAll() {
+        map.clear();
+        totalWeight = 0;
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public synchronized long weight() {
+        return totalWeight;
+    }
+
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+
+    // 淘汰时的候选项
+    private static final class Candidate<K, V> {
+        private final K key;
+        private final Entry<V> entry;
+        private final long accessed;
+
+        private Candidate(K key, Entry<V> entry) {
+            this.key = key;
+            this.entry = entry;
+            this.accessed = entry.accessed;
+        }
+    }
+
+    // 缓存值、它的权重和最近访问时间
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+
+        // System.nanoTime()，读线程不加锁更新
+        private volatile long accessed;
+
+        private Entry(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+            this.accessed = System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.baidu.amis.util;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于 ConcurrentHashMap 的有上限缓存，读不加锁，适合在校验过程中被大量线程同时读取的小对象，比如编译好的正则
+ * 和 {@link BoundedCache} 不同，不记录访问时间也不支持权重，超出上限时按写入顺序淘汰最早写入的项（FIFO），适合重新计算不贵的小对象
+ *
+ * @param <K> 键
+ * @param <V> 值
+ */
+public class ConcurrentCache<K, V> {
+
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<K, V> map = new ConcurrentHashMap<>();
+
+    // 键的写入顺序，淘汰时从队首取，读的时候不需要维护
+    private final ConcurrentLinkedQueue<K> order = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param maxEntries 最多缓存多少项
+     */
+    public ConcurrentCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * 读取缓存，会记录命中和未命中次数
+     *
+     * @return 没有缓存时返回 null
+     */
+    public V get(K key) {
+        V value = map.get(key);
+        if (value == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 写入缓存，已经有这一项时保留原来的值，超出上限时淘汰最早写入的项
+     *
+     * @return 缓存中的值，多个线程同时写入同一个键时大家拿到的是同一个对象
+     */
+    public V put(K key, V value) {
+        V old = map.putIfAbsent(key, value);
+        if (old != null) {
+            return old;
+        }
+        order.add(key);
+        // 并发写入时可能短暂超出上限，下一次写入时会继续淘汰
+        while (map.size() > maxEntries) {
+            K eldest = order.poll();
+            if (eldest == null || eldest.equals(key)) {
+                // 和 invalidate 并发时队列可能漏掉个别键，这时退回到按遍历顺序淘汰
+                if (eldest != null) {
+                    order.add(eldest);
+                }
+                evictAny(key);
+                break;
+            }
+            if (map.remove(eldest) != null) {
+                evictionCount.increment();
+            }
+        }
+        return value;
+    }
+
+    private void evictAny(K keep) {
+        Iterator<K> it = map.keySet().iterator();
+        while (map.size() > maxEntries && it.hasNext()) {
+            K candidate = it.next();
+            if (!candidate.equals(keep) && map.remove(candidate) != null) {
+                order.remove(candidate);
+                evictionCount.increment();
+            }
+        }
+    }
+
+    /**
+     * 删除某一项
+     */
+    public void invalidate(K key) {
+        if (map.remove(key) != null) {
+            order.remove(key);
+        }
+    }
+
+    /**
+     * 清空缓存，统计数据不会清空
+     */
+    public void invalidateAll() {
+        map.clear();
+        order.clear();
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    public long evictionCount() {
+        return evictionCount.sum();
+    }
+}
@@ -0,0 +1,552 @@
+package com.baidu.amis.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.ResourceLimits;
+import org.graalvm.polyglot.Source;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
+import org.graalvm.polyglot.proxy.ProxyObject;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 基于 GraalJS 的脚本执行，支持 es6 以上的语法，和前端保持一致
+ * 所有 Context 共用一个 Engine，这样同一段脚本解析和编译后的结果可以在 Context 之间共享
+ * Context 不是线程安全的，所以放在一个有上限的池子里，每次执行时借出一个，用完再还回去
+ * 还回去之前会把全局变量恢复成创建时的样子：删掉新增的变量，和内置全局变量同名的数据字段（比如 print、escape）换回原来的值，
+ * 脚本对内置全局变量的赋值也会被撤销；Math、Array.prototype 这些内置对象在创建 Context 时就被冻结了，脚本不能修改，
+ * 这样上一个请求的数据和脚本留下的状态不会被下一个请求看到
+ * 数据只按脚本中出现的名字放进全局变量，见 {@link ScriptIdentifiers}，不会在每次执行时遍历整个表单数据
+ * 配置了 {@link ScriptBudget} 的时间预算时，超时后在 watchdog 线程中取消 Context，脚本直接在当前线程执行，不需要切换线程
+ * 还可以限制单个表达式执行的语句数，用来拦截死循环，超出预算被中止的 Context 不能再使用，会被丢弃
+ * 使用时需要自行添加 org.graalvm.js:js 依赖
+ */
+public class GraalScriptBackend implements ScriptBackend, AutoCloseable {
+
+    public static final int DEFAULT_SOURCE_CACHE_SIZE = 1024;
+
+    // 等待空闲 Context 时每隔多久重新检查一次
+    private static final long BORROW_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // 记下创建时的全局变量并冻结内置对象，返回用来恢复全局变量的函数，这个函数本身不会出现在全局变量中
+    private static final String RESET_SCRIPT = String.join("\n",
+            "(function (global) {",
+            "  var saved = Object.create(null);",
+            "  Object.getOwnPropertyNames(global).forEach(function (name) {",
+            "    saved[name] = Object.getOwnPropertyDescriptor(global, name);",
+            "  });",
+            "  var frozen = new Set();",
+            "  function freeze(value) {",
+            "    if (value === null || value === global || (typeof value !== 'object' && typeof value !== 'function')",
+            "        || frozen.has(value)) {",
+            "      return;",
+            "    }",
+            "    frozen.add(value);",
+            "    try {",
+            "      Object.freeze(value);",
+            "    } catch (e) {",
+            "      return;",
+            "    }",
+            "    Object.getOwnPropertyNames(value).forEach(function (key) {",
+            "      var descriptor = Object.getOwnPropertyDescriptor(value, key);",
+            "      if (descriptor && 'value' in descriptor) {",
+            "        freeze(descriptor.value);",
+            "      } else if (descriptor) {",
+            "        freeze(descriptor.get);",
+            "        freeze(descriptor.set);",
+            "      }",
+            "    });",
+            "    freeze(Object.getPrototypeOf(value));",
+            "  }",
+            "  for (var name in saved) {",
+            "    freeze(saved[name].value);",
+            "  }",
+            "  return function () {",
+            "    var clean = true;",
+            "    Object.getOwnPropertyNames(global).forEach(function (name) {",
+            "      if (!(name in saved) && !delete global[name]) {",
+            "        clean = false;",
+            "      }",
+            "    });",
+            "    for (var name in saved) {",
+            "      var original = saved[name];",
+            "      var current = Object.getOwnPropertyDescriptor(global, name);",
+            "      if (current && ('value' in original ? Object.is(current.value, original.value)",
+            "          : current.get === original.get && current.set === original.set)) {",
+            "        continue;",
+            "      }",
+            "      try {",
+            "        Object.defineProperty(global, name, original);",
+            "      } catch (e) {",
+            "        clean = false;",
+            "      }",
+            "    }",
+            "    return clean;",
+            "  };",
+            "})(globalThis)");
+
+    // 所有实例共用的超时检查线程
+    private static final ScheduledThreadPoolExecutor WATCHDOG = createWatchdog();
+
+    private final Engine engine;
+
+    private final int maxContexts;
+
+    private final BlockingQueue<PooledContext> idleContexts;
+
+    // 已经创建的 Context 数量
+    private final AtomicInteger createdContexts = new AtomicInteger();
+
+    private final BoundedCache<String, PreparedScript> sources;
+
+    // 单个表达式最多执行多少条语句，0 表示不限制
+    private final long statementLimit;
+
+    /**
+     * 使用默认配置，Context 数量上限等于 CPU 核数
+     */
+    public GraalScriptBackend() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_SOURCE_CACHE_SIZE);
+    }
+
+    /**
+     * @param maxContexts     最多创建多少个 Context，同时执行的脚本超过这个数时会等待
+     * @param sourceCacheSize 缓存多少个脚本的 Source
+     */
+    public GraalScriptBackend(int maxContexts, int sourceCacheSize) {
+        this(maxContexts, sourceCacheSize, 0);
+    }
+
+    /**
+     * @param maxContexts     最多创建多少个 Context，同时执行的脚本超过这个数时会等待
+     * @param sourceCacheSize 缓存多少个脚本的 Source
+     * @param statementLimit  单个表达式最多执行多少条语句，超出时抛出 {@link ScriptBudgetExceededException}，0 表示不限制
+     */
+    public GraalScriptBackend(int maxContexts, int sourceCacheSize, long statementLimit) {
+        if (statementLimit < 0) {
+            throw new IllegalArgumentException("statementLimit must not be negative");
+        }
+        this.engine = Engine.newBuilder().option("engine.WarnInterpreterOnly", "false").build();
+        this.maxContexts = maxContexts;
+        this.idleContexts = new ArrayBlockingQueue<>(maxContexts);
+        this.sources = new BoundedCache<>(sourceCacheSize);
+        this.statementLimit = statementLimit;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return engine.getLanguages().containsKey("js");
+    }
+
+    @Override
+    public boolean eval(String script, SimpleBindings dataBindings) throws ScriptException {
+        PreparedScript source = getSource(script);
+        PooledContext context = borrowContext(script, false, 0);
+        boolean usable = true;
+        try {
+            return eval(context, source, dataBindings);
+        } catch (PolyglotException e) {
+            usable = !e.isResourceExhausted() && !e.isCancelled();
+            if (e.isResourceExhausted()) {
+                throw new ScriptBudgetExceededException(ScriptBudgetExceededException.Kind.STATEMENT_LIMIT, script);
+            }
+            throw new ScriptException(e.getMessage());
+        } finally {
+            returnContext(context, usable);
+        }
+    }
+
+    /**
+     * 超时后取消正在执行的 Context，取消在 watchdog 线程中进行，脚本仍然在当前线程执行
+     * 等待空闲 Context 的时间也算在内，等到超时时抛出 {@link ScriptBudgetExceededException}
+     */
+    @Override
+    public boolean eval(String script, SimpleBindings dataBindings, long timeoutNanos)
+            throws ScriptException, TimeoutException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        PreparedScript source = getSource(script);
+        PooledContext context = borrowContext(script, true, deadline);
+        Watch watch = new Watch(context.context);
+        ScheduledFuture<?> timer = WATCHDOG.schedule(watch, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        boolean usable = true;
+        try {
+            return eval(context, source, dataBindings);
+        } catch (PolyglotException e) {
+            if (!watch.finish()) {
+                throw new TimeoutException(script);
+            }
+            usable = !e.isResourceExhausted() && !e.isCancelled();
+            if (e.isResourceExhausted()) {
+                throw new ScriptBudgetExceededException(ScriptBudgetExceededException.Kind.STATEMENT_LIMIT, script);
+            }
+            throw new ScriptException(e.getMessage());
+        } finally {
+            timer.cancel(false);
+            // 超时的 Context 已经被取消了，不能再放回池子
+            returnContext(context, watch.finish() && usable);
+        }
+    }
+
+    // 只把脚本中出现的名字放进全局变量，值也是按需读取的代理，不会遍历整个表单数据
+    private boolean eval(PooledContext pooled, PreparedScript script, SimpleBindings dataBindings) {
+        if (statementLimit > 0) {
+            pooled.context.resetLimits();
+        }
+        for (String name : script.names) {
+            if (dataBindings.containsKey(name)) {
+                pooled.bindings.putMember(name, toGuest(dataBindings.get(name)));
+            }
+        }
+        return isTruthy(pooled.context.eval(script.source));
+    }
+
+    // 被取消、超出语句数或者没法清理干净的 Context 不能再使用，直接关闭，让后面的调用重新创建
+    private void returnContext(PooledContext pooled, boolean usable) {
+        if (usable && pooled.reset()) {
+            idleContexts.offer(pooled);
+            return;
+        }
+        createdContexts.decrementAndGet();
+        try {
+            pooled.context.close(true);
+        } catch (PolyglotException | IllegalStateException e) {
+            // 已经关闭了
+        }
+    }
+
+    private PreparedScript getSource(String script) {
+        PreparedScript prepared = sources.get(script);
+        if (prepared == null) {
+            prepared = new PreparedScript(Source.newBuilder("js", script, "amis-expression").cached(true).buildLiteral(),
+                    ScriptIdentifiers.of(script));
+            sources.put(script, prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * 借出一个 Context，都在使用中时等待
+     *
+     * @param timed    是否有截止时间
+     * @param deadline 截止时间，和 System.nanoTime() 比较
+     */
+    private PooledContext borrowContext(String script, boolean timed, long deadline) throws ScriptException {
+        while (true) {
+            PooledContext context = idleContexts.poll();
+            if (context != null) {
+                return context;
+            }
+            if (createdContexts.incrementAndGet() <= maxContexts) {
+                Context.Builder builder = Context.newBuilder("js").engine(engine).allowAllAccess(false);
+                if (statementLimit > 0) {
+                    builder.resourceLimits(ResourceLimits.newBuilder().statementLimit(statementLimit, null).build());
+                }
+                try {
+                    return new PooledContext(builder.build());
+                } catch (RuntimeException e) {
+                    createdContexts.decrementAndGet();
+                    throw e;
+                }
+            }
+            createdContexts.decrementAndGet();
+            long wait = BORROW_RETRY_NANOS;
+            if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new ScriptBudgetExceededException(ScriptBudget.timeoutKind(), script);
+                }
+                wait = Math.min(wait, remaining);
+            }
+            try {
+                // 被丢弃的 Context 不会还回来，所以不能一直等，过一会儿再看看能不能新建
+                context = idleContexts.poll(wait, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ScriptException("interrupted while waiting for script context");
+            }
+            if (context != null) {
+                return context;
+            }
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createWatchdog() {
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "amis-script-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 大部分脚本都会在超时前执行完，取消的定时任务要马上移除，否则会一直堆在队列里
+        watchdog.setRemoveOnCancelPolicy(true);
+        return watchdog;
+    }
+
+    // 解析好的脚本及其中出现的标识符
+    private static final class PreparedScript {
+        private final Source source;
+
+        private final String[] names;
+
+        private PreparedScript(Source source, String[] names) {
+            this.source = source;
+            this.names = names;
+        }
+    }
+
+    // 池子中的 Context 及恢复它的全局变量的函数
+    private static final class PooledContext {
+        private final Context context;
+
+        private final Value bindings;
+
+        private final Value resetFunction;
+
+        private PooledContext(Context context) {
+            this.context = context;
+            this.bindings = context.getBindings("js");
+            this.resetFunction = context.eval("js", RESET_SCRIPT);
+        }
+
+        /**
+         * 把全局变量恢复成创建时的样子，包括这次放进去的数据和脚本中 x = 1、var y、escape = 1 这样的赋值
+         *
+         * @return 有恢复不了的变量时返回 false，比如 var 定义的不可删除的属性，这时 Context 不能再复用
+         */
+        private boolean reset() {
+            try {
+                return resetFunction.execute().asBoolean();
+            } catch (PolyglotException | IllegalStateException | UnsupportedOperationException
+                     | ClassCastException e) {
+                return false;
+            }
+        }
+    }
+
+    // 一次限时执行，执行完和超时只会有一个生效
+    private static final class Watch implements Runnable {
+        private final Context context;
+
+        private boolean finished;
+
+        private boolean timedOut;
+
+        private Watch(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                timedOut = true;
+            }
+            try {
+                context.close(true);
+            } catch (PolyglotException | IllegalStateException e) {
+                // 脚本刚好执行完或者 Context 已经关闭
+            }
+        }
+
+        /**
+         * 结束计时，可以重复调用
+         *
+         * @return 没有超时时返回 true
+         */
+        private synchronized boolean finish() {
+            finished = true;
+            return !timedOut;
+        }
+    }
+
+    // 和 js 的 Boolean() 一致
+    private static boolean isTruthy(Value value) {
+        if (value == null || value.isNull()) {
+            return false;
+        }
+        if (value.isBoolean()) {
+            return value.asBoolean();
+        }
+        if (value.isNumber()) {
+            double d = value.asDouble();
+            return d != 0 && !Double.isNaN(d);
+        }
+        if (value.isString()) {
+            return !value.asString().isEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * 关闭所有空闲的 Context 和共享的 Engine
+     */
+    @Override
+    public void close() {
+        PooledContext pooled;
+        while ((pooled = idleContexts.poll()) != null) {
+            pooled.context.close();
+        }
+        engine.close();
+    }
+
+    /**
+     * 将 Java 中的值转成脚本中可以直接访问的值，对象和数组是按需读取的代理，不会整体拷贝
+     */
+    static Object toGuest(Object value) {
+        if (value instanceof JsonNode) {
+            JsonNode node = (JsonNode) value;
+            switch (node.getNodeType()) {
+                case OBJECT:
+                    return new JsonObjectProxy(node);
+                case ARRAY:
+                    return new JsonArrayProxy(node);
+                case STRING:
+                    return node.textValue();
+                case NUMBER:
+                    return node.isIntegralNumber() && node.canConvertToInt() ? (Object) node.intValue()
+                            : (Object) node.doubleValue();
+                case BOOLEAN:
+                    return node.booleanValue();
+                case NULL:
+                case MISSING:
+                    return null;
+                default:
+                    return node.asText();
+            }
+        }
+        if (value instanceof Map) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> map = (Map<String, Object>) value;
+            return new MapProxy(map);
+        }
+        if (value instanceof List) {
+            return new ListProxy((List<?>) value);
+        }
+        return value;
+    }
+
+    private static final class JsonObjectProxy implements ProxyObject {
+        private final JsonNode node;
+
+        private JsonObjectProxy(JsonNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object getMember(String key) {
+            return toGuest(node.get(key));
+        }
+
+        @Override
+        public Object getMemberKeys() {
+            List<Object> keys = new ArrayList<>();
+            Iterator<String> it = node.fieldNames();
+            while (it.hasNext()) {
+                keys.add(it.next());
+            }
+            return ProxyArray.fromArray(keys.toArray());
+        }
+
+        @Override
+        public boolean hasMember(String key) {
+            return node.has(key);
+        }
+
+        @Override
+        public void putMember(String key, Value value) {
+            throw new UnsupportedOperationException("form data is read only");
+        }
+    }
+
+    private static final class JsonArrayProxy implements ProxyArray {
+        private final JsonNode node;
+
+        private JsonArrayProxy(JsonNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object get(long index) {
+            return toGuest(node.get((int) index));
+        }
+
+        @Override
+        public void set(long index, Value value) {
+            throw new UnsupportedOperationException("form data is read only");
+        }
+
+        @Override
+        public long getSize() {
+            return node.size();
+        }
+    }
+
+    private static final class ListProxy implements ProxyArray {
+        private final List<?> list;
+
+        private ListProxy(List<?> list) {
+            this.list = list;
+        }
+
+        @Override
+        public Object get(long index) {
+            return toGuest(list.get((int) index));
+        }
+
+        @Override
+        public void set(long index, Value value) {
+            throw new UnsupportedOperationException("form data is read only");
+        }
+
+        @Override
+        public long getSize() {
+            return list.size();
+        }
+    }
+
+    private static final class MapProxy implements ProxyObject {
+        private final Map<String, Object> map;
+
+        private MapProxy(Map<String, Object> map) {
+            this.map = map;
+        }
+
+        @Override
+        public Object getMember(String key) {
+            return toGuest(map.get(key));
+        }
+
+        @Override
+        public Object getMemberKeys() {
+            return ProxyArray.fromArray(map.keySet().toArray());
+        }
+
+        @Override
+        public boolean hasMember(String key) {
+            return map.containsKey(key);
+        }
+
+        @Override
+        public void putMember(String key, Value value) {
+            throw new UnsupportedOperationException("form data is read only");
+        }
+    }
+}
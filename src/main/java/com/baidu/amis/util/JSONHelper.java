@@ -1,17 +1,41 @@
 package com.baidu.amis.util;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Map;
 
+import com.baidu.amis.jfr.JfrEvents;
+import com.baidu.amis.metrics.Metrics;
+import com.baidu.amis.metrics.MetricsListener;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 
 /**
  * amis 中有大量 JSON 操作，这个类主要用于
  */
 public class JSONHelper {
+
+    // 宽松的解析配置，支持注释、不带引号的字段名和单引号字符串，配置好之后不可变，可以在多个线程中共用
+    private static final ObjectMapper lenientMapper = new ObjectMapper(JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .build());
+
+    private static final ObjectReader lenientReader = lenientMapper.reader();
+
+    // 标准 JSON，用于判断提交的数据是否是合法的 JSON
+    private static final JsonFactory strictFactory = new JsonFactory();
+
     /**
      * 在 json 节点中查找对象
      * @param node JSON 节点
@@ -25,16 +49,125 @@ public class JSONHelper {
     /**
      * 将字符串转成 JSON 节点
      * @param str
-     * @return
+     * @return 空字符串返回 MissingNode
      * @throws JsonProcessingException
      */
     public static JsonNode toJSONNode(String str) throws JsonProcessingException {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(JsonParser.Feature.ALLOW_COMMENTS, true);
-        mapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
-        mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-        JsonNode amisSchema = mapper.readTree(str);
-        return amisSchema;
+        return parse(() -> lenientReader.readTree(str));
+    }
+
+    /**
+     * 将 UTF-8 等编码的字节转成 JSON 节点，编码会自动检测
+     */
+    public static JsonNode toJSONNode(byte[] bytes) throws IOException {
+        return parse(() -> lenientReader.readTree(bytes));
+    }
+
+    /**
+     * 将字节数组中的一段转成 JSON 节点，不会复制字节
+     */
+    public static JsonNode toJSONNode(byte[] bytes, int offset, int length) throws IOException {
+        return parse(() -> lenientReader.readTree(bytes, offset, length));
+    }
+
+    /**
+     * 将 ByteBuffer 中 position 到 limit 之间的字节转成 JSON 节点，不会改变 buffer 的 position，也不会复制字节
+     */
+    public static JsonNode toJSONNode(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return toJSONNode(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return parse(() -> lenientReader.readTree(new ByteBufferBackedInputStream(buffer.duplicate())));
+    }
+
+    /**
+     * 将输入流转成 JSON 节点，读完后不会关闭输入流
+     */
+    public static JsonNode toJSONNode(InputStream in) throws IOException {
+        return parse(() -> lenientReader.readTree(in));
+    }
+
+    /**
+     * 将字符流转成 JSON 节点，读完后不会关闭字符流
+     */
+    public static JsonNode toJSONNode(Reader reader) throws IOException {
+        return parse(() -> lenientReader.readTree(reader));
+    }
+
+    /**
+     * 是否是标准的 JSON，只会读取第一个值，不会生成 JSON 节点
+     */
+    public static boolean isStrictJson(String str) {
+        try (JsonParser parser = strictFactory.createParser(str)) {
+            if (parser.nextToken() != null) {
+                parser.skipChildren();
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建流式解析器，解析规则和 {@link #toJSONNode(String)} 一致，可以通过 readValueAsTree 读取部分节点
+     *
+     * @param in 输入流，解析器关闭时会一起关闭
+     */
+    public static JsonParser createParser(InputStream in) throws IOException {
+        return lenientMapper.getFactory().createParser(in);
+    }
+
+    /**
+     * 创建流式解析器，直接解析字节数组中的一段，不会复制字节
+     */
+    public static JsonParser createParser(byte[] bytes, int offset, int length) throws IOException {
+        return lenientMapper.getFactory().createParser(bytes, offset, length);
+    }
+
+    /**
+     * 创建流式解析器，解析 ByteBuffer 中 position 到 limit 之间的字节，不会改变 buffer 的 position
+     * 堆内的 buffer 直接解析底层数组，堆外的 buffer 按块读取
+     */
+    public static JsonParser createParser(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return createParser(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        return createParser(new ByteBufferBackedInputStream(buffer.duplicate()));
+    }
+
+    /**
+     * 创建流式解析器，解析规则和 {@link #toJSONNode(String)} 一致，可以通过 readValueAsTree 读取部分节点
+     *
+     * @param reader 字符流，解析器关闭时会一起关闭
+     */
+    public static JsonParser createParser(Reader reader) throws IOException {
+        return lenientMapper.getFactory().createParser(reader);
+    }
+
+    // 解析 JSON，开启了指标统计或者 JFR 时记录耗时
+    private static <E extends Exception> JsonNode parse(ParseAction<E> action) throws E {
+        MetricsListener metrics = Metrics.get();
+        Object event = JfrEvents.beginParse();
+        if (!metrics.isEnabled() && event == null) {
+            return action.parse();
+        }
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            JsonNode node = action.parse();
+            success = true;
+            return node;
+        } finally {
+            if (metrics.isEnabled()) {
+                metrics.onParse(System.nanoTime() - start, success);
+            }
+            JfrEvents.endParse(event, success);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ParseAction<E extends Exception> {
+        JsonNode parse() throws E;
     }
 
     // 查找 JSON 对象的内部实现
@@ -0,0 +1,211 @@
+package com.baidu.amis.util;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.script.SimpleBindings;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 直接基于 JsonNode 的脚本变量，不会把数据拷贝一份，只有脚本读到某个属性时才去 JsonNode 中取
+ * 对象和数组会转成 Map 和 List 的只读视图，数字、布尔值、字符串会转成对应的 Java 类型
+ * 这样脚本中拿到的是 js 的原生值而不是 Jackson 的节点
+ */
+public final class JsonBindings {
+
+    private JsonBindings() {
+    }
+
+    /**
+     * 生成脚本执行需要的变量，顶层字段可以直接访问，也可以通过 data.xxx 访问
+     *
+     * @param data 表单数据
+     */
+    public static SimpleBindings of(JsonNode data) {
+        return new SimpleBindings(new RootView(data));
+    }
+
+    /**
+     * 将 JsonNode 转成脚本引擎能识别的 Java 值
+     *
+     * @return 对象是 Map，数组是 List，整数在 int 范围内是 Integer，其它数字是 Double，null 和不存在都是 null
+     */
+    public static Object toJava(JsonNode value) {
+        if (value == null) {
+            return null;
+        }
+        switch (value.getNodeType()) {
+            case OBJECT:
+                return new ObjectView(value);
+            case ARRAY:
+                return new ArrayView(value);
+            case STRING:
+                return value.textValue();
+            case NUMBER:
+                if (value.canConvertToInt() && value.isIntegralNumber()) {
+                    return value.intValue();
+                }
+                return value.doubleValue();
+            case BOOLEAN:
+                return value.booleanValue();
+            case NULL:
+            case MISSING:
+                return null;
+            default:
+                return value.asText();
+        }
+    }
+
+    /**
+     * 对象的只读视图
+     */
+    static class ObjectView extends AbstractMap<String, Object> {
+        final JsonNode node;
+
+        ObjectView(JsonNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String ? toJava(node.get((String) key)) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && node.has((String) key);
+        }
+
+        @Override
+        public int size() {
+            return node.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Entry<String, JsonNode>> it = node.fields();
+                    return new Iterator<Entry<String, Object>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            Entry<String, JsonNode> field = it.next();
+                            return new SimpleImmutableEntry<>(field.getKey(), toJava(field.getValue()));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return node.size();
+                }
+            };
+        }
+    }
+
+    /**
+     * 顶层变量，比表单数据多了一个指向自身的 data
+     * 脚本引擎会往里面写一些内部变量，比如 nashorn 会写入 nashorn.global，这些写入只保存在这个对象上，不会影响原始数据
+     */
+    static final class RootView extends ObjectView {
+        private static final String DATA = "data";
+
+        // 脚本引擎写入的变量，用到时才创建
+        private Map<String, Object> overlay;
+
+        RootView(JsonNode node) {
+            super(node);
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (overlay != null && overlay.containsKey(key)) {
+                return overlay.get(key);
+            }
+            if (DATA.equals(key)) {
+                return node.isObject() ? new ObjectView(node) : null;
+            }
+            return node.isObject() ? super.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return (overlay != null && overlay.containsKey(key))
+                    || (node.isObject() && (DATA.equals(key) || super.containsKey(key)));
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            if (overlay == null) {
+                overlay = new HashMap<>();
+            }
+            Object old = get(key);
+            overlay.put(key, value);
+            return old;
+        }
+
+        @Override
+        public Object remove(Object key) {
+            return overlay == null ? null : overlay.remove(key);
+        }
+
+        @Override
+        public int size() {
+            return entrySet().size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            // 脚本引擎都只按名字读取，用不到这个方法，这里只是为了满足 Map 的约定，所以直接生成一份，不做成视图了
+            Map<String, Object> all = new HashMap<>();
+            if (node.isObject()) {
+                Iterator<Entry<String, JsonNode>> it = node.fields();
+                while (it.hasNext()) {
+                    Entry<String, JsonNode> field = it.next();
+                    all.put(field.getKey(), toJava(field.getValue()));
+                }
+                all.put(DATA, new ObjectView(node));
+            }
+            if (overlay != null) {
+                all.putAll(overlay);
+            }
+            return all.entrySet();
+        }
+    }
+
+    /**
+     * 数组的只读视图
+     */
+    static final class ArrayView extends AbstractList<Object> {
+        private final JsonNode node;
+
+        ArrayView(JsonNode node) {
+            this.node = node;
+        }
+
+        @Override
+        public Object get(int index) {
+            if (index < 0 || index >= node.size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + node.size());
+            }
+            return toJava(node.get(index));
+        }
+
+        @Override
+        public int size() {
+            return node.size();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.baidu.amis.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+/**
+ * 基于 nashorn 的脚本执行，只支持 es5
+ * 脚本引擎不是线程安全的，所以每个线程一个引擎，同时每个线程会缓存编译好的脚本，相同表达式只需要解析一次
+ * nashorn 没有取消执行的办法，配置了 {@link ScriptBudget} 时在单独的工作线程中执行，超时后中断并丢弃工作线程，
+ * 但 nashorn 不响应中断，死循环的脚本会在后台一直执行，所以时间预算只是尽力而为，需要真正中止脚本时使用 {@link GraalScriptBackend}
+ */
+public class NashornScriptBackend implements ScriptBackend {
+
+    /**
+     * 每个线程最多缓存多少个编译好的脚本
+     */
+    public static final int COMPILED_CACHE_SIZE = 256;
+
+    // 只需要创建一次，查找引擎的时候会扫描 classpath，开销很大
+    private static final ScriptEngineManager manager = new ScriptEngineManager();
+
+    private final ThreadLocal<EngineHolder> engines = ThreadLocal.withInitial(EngineHolder::new);
+
+    @Override
+    public boolean eval(String script, SimpleBindings dataBindings) throws ScriptException {
+        EngineHolder holder = engines.get();
+        if (holder.engine == null) {
+            throw new ScriptException("script engine nashorn not found");
+        }
+        Boolean res = (Boolean) holder.compile(script).eval(dataBindings);
+        return res;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return engines.get().engine != null;
+    }
+
+    // 线程独占的引擎及它编译过的脚本
+    private static final class EngineHolder {
+        private final ScriptEngine engine = manager.getEngineByName("nashorn");
+
+        // 按访问顺序淘汰的 LRU，只在当前线程访问，所以不需要加锁
+        private final Map<String, CompiledScript> compiledScripts =
+                new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                        return size() > COMPILED_CACHE_SIZE;
+                    }
+                };
+
+        private CompiledScript compile(String script) throws ScriptException {
+            CompiledScript compiled = compiledScripts.get(script);
+            if (compiled == null) {
+                compiled = ((Compilable) engine).compile(script);
+                compiledScripts.put(script, compiled);
+            }
+            return compiled;
+        }
+    }
+}
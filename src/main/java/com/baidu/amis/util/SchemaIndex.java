@@ -0,0 +1,190 @@
+package com.baidu.amis.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 页面 schema 的索引，遍历一次就记录下所有表单以及带 id、name 的组件，之后查找都是 O(1)
+ * 索引建好后不会再修改，可以在多个线程中共用
+ *
+ * <pre>
+ * SchemaIndex index = SchemaIndex.build(JSONHelper.toJSONNode(amisSchemaStr));
+ * JsonNode form = index.getForm("myForm");
+ * </pre>
+ */
+public final class SchemaIndex {
+
+    /**
+     * 索引到的节点及它在页面中的位置
+     */
+    public static final class Entry {
+        private final JsonNode node;
+        private final String path;
+
+        private Entry(JsonNode node, String path) {
+            this.node = node;
+            this.path = path;
+        }
+
+        public JsonNode getNode() {
+            return node;
+        }
+
+        /**
+         * JSON Pointer 格式的路径，比如 /body/0，可以通过 {@link JsonNode#at(String)} 重新取到这个节点
+         */
+        public String getPath() {
+            return path;
+        }
+    }
+
+    private final JsonNode root;
+
+    // 表单名对应的表单，同名时以遍历时先遇到的为准
+    private final Map<String, Entry> forms = new HashMap<>();
+
+    // 组件 id 对应的组件，同样是先遇到的为准
+    private final Map<String, Entry> ids = new HashMap<>();
+
+    // 组件 name 对应的组件，同一个 name 可能有多个，比如不同表单里的同名字段
+    private final Map<String, List<Entry>> names = new HashMap<>();
+
+    private SchemaIndex(JsonNode root) {
+        this.root = root;
+    }
+
+    /**
+     * 遍历页面建立索引
+     *
+     * @param root 页面 schema，也可以直接是表单
+     */
+    public static SchemaIndex build(JsonNode root) {
+        SchemaIndex index = new SchemaIndex(root);
+        index.visit(root, new StringBuilder());
+        return index;
+    }
+
+    // 深度优先遍历，path 在返回前会恢复成进入时的内容
+    private void visit(JsonNode node, StringBuilder path) {
+        int length = path.length();
+        if (node.isObject()) {
+            register(node, path);
+            Iterator<Map.Entry<String, JsonNode>> it = node.fields();
+            while (it.hasNext()) {
+                Map.Entry<String, JsonNode> field = it.next();
+                JsonNode value = field.getValue();
+                if (value.isContainerNode()) {
+                    appendPathSegment(path, field.getKey());
+                    visit(value, path);
+                    path.setLength(length);
+                }
+            }
+        } else if (node.isArray()) {
+            for (int i = 0; i < node.size(); i++) {
+                JsonNode value = node.get(i);
+                if (value.isContainerNode()) {
+                    path.append('/').append(i);
+                    visit(value, path);
+                    path.setLength(length);
+                }
+            }
+        }
+    }
+
+    // 记录组件，没有 type 的对象也会记录 id 和 name，但不会被当成表单
+    private void register(JsonNode node, StringBuilder path) {
+        JsonNode name = node.get("name");
+        JsonNode id = node.get("id");
+        if (!isKey(name) && !isKey(id)) {
+            return;
+        }
+        Entry entry = new Entry(node, path.toString());
+        if (isKey(name)) {
+            String nameText = name.asText();
+            names.computeIfAbsent(nameText, key -> new ArrayList<>(1)).add(entry);
+            JsonNode type = node.get("type");
+            if (type != null && "form".equals(type.asText())) {
+                forms.putIfAbsent(nameText, entry);
+            }
+        }
+        if (isKey(id)) {
+            ids.putIfAbsent(id.asText(), entry);
+        }
+    }
+
+    // 只有字符串、数字这样的值才能作为 id 和 name
+    private static boolean isKey(JsonNode node) {
+        return node != null && node.isValueNode() && !node.isNull();
+    }
+
+    // JSON Pointer 中 ~ 和 / 需要转义
+    private static void appendPathSegment(StringBuilder path, String key) {
+        path.append('/');
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c == '~') {
+                path.append("~0");
+            } else if (c == '/') {
+                path.append("~1");
+            } else {
+                path.append(c);
+            }
+        }
+    }
+
+    public JsonNode getRoot() {
+        return root;
+    }
+
+    /**
+     * 按名字查找表单
+     *
+     * @return 找不到时返回 null
+     */
+    public JsonNode getForm(String formName) {
+        Entry entry = forms.get(formName);
+        return entry == null ? null : entry.node;
+    }
+
+    /**
+     * 按名字查找表单及其路径
+     *
+     * @return 找不到时返回 null
+     */
+    public Entry getFormEntry(String formName) {
+        return forms.get(formName);
+    }
+
+    /**
+     * 页面中所有的表单名
+     */
+    public Set<String> getFormNames() {
+        return Collections.unmodifiableSet(forms.keySet());
+    }
+
+    /**
+     * 按 id 查找组件
+     *
+     * @return 找不到时返回 null
+     */
+    public Entry getById(String id) {
+        return ids.get(id);
+    }
+
+    /**
+     * 按 name 查找组件，按遍历顺序排列
+     *
+     * @return 找不到时返回空列表
+     */
+    public List<Entry> getByName(String name) {
+        List<Entry> entries = names.get(name);
+        return entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries);
+    }
+}
@@ -1,29 +1,121 @@
 package com.baidu.amis.util;
 
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
 
+import com.baidu.amis.jfr.JfrEvents;
+import com.baidu.amis.metrics.Metrics;
+import com.baidu.amis.metrics.MetricsListener;
+
 /**
  * 执行 amis 中的脚本判断
+ * 具体的执行由 {@link ScriptBackend} 负责，默认 classpath 中有 GraalJS 时使用 GraalJS，否则使用 nashorn
  */
 public class Script {
 
     private static Logger logger = Logger.getLogger("Validator");
 
-    public static boolean eval(String script, SimpleBindings dataBindings) {
-        ScriptEngineManager manager = new ScriptEngineManager();
-        ScriptEngine engine = manager.getEngineByName("nashorn"); // TODO: 后续支持 GraalVM
+    private static volatile ScriptBackend backend;
 
+    /**
+     * 执行脚本，脚本报错时记录日志并返回 false
+     *
+     * @throws ScriptBudgetExceededException 超出了 {@link ScriptBudget} 中配置的预算
+     */
+    public static boolean eval(String script, SimpleBindings dataBindings) {
+        MetricsListener metrics = Metrics.get();
+        boolean enabled = metrics.isEnabled();
+        long start = enabled ? System.nanoTime() : 0;
+        Object event = JfrEvents.beginScript();
+        boolean success = false;
         try {
-            Boolean res = (Boolean) engine.eval(script, dataBindings);
-            return res;
+            long timeout = ScriptBudget.remainingNanos();
+            boolean result = timeout == Long.MAX_VALUE ? getBackend().eval(script, dataBindings)
+                    : evalWithTimeout(script, dataBindings, timeout);
+            success = true;
+            return result;
         } catch (ScriptException e) {
             logger.warning(e.getMessage());
+        } catch (ScriptBudgetExceededException e) {
+            ScriptBudget.recordExceeded(e.getKind());
+            if (enabled) {
+                metrics.onScriptBudgetExceeded(e.getKind().name(), System.nanoTime() - start);
+            }
+            throw e;
+        } finally {
+            if (enabled) {
+                metrics.onScript(System.nanoTime() - start, success);
+            }
+            JfrEvents.endScript(event, script, success);
         }
         return false;
     }
+
+    private static boolean evalWithTimeout(String script, SimpleBindings dataBindings, long timeout)
+            throws ScriptException {
+        // 请求预算已经用完，后面的脚本不再执行
+        if (timeout <= 0) {
+            throw new ScriptBudgetExceededException(ScriptBudgetExceededException.Kind.REQUEST_TIMEOUT, script);
+        }
+        try {
+            return getBackend().eval(script, dataBindings, timeout);
+        } catch (TimeoutException e) {
+            throw new ScriptBudgetExceededException(ScriptBudget.timeoutKind(), script);
+        }
+    }
+
+    /**
+     * 当前使用的脚本引擎，第一次调用时才会去查找
+     */
+    public static ScriptBackend getBackend() {
+        ScriptBackend current = backend;
+        if (current == null) {
+            synchronized (Script.class) {
+                current = backend;
+                if (current == null) {
+                    current = createDefaultBackend();
+                    backend = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 切换脚本引擎，比如在没有 GraalJS 的环境中继续使用 nashorn，或者换成自定义配置的 {@link GraalScriptBackend}
+     * 之前的引擎需要调用方自行关闭
+     */
+    public static void setBackend(ScriptBackend scriptBackend) {
+        backend = Objects.requireNonNull(scriptBackend);
+    }
+
+    private static ScriptBackend createDefaultBackend() {
+        if (isGraalJSPresent()) {
+            try {
+                GraalScriptBackend graal = new GraalScriptBackend();
+                if (graal.isAvailable()) {
+                    return graal;
+                }
+                graal.close();
+            } catch (RuntimeException | LinkageError e) {
+                logger.warning("init GraalJS failed, fallback to nashorn: " + e);
+            }
+        }
+        return new NashornScriptBackend();
+    }
+
+    // 不能放在 GraalScriptBackend 里，没有 GraalJS 时加载那个类就会失败
+    private static boolean isGraalJSPresent() {
+        try {
+            Class.forName("org.graalvm.polyglot.Context");
+            Class.forName("com.oracle.truffle.js.lang.JavaScriptLanguage");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
 }
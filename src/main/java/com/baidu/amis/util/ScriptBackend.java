@@ -0,0 +1,43 @@
+package com.baidu.amis.util;
+
+import java.util.concurrent.TimeoutException;
+
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+/**
+ * 脚本引擎的抽象，目前有 nashorn 和 GraalJS 两种实现，通过 {@link Script#setBackend(ScriptBackend)} 切换
+ */
+public interface ScriptBackend {
+
+    /**
+     * 执行脚本并转成布尔值
+     *
+     * @param script       脚本
+     * @param dataBindings 脚本中可以访问的变量
+     * @return 脚本结果
+     * @throws ScriptException 脚本执行出错
+     */
+    boolean eval(String script, SimpleBindings dataBindings) throws ScriptException;
+
+    /**
+     * 限时执行脚本，配置了 {@link ScriptBudget} 时使用
+     * 默认在单独的工作线程中执行，超时后中断工作线程，这个线程不会再被使用，引擎自己支持取消时可以覆盖这个方法
+     *
+     * @param script       脚本
+     * @param dataBindings 脚本中可以访问的变量
+     * @param timeoutNanos 最长的执行时间，大于 0
+     * @return 脚本结果
+     * @throws ScriptException  脚本执行出错
+     * @throws TimeoutException 超时，这时脚本已经被中止
+     */
+    default boolean eval(String script, SimpleBindings dataBindings, long timeoutNanos)
+            throws ScriptException, TimeoutException {
+        return ScriptWorkers.eval(this, script, dataBindings, timeoutNanos);
+    }
+
+    /**
+     * 当前环境下是否可用，比如 JDK 15 之后默认就没有 nashorn 了
+     */
+    boolean isAvailable();
+}
@@ -0,0 +1,185 @@
+package com.baidu.amis.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 脚本执行的预算，防止 requireOn、表单 rules 中的死循环或者超大字符串拼接一直占着请求线程
+ * <ul>
+ *     <li>单个表达式的执行时间，见 {@link #setExpressionTimeout(long, TimeUnit)}</li>
+ *     <li>一次校验中所有脚本的执行时间，从校验开始算起，见 {@link #setRequestTimeout(long, TimeUnit)}</li>
+ *     <li>单个表达式执行的语句数，只有 GraalJS 支持，见 {@link GraalScriptBackend}</li>
+ * </ul>
+ * 超出预算时抛出 {@link ScriptBudgetExceededException}，各种预算被触发的次数见 {@link #getExceededCount}
+ * 默认都不限制，这时脚本和原来一样直接在当前线程执行，没有额外的开销
+ */
+public final class ScriptBudget {
+
+    /**
+     * 没有请求预算时 {@link #currentDeadline()} 的返回值
+     */
+    public static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    // 都是纳秒，0 表示不限制
+    private static volatile long expressionTimeoutNanos;
+
+    private static volatile long requestTimeoutNanos;
+
+    private static final LongAdder[] EXCEEDED = new LongAdder[ScriptBudgetExceededException.Kind.values().length];
+
+    static {
+        for (int i = 0; i < EXCEEDED.length; i++) {
+            EXCEEDED[i] = new LongAdder();
+        }
+    }
+
+    // 当前线程正在进行的校验的截止时间，嵌套的校验共用最外层的截止时间
+    private static final ThreadLocal<Request> REQUESTS = ThreadLocal.withInitial(Request::new);
+
+    private ScriptBudget() {
+    }
+
+    /**
+     * 设置单个表达式最长的执行时间
+     *
+     * @param timeout 为 0 时不限制
+     */
+    public static void setExpressionTimeout(long timeout, TimeUnit unit) {
+        expressionTimeoutNanos = toNanos(timeout, unit);
+    }
+
+    public static long getExpressionTimeoutNanos() {
+        return expressionTimeoutNanos;
+    }
+
+    /**
+     * 设置一次校验中所有脚本最长的执行时间，从调用校验方法开始计算
+     *
+     * @param timeout 为 0 时不限制
+     */
+    public static void setRequestTimeout(long timeout, TimeUnit unit) {
+        requestTimeoutNanos = toNanos(timeout, unit);
+    }
+
+    public static long getRequestTimeoutNanos() {
+        return requestTimeoutNanos;
+    }
+
+    private static long toNanos(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative");
+        }
+        return unit.toNanos(timeout);
+    }
+
+    /**
+     * 某种预算被触发的次数，从启动开始累计
+     */
+    public static long getExceededCount(ScriptBudgetExceededException.Kind kind) {
+        return EXCEEDED[kind.ordinal()].sum();
+    }
+
+    static void recordExceeded(ScriptBudgetExceededException.Kind kind) {
+        EXCEEDED[kind.ordinal()].increment();
+    }
+
+    /**
+     * 开始一次校验，需要和 {@link #exit()} 成对调用，校验入口使用，一般不需要直接调用
+     *
+     * <pre>
+     * boolean budget = ScriptBudget.enter();
+     * try {
+     *     ...
+     * } finally {
+     *     if (budget) {
+     *         ScriptBudget.exit();
+     *     }
+     * }
+     * </pre>
+     *
+     * @return 没有配置请求预算时返回 false，这时不需要调用 exit
+     */
+    public static boolean enter() {
+        long timeout = requestTimeoutNanos;
+        if (timeout == 0) {
+            return false;
+        }
+        Request request = REQUESTS.get();
+        if (request.depth++ == 0) {
+            request.deadline = System.nanoTime() + timeout;
+        }
+        return true;
+    }
+
+    /**
+     * 在别的线程中继续当前的校验，使用发起校验的线程的截止时间，比如把数组的行分块交给线程池时
+     * 同样需要和 {@link #exit()} 成对调用，当前线程已经在校验中时继续使用原来的截止时间
+     *
+     * @param deadline 发起校验的线程中 {@link #currentDeadline()} 的返回值
+     * @return deadline 是 {@link #NO_DEADLINE} 时返回 false，这时不需要调用 exit
+     */
+    public static boolean enter(long deadline) {
+        if (deadline == NO_DEADLINE) {
+            return false;
+        }
+        Request request = REQUESTS.get();
+        if (request.depth++ == 0) {
+            request.deadline = deadline;
+        }
+        return true;
+    }
+
+    /**
+     * 当前线程正在进行的校验的截止时间，和 System.nanoTime() 比较
+     *
+     * @return 没有配置请求预算或者不在校验中时返回 {@link #NO_DEADLINE}
+     */
+    public static long currentDeadline() {
+        if (requestTimeoutNanos == 0) {
+            return NO_DEADLINE;
+        }
+        Request request = REQUESTS.get();
+        return request.depth > 0 ? request.deadline : NO_DEADLINE;
+    }
+
+    public static void exit() {
+        REQUESTS.get().depth--;
+    }
+
+    /**
+     * 当前线程下一个脚本还能执行多久
+     *
+     * @return 不限制时是 Long.MAX_VALUE，请求预算已经用完时小于等于 0
+     */
+    static long remainingNanos() {
+        long expression = expressionTimeoutNanos;
+        long remaining = expression == 0 ? Long.MAX_VALUE : expression;
+        if (requestTimeoutNanos != 0) {
+            Request request = REQUESTS.get();
+            if (request.depth > 0) {
+                remaining = Math.min(remaining, request.deadline - System.nanoTime());
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * 剩余时间用完时是哪一种预算导致的，请求的截止时间更早时算请求预算
+     */
+    static ScriptBudgetExceededException.Kind timeoutKind() {
+        long expression = expressionTimeoutNanos;
+        if (requestTimeoutNanos != 0) {
+            Request request = REQUESTS.get();
+            if (request.depth > 0 && (expression == 0 || request.deadline - System.nanoTime() <= 0)) {
+                return ScriptBudgetExceededException.Kind.REQUEST_TIMEOUT;
+            }
+        }
+        return ScriptBudgetExceededException.Kind.EXPRESSION_TIMEOUT;
+    }
+
+    private static final class Request {
+        private int depth;
+
+        private long deadline;
+    }
+}
@@ -0,0 +1,49 @@
+package com.baidu.amis.util;
+
+/**
+ * 脚本超出了执行预算被中止，和脚本本身报错不同，这种情况不会当成 false 处理，而是直接抛到校验的调用方
+ * 预算的配置见 {@link ScriptBudget}
+ */
+public class ScriptBudgetExceededException extends RuntimeException {
+
+    /**
+     * 超出的是哪一种预算
+     */
+    public enum Kind {
+        /**
+         * 单个表达式的执行时间
+         */
+        EXPRESSION_TIMEOUT,
+
+        /**
+         * 一次校验中所有脚本的执行时间
+         */
+        REQUEST_TIMEOUT,
+
+        /**
+         * 单个表达式执行的语句数，只有 GraalJS 支持
+         */
+        STATEMENT_LIMIT
+    }
+
+    private final Kind kind;
+
+    private final String script;
+
+    public ScriptBudgetExceededException(Kind kind, String script) {
+        super("script " + kind.name().toLowerCase() + ": " + script);
+        this.kind = kind;
+        this.script = script;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * 被中止的脚本
+     */
+    public String getScript() {
+        return script;
+    }
+}
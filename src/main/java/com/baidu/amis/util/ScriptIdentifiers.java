@@ -0,0 +1,41 @@
+package com.baidu.amis.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 找出脚本中出现的所有标识符，GraalJS 执行前只把这些名字对应的顶层字段放进全局变量，不用遍历整个表单数据
+ * 这里不做完整的词法分析，属性名、字符串里的单词也会算进去，所以得到的是实际用到的字段的超集，
+ * 只有像 this['a' + 'b'] 这样运行时拼出来的名字会漏掉，这种情况需要通过 data 访问，比如 data['a' + 'b']
+ */
+final class ScriptIdentifiers {
+
+    private ScriptIdentifiers() {
+    }
+
+    static String[] of(String script) {
+        Set<String> names = new LinkedHashSet<>();
+        int length = script.length();
+        int i = 0;
+        while (i < length) {
+            char c = script.charAt(i);
+            if (!Character.isJavaIdentifierStart(c)) {
+                // 跳过数字，避免把 1e5 中的 e5 当成标识符
+                if (Character.isDigit(c)) {
+                    while (i < length && Character.isJavaIdentifierPart(script.charAt(i))) {
+                        i++;
+                    }
+                } else {
+                    i++;
+                }
+                continue;
+            }
+            int start = i;
+            while (i < length && Character.isJavaIdentifierPart(script.charAt(i))) {
+                i++;
+            }
+            names.add(script.substring(start, i));
+        }
+        return names.toArray(new String[0]);
+    }
+}
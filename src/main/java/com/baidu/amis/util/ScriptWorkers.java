@@ -0,0 +1,198 @@
+package com.baidu.amis.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+/**
+ * 有时间限制的脚本在单独的工作线程中执行，当前线程最多等待到超时，超时后中断工作线程
+ * 超时的线程会被丢弃，不再执行别的脚本，它的 nashorn 引擎随线程一起丢弃
+ * 这只是尽力而为：nashorn 不响应中断，强行停止线程又可能破坏共享的状态，所以死循环的脚本会一直执行下去，并一直占着一个名额，
+ * 线程总数不超过 {@link #MAX_WORKERS}，名额用完时新的脚本最多等到自己超时，不会无限制地创建线程
+ * 需要真正中止脚本时使用 {@link GraalScriptBackend}，它超时后会关闭对应的 Context
+ */
+final class ScriptWorkers {
+
+    private static final Logger logger = Logger.getLogger("Validator");
+
+    /**
+     * 最多同时存在的工作线程数，包括超时后被丢弃但是还没有结束的线程
+     */
+    static final int MAX_WORKERS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    // 中断后等待脚本自己退出的时间
+    private static final long INTERRUPT_GRACE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    // 空闲的线程保留一分钟，nashorn 的引擎是每个线程一个，线程复用时不需要重新创建
+    private static final long KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    // 被丢弃的线程结束时不一定能通知等待的线程，所以等待名额时每隔一段时间检查一次
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    // 下面的状态都由 LOCK 保护
+    private static final Object LOCK = new Object();
+
+    // 空闲的线程，后进先出，让不常用的线程能够空闲到超时退出
+    private static final ArrayDeque<Worker> IDLE = new ArrayDeque<>();
+
+    // 还可以使用的线程数，包括空闲的和正在执行的
+    private static int workerCount;
+
+    // 超时后被丢弃但可能还在执行的线程，结束后才释放名额
+    private static final List<Worker> RETIRED = new ArrayList<>();
+
+    private ScriptWorkers() {
+    }
+
+    /**
+     * 在工作线程中执行脚本
+     *
+     * @param timeoutNanos 最多等待多久，包括等待空闲线程的时间
+     * @throws TimeoutException 超时，这时已经中断了执行脚本的线程，这个线程不会再被使用
+     */
+    static boolean eval(ScriptBackend backend, String script, SimpleBindings dataBindings, long timeoutNanos)
+            throws ScriptException, TimeoutException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        Worker worker;
+        try {
+            worker = acquire(deadline);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ScriptException("interrupted while evaluating script");
+        }
+        FutureTask<Boolean> task = new FutureTask<>(() -> backend.eval(script, dataBindings));
+        worker.inbox.add(task);
+        try {
+            return task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            abandon(worker, task, script);
+            throw e;
+        } catch (InterruptedException e) {
+            abandon(worker, task, script);
+            Thread.currentThread().interrupt();
+            throw new ScriptException("interrupted while evaluating script");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ScriptException) {
+                throw (ScriptException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ScriptException(cause.toString());
+        }
+    }
+
+    // 优先复用空闲线程，没有时在名额之内创建新线程，名额用完时等到 deadline 为止
+    private static Worker acquire(long deadline) throws TimeoutException, InterruptedException {
+        synchronized (LOCK) {
+            while (true) {
+                Worker worker = IDLE.pollFirst();
+                if (worker != null) {
+                    return worker;
+                }
+                RETIRED.removeIf(retired -> !retired.isAlive());
+                if (workerCount + RETIRED.size() < MAX_WORKERS) {
+                    worker = new Worker();
+                    worker.start();
+                    workerCount++;
+                    return worker;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(LOCK, Math.min(remaining, WAIT_SLICE_NANOS));
+            }
+        }
+    }
+
+    // 丢弃超时的线程并中断它，线程已经不会再拿到新的脚本，执行完当前的脚本后自己退出
+    private static void abandon(Worker worker, FutureTask<Boolean> task, String script) {
+        synchronized (LOCK) {
+            // 刚好在超时的同时执行完，线程已经回到空闲队列，可以继续使用
+            if (IDLE.contains(worker)) {
+                return;
+            }
+            worker.retired = true;
+            workerCount--;
+            RETIRED.add(worker);
+        }
+        task.cancel(true);
+        // 留一点时间给响应中断的引擎自己退出，仍在执行时记录下来，方便排查占着名额的脚本
+        long deadline = System.nanoTime() + INTERRUPT_GRACE_NANOS;
+        while (worker.running && System.nanoTime() - deadline < 0) {
+            LockSupport.parkNanos(INTERRUPT_GRACE_NANOS / 10);
+        }
+        if (worker.running) {
+            logger.warning("script ignored interrupt and keeps running in " + worker.getName() + ": " + script);
+        }
+    }
+
+    private static final class Worker extends Thread {
+
+        // 每次只交给它一个脚本
+        private final BlockingQueue<Runnable> inbox = new ArrayBlockingQueue<>(1);
+
+        // 由 LOCK 保护
+        private boolean retired;
+
+        private volatile boolean running;
+
+        Worker() {
+            super("amis-script-worker-" + COUNT.incrementAndGet());
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                try {
+                    task = inbox.poll(KEEP_ALIVE_NANOS, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    task = null;
+                }
+                if (task == null) {
+                    synchronized (LOCK) {
+                        // 空闲超时后退出，已经被取走的话马上会收到脚本，继续等待
+                        if (IDLE.remove(this)) {
+                            workerCount--;
+                            return;
+                        }
+                    }
+                    continue;
+                }
+                running = true;
+                task.run();
+                running = false;
+                // 清掉超时留下的中断状态
+                Thread.interrupted();
+                synchronized (LOCK) {
+                    if (retired) {
+                        return;
+                    }
+                    IDLE.push(this);
+                    LOCK.notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.baidu.amis.validation;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 异步校验的任务，校验总是在指定的 executor 中执行，调用方线程只负责提交，不会执行脚本
+ * 返回的 future 可以取消：还没开始的任务不会再执行，cancel(true) 时正在执行的任务会中断执行它的线程
+ */
+final class AsyncValidation {
+
+    private AsyncValidation() {
+    }
+
+    /**
+     * 提交校验任务
+     *
+     * @param task     校验逻辑，抛出的异常会原样作为 future 的异常
+     * @param executor 执行校验的线程池，拒绝执行时 future 以 RejectedExecutionException 结束，不会退回到调用方线程执行
+     */
+    static CompletableFuture<List<ConstraintViolation>> submit(Callable<List<ConstraintViolation>> task,
+                                                              Executor executor) {
+        Task future = new Task(task);
+        try {
+            executor.execute(future);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 默认的线程池，和 CPU 核数一样大的守护线程池
+     * 即使运行在 JDK 21 及以上也不使用虚拟线程：nashorn 的引擎和编译好的脚本、违反规则的临时列表、正则的 Matcher
+     * 都按线程缓存在 ThreadLocal 中，每个任务一个虚拟线程时这些缓存每次都要重新创建
+     */
+    static Executor createDefaultExecutor() {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "amis-validator-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), factory);
+    }
+
+    // 记录执行线程的 future，取消时用来中断
+    private static final class Task extends CompletableFuture<List<ConstraintViolation>> implements Runnable {
+
+        private final Callable<List<ConstraintViolation>> task;
+
+        // 正在执行任务的线程，没开始或者已经结束时为 null，读写都在 this 上加锁
+        private Thread runner;
+
+        private Task(Callable<List<ConstraintViolation>> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            try {
+                complete(task.call());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                // 清掉取消时留下的中断状态，线程池中的线程还要继续执行别的任务
+                if (isCancelled()) {
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled && mayInterruptIfRunning) {
+                synchronized (this) {
+                    if (runner != null) {
+                        runner.interrupt();
+                    }
+                }
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.baidu.amis.validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import com.baidu.amis.jfr.JfrEvents;
+import com.baidu.amis.metrics.Metrics;
+import com.baidu.amis.metrics.MetricsListener;
+import com.baidu.amis.util.JSONHelper;
+import com.baidu.amis.util.ScriptBudget;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 编译后的表单校验计划，通过 {@link Validator#compile(JsonNode)} 生成
+ * 字段名、校验规则及参数、报错信息都在编译时解析好，之后每次校验只需要遍历这个计划
+ * 编译结果是不可变的，可以缓存起来在多个线程中复用
+ */
+public final class CompiledForm {
+
+    // 只用于布局的容器，里面的表单项和外面的共用同一份数据
+    private static final Set<String> CONTAINER_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "group", "fieldset", "tabs", "collapse", "collapse-group", "panel")));
+
+    /**
+     * 批量校验时每个任务默认处理多少条数据
+     */
+    public static final int DEFAULT_BATCH_CHUNK_SIZE = 256;
+
+    // 表单名，没有配置时是空字符串
+    private final String name;
+
+    // 表单级别校验
+    private final List<FormRule> rules;
+
+    // 表单项，容器中的表单项已经展开成一维的了
+    private final List<CompiledFormItem> items;
+
+    // 流式校验时需要保留的顶层字段，包括条件表达式用到的字段和带点的 name 的第一段，有条件需要整个数据时为 null
+    private final Set<String> retainedFields;
+
+    // 字段名对应的表单项下标，同名的表单项可能有多个
+    private final Map<String, List<Integer>> itemIndexes;
+
+    private CompiledForm(String name, List<FormRule> rules, List<CompiledFormItem> items) {
+        this.name = name;
+        this.rules = rules;
+        this.items = items;
+
+        Set<String> fields = new HashSet<>();
+        boolean partial = true;
+        for (FormRule rule : rules) {
+            partial &= CompiledFormItem.collectFields(rule.rule, fields);
+        }
+        Map<String, List<Integer>> indexes = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            CompiledFormItem item = items.get(i);
+            partial &= item.collectConditionFields(fields);
+            indexes.computeIfAbsent(item.getName(), key -> new ArrayList<>()).add(i);
+            if (!item.getPathHead().equals(item.getName())) {
+                fields.add(item.getPathHead());
+            }
+        }
+        this.retainedFields = partial ? fields : null;
+        this.itemIndexes = indexes;
+    }
+
+    /**
+     * 编译表单，编译过程中不会修改传入的配置
+     *
+     * @param form   表单对应的 amis JSON 配置
+     * @param bundle 报错信息的语言包，编译时就会确定好每条规则的模板
+     */
+    static CompiledForm compile(JsonNode form, MessageBundle bundle) {
+        List<FormRule> rules = new ArrayList<>();
+        List<CompiledFormItem> items = new ArrayList<>();
+        JsonNode formName = form.get("name");
+        String name = formName == null ? "" : formName.asText();
+
+        JsonNode body = form.get("body");
+        // 兼容旧版的写法
+        if (body == null) {
+            body = form.get("controls");
+        }
+        if (body == null) {
+            return new CompiledForm(name, Collections.emptyList(), Collections.emptyList());
+        }
+
+        JsonNode formRules = form.get("rules");
+        if (formRules != null && formRules.isArray()) {
+            for (JsonNode ruleProps : formRules) {
+                JsonNode rule = ruleProps.get("rule");
+                JsonNode message = ruleProps.get("message");
+                if (rule != null && message != null) {
+                    rules.add(new FormRule(Condition.compile(rule.asText()),
+                            MessageTemplate.parse(message.asText())));
+                }
+            }
+        }
+
+        addItems(items, body, bundle, CompiledFormItem.Scope.ROOT);
+
+        return new CompiledForm(name, Collections.unmodifiableList(rules), Collections.unmodifiableList(items));
+    }
+
+    // 添加 body 中的表单项，body 可以是数组，也可以是只有一个表单项的对象
+    static void addItems(List<CompiledFormItem> items, JsonNode body, MessageBundle bundle,
+                                 CompiledFormItem.Scope scope) {
+        if (body.isObject()) {
+            addItem(items, body, bundle, scope);
+        } else if (body.isArray()) {
+            for (JsonNode formItem : body) {
+                addItem(items, formItem, bundle, scope);
+            }
+        }
+    }
+
+    private static void addItem(List<CompiledFormItem> items, JsonNode formItemSchema, MessageBundle bundle,
+                                CompiledFormItem.Scope scope) {
+        if (!formItemSchema.isObject()) {
+            return;
+        }
+        JsonNode type = formItemSchema.get("type");
+        if (type != null && CONTAINER_TYPES.contains(type.asText())) {
+            addContainer(items, formItemSchema, bundle, scope);
+            return;
+        }
+        CompiledFormItem item = CompiledFormItem.compile(formItemSchema, bundle, scope);
+        if (item != null) {
+            items.add(item);
+        }
+    }
+
+    // 展开容器，容器上的 visibleOn、hiddenOn 会被里面的表单项继承
+    private static void addContainer(List<CompiledFormItem> items, JsonNode container, MessageBundle bundle,
+                                     CompiledFormItem.Scope scope) {
+        CompiledFormItem.Scope inner = scope.enter(container);
+        JsonNode body = container.get("body");
+        if (body != null) {
+            addItems(items, body, bundle, inner);
+        }
+        JsonNode controls = container.get("controls");
+        if (controls != null) {
+            addItems(items, controls, bundle, inner);
+        }
+        // tabs 里的每个 tab 也是容器，可能有自己的 visibleOn、hiddenOn
+        JsonNode tabs = container.get("tabs");
+        if (tabs != null && tabs.isArray()) {
+            for (JsonNode tab : tabs) {
+                if (tab.isObject()) {
+                    addContainer(items, tab, bundle, inner);
+                }
+            }
+        }
+    }
+
+    /**
+     * 表单的 name，没有配置时是空字符串
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 校验数据
+     *
+     * @param data 数据的 JSON
+     * @return 违反规则的列表，如果列表为空意味着没有违反，这时返回的是共享的不可变空列表
+     */
+    public List<ConstraintViolation> validate(JsonNode data) {
+        MetricsListener metrics = Metrics.get();
+        Object event = JfrEvents.beginValidation();
+        // 一次校验中所有脚本共用请求预算，见 ScriptBudget
+        boolean budget = ScriptBudget.enter();
+        try {
+            if (!metrics.isEnabled() && event == null) {
+                return validateTree(data);
+            }
+            long start = System.nanoTime();
+            List<ConstraintViolation> ret = validateTree(data);
+            record(metrics, start, event, ret);
+            return ret;
+        } finally {
+            if (budget) {
+                ScriptBudget.exit();
+            }
+        }
+    }
+
+    // 上报指标和 JFR 事件
+    private void record(MetricsListener metrics, long start, Object event, List<ConstraintViolation> ret) {
+        if (metrics.isEnabled()) {
+            metrics.onForm(name, System.nanoTime() - start, ret.size());
+        }
+        JfrEvents.endValidation(event, name, items.size(), ret.size());
+    }
+
+    // 校验通过时不分配任何对象，结果先收集到线程复用的列表中，见 ViolationBuffer
+    private List<ConstraintViolation> validateTree(JsonNode data) {
+        if (items.isEmpty() && rules.isEmpty()) {
+            return Collections.emptyList();
+        }
+        ArrayList<ConstraintViolation> ret = ViolationBuffer.acquire();
+        try {
+            // 脚本需要的数据在真正执行脚本时才生成，用下标遍历避免创建迭代器
+            for (int i = 0; i < rules.size(); i++) {
+                FormRule rule = rules.get(i);
+                if (!rule.rule.test(data, null)) {
+                    ret.add(new ConstraintViolation("", ConstraintViolation.FORM_RULE_CODE, rule.message, null));
+                }
+            }
+            for (int i = 0; i < items.size(); i++) {
+                items.get(i).validate(data, null, ret);
+            }
+            return ViolationBuffer.toResult(ret);
+        } finally {
+            ViolationBuffer.release(ret);
+        }
+    }
+
+    /**
+     * 异步校验，在 {@link Validator#getAsyncExecutor()} 中执行
+     *
+     * @param data 数据的 JSON
+     * @return 校验结果，cancel(true) 会中断正在执行校验的线程
+     */
+    public CompletableFuture<List<ConstraintViolation>> validateAsync(JsonNode data) {
+        return validateAsync(data, Validator.getAsyncExecutor());
+    }
+
+    /**
+     * 在指定的 executor 中异步校验，调用方线程不会执行任何规则和脚本
+     *
+     * @param data     数据的 JSON
+     * @param executor 执行校验的线程池，最好是复用线程的线程池，脚本引擎等缓存是按线程保存的
+     * @return 校验结果，cancel(true) 会中断正在执行校验的线程
+     */
+    public CompletableFuture<List<ConstraintViolation>> validateAsync(JsonNode data, Executor executor) {
+        Objects.requireNonNull(executor);
+        return AsyncValidation.submit(() -> validate(data), executor);
+    }
+
+    /**
+     * 批量校验，数据会按 chunkSize 分组后交给 executor 并行执行，所有数据校验完才返回
+     *
+     * @param records   需要校验的数据
+     * @param executor  执行校验的线程池，比如 ForkJoinPool
+     * @param chunkSize 每个任务处理多少条数据，数据量大时适当调大可以减少调度开销
+     * @return 和 records 顺序一致的结果，第 i 项就是第 i 条数据违反的规则
+     */
+    public List<List<ConstraintViolation>> validateAll(Collection<? extends JsonNode> records, Executor executor,
+                                                       int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        List<? extends JsonNode> list = records instanceof List && records instanceof RandomAccess
+                ? (List<? extends JsonNode>) records
+                : new ArrayList<>(records);
+        int size = list.size();
+        @SuppressWarnings("unchecked")
+        List<ConstraintViolation>[] results = new List[size];
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int start = 0; start < size; start += chunkSize) {
+            int from = start;
+            int to = Math.min(start + chunkSize, size);
+            // 每个任务只写自己负责的下标，join 之后对当前线程可见
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    results[i] = validate(list.get(i));
+                }
+            }, executor));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * 流式校验，数据不会整体解析成 JsonNode
+     * 表单项对应的字段读到时就执行规则，然后丢弃，只有条件表达式用到的字段会保留到最后，所以内存占用只和 schema 有关
+     * 流式只到顶层字段这一层：单个字段的值会整体读出来再校验，combo、input-table 等数组字段的所有行会同时在内存中，
+     * 这类字段很大时内存占用和这个字段的大小成正比
+     * 结果和 {@link #validate(JsonNode)} 一致；如果有条件交给了脚本引擎执行，无法知道用到了哪些字段，会退化成整体解析
+     *
+     * @param data 数据的 JSON 流，校验完成后会关闭
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException 读取失败或者 JSON 格式错误
+     */
+    public List<ConstraintViolation> validate(InputStream data) throws IOException {
+        try (JsonParser parser = JSONHelper.createParser(data)) {
+            return validate(parser);
+        }
+    }
+
+    /**
+     * 流式校验，说明见 {@link #validate(InputStream)}
+     *
+     * @param data 数据的 JSON 字符流，校验完成后会关闭
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException 读取失败或者 JSON 格式错误
+     */
+    public List<ConstraintViolation> validate(Reader data) throws IOException {
+        try (JsonParser parser = JSONHelper.createParser(data)) {
+            return validate(parser);
+        }
+    }
+
+    /**
+     * 直接校验请求体的字节，比如 servlet 或 netty 读到的 UTF-8 数据，不需要先转成字符串
+     *
+     * @param data   数据所在的数组
+     * @param offset 数据的起始位置
+     * @param length 数据的字节数
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException JSON 格式错误
+     */
+    public List<ConstraintViolation> validate(byte[] data, int offset, int length) throws IOException {
+        try (JsonParser parser = JSONHelper.createParser(data, offset, length)) {
+            return validate(parser);
+        }
+    }
+
+    /**
+     * 校验 ByteBuffer 中 position 到 limit 之间的数据，不会改变 buffer 的 position
+     *
+     * @param data 数据，可以是堆外的 buffer
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException JSON 格式错误
+     */
+    public List<ConstraintViolation> validate(ByteBuffer data) throws IOException {
+        try (JsonParser parser = JSONHelper.createParser(data)) {
+            return validate(parser);
+        }
+    }
+
+    /**
+     * 从解析器当前位置读取一个 JSON 值进行流式校验，调用方负责关闭解析器
+     *
+     * @param parser 数据的解析器
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException 读取失败或者 JSON 格式错误
+     */
+    public List<ConstraintViolation> validate(JsonParser parser) throws IOException {
+        MetricsListener metrics = Metrics.get();
+        Object event = JfrEvents.beginValidation();
+        boolean budget = ScriptBudget.enter();
+        try {
+            if (!metrics.isEnabled() && event == null) {
+                return validateStream(parser);
+            }
+            long start = System.nanoTime();
+            List<ConstraintViolation> ret = validateStream(parser);
+            record(metrics, start, event, ret);
+            return ret;
+        } finally {
+            if (budget) {
+                ScriptBudget.exit();
+            }
+        }
+    }
+
+    private List<ConstraintViolation> validateStream(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken() != null ? parser.currentToken() : parser.nextToken();
+        if (token == null) {
+            return validateTree(MissingNode.getInstance());
+        }
+        // 不是对象或者需要整个数据时没法流式处理
+        if (token != JsonToken.START_OBJECT || retainedFields == null) {
+            JsonNode tree = parser.readValueAsTree();
+            return validateTree(tree == null ? MissingNode.getInstance() : tree);
+        }
+
+        // 条件表达式以及带点的 name 需要的字段
+        ObjectNode retained = JsonNodeFactory.instance.objectNode();
+        // 每个表单项读到字段时的校验结果，条件要等所有数据读完才能判断
+        PendingItem[] pending = new PendingItem[items.size()];
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            List<Integer> indexes = itemIndexes.get(fieldName);
+            boolean retain = retainedFields.contains(fieldName);
+            if (indexes == null && !retain) {
+                parser.skipChildren();
+                continue;
+            }
+            JsonNode value = parser.readValueAsTree();
+            if (retain) {
+                retained.set(fieldName, value);
+            }
+            if (indexes != null) {
+                for (int index : indexes) {
+                    // 重复的字段以最后一个为准，和整体解析一致
+                    pending[index] = new PendingItem(items.get(index), value);
+                }
+            }
+        }
+
+        ArrayList<ConstraintViolation> ret = new ArrayList<ConstraintViolation>();
+        for (FormRule rule : rules) {
+            if (!rule.rule.test(retained, null)) {
+                ret.add(new ConstraintViolation("", ConstraintViolation.FORM_RULE_CODE, rule.message, null));
+            }
+        }
+        for (int i = 0; i < items.size(); i++) {
+            CompiledFormItem item = items.get(i);
+            int mode = item.resolveMode(retained, null);
+            if (mode == CompiledFormItem.SKIP) {
+                continue;
+            }
+            if (pending[i] == null) {
+                // 数据中没有这个字段，或者是带点的 name，需要从保留的数据中按路径取
+                item.validateValue(item.resolveValue(retained), mode == CompiledFormItem.RULES_AND_REQUIRED, ret);
+                continue;
+            }
+            // 顺序和 validateValue 一致：规则、必填、每一行
+            ret.addAll(pending[i].ruleViolations);
+            if (mode == CompiledFormItem.RULES_AND_REQUIRED && pending[i].requiredViolation != null) {
+                ret.add(pending[i].requiredViolation);
+            }
+            ret.addAll(pending[i].rowViolations);
+        }
+        return ret;
+    }
+
+    // 表单级别的校验规则
+    private static final class FormRule {
+        private final Condition rule;
+        private final MessageTemplate message;
+
+        private FormRule(Condition rule, MessageTemplate message) {
+            this.rule = rule;
+            this.message = message;
+        }
+    }
+
+    // 流式校验时某个表单项已经算好的结果
+    private static final class PendingItem {
+        private final List<ConstraintViolation> ruleViolations;
+        private final ConstraintViolation requiredViolation;
+        private final List<ConstraintViolation> rowViolations;
+
+        private PendingItem(CompiledFormItem item, JsonNode value) {
+            this.ruleViolations = new ArrayList<>();
+            item.validateRules(value, ruleViolations);
+            this.requiredViolation = item.validateRequired(value);
+            this.rowViolations = new ArrayList<>();
+            item.validateRows(value, rowViolations);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.baidu.amis.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.script.SimpleBindings;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.JsonNodeType;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+/**
+ * 编译后的单个表单项，对应原来每次请求都要重新解析的 validations、requireOn 等配置
+ */
+final class CompiledFormItem {
+    // resolveMode 的结果，分别是跳过、只执行配置的规则、同时追加必填校验
+    static final int SKIP = 0;
+    static final int RULES = 1;
+    static final int RULES_AND_REQUIRED = 2;
+
+    // 字段名
+    private final String name;
+
+    // name 中带点时对应的数据路径，比如 a.b 对应 ["a", "b"]，不带点时为 null
+    private final String[] path;
+
+    // 是否配置了 required
+    private final boolean required;
+
+    // 各种条件表达式，没配置时为 null
+    private final Condition requireOn;
+    private final Condition visibleOn;
+    private final Condition hiddenOn;
+
+    // 从外层容器继承的条件，由外到内排列
+    private final Condition[] inheritedVisibleOn;
+    private final Condition[] inheritedHiddenOn;
+
+    // "hidden": true 或者 "visible": false 的表单项相当于禁用了，外层容器禁用时也一样
+    private final boolean disabled;
+
+    // 是否配置了 validations
+    private final boolean hasValidations;
+
+    // validations 里是否已经有 isRequired
+    private final boolean hasRequiredRule;
+
+    // 按配置顺序排好的规则，用数组是为了遍历时不创建迭代器
+    private final CompiledRule[] rules;
+
+    // required 或 requireOn 生效时追加的必填规则
+    private final CompiledRule requiredRule;
+
+    // combo、input-table 等数组字段每一行的校验，其它表单项为 null
+    private final CompiledRows rows;
+
+    private CompiledFormItem(String name, boolean required, Condition requireOn, Condition visibleOn,
+                             Condition hiddenOn, Scope scope,
+                             boolean disabled, boolean hasValidations, boolean hasRequiredRule,
+                             List<CompiledRule> rules, CompiledRule requiredRule, CompiledRows rows) {
+        this.name = name;
+        this.path = name.indexOf('.') > 0 ? name.split("\\.") : null;
+        this.required = required;
+        this.requireOn = requireOn;
+        this.visibleOn = visibleOn;
+        this.hiddenOn = hiddenOn;
+        this.inheritedVisibleOn = scope.visibleOn;
+        this.inheritedHiddenOn = scope.hiddenOn;
+        this.disabled = disabled || scope.disabled;
+        this.hasValidations = hasValidations;
+        this.hasRequiredRule = hasRequiredRule;
+        this.rules = rules.toArray(new CompiledRule[0]);
+        this.requiredRule = requiredRule;
+        this.rows = rows;
+    }
+
+    /**
+     * 编译表单项
+     *
+     * @param formItemSchema 表单项配置，编译过程中不会修改它
+     * @param bundle         报错信息的语言包
+     * @param scope          外层容器，不在容器中时是 {@link Scope#ROOT}
+     * @return 没有 name 的表单项不需要校验，返回 null
+     */
+    static CompiledFormItem compile(JsonNode formItemSchema, MessageBundle bundle, Scope scope) {
+        JsonNode name = formItemSchema.get("name");
+        if (name == null) {
+            return null;
+        }
+
+        JsonNode required = formItemSchema.get("required");
+
+        JsonNode validations = formItemSchema.get("validations");
+        List<CompiledRule> rules = new ArrayList<>();
+        boolean hasRequiredRule = false;
+        if (validations != null) {
+            JsonNodeType validationsNodeType = validations.getNodeType();
+            // 将老 string 写法转成新的对象方式
+            if (validationsNodeType == JsonNodeType.STRING) {
+                String[] validateWithValues = validations.asText().split(",");
+                for (String validateWithValue : validateWithValues) {
+                    String[] validateAndValue = validateWithValue.split(":");
+                    JsonNode validateOption = validateAndValue.length > 1
+                            ? TextNode.valueOf(validateAndValue[1])
+                            : BooleanNode.TRUE;
+                    hasRequiredRule |= addRule(rules, validateAndValue[0], validateOption, formItemSchema, bundle);
+                }
+            } else if (validations.isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> it = validations.fields();
+                while (it.hasNext()) {
+                    Map.Entry<String, JsonNode> entry = it.next();
+                    hasRequiredRule |= addRule(rules, entry.getKey(), entry.getValue(), formItemSchema, bundle);
+                }
+            }
+        }
+
+        return new CompiledFormItem(name.asText(),
+                required != null && required.asBoolean(),
+                compileCondition(formItemSchema.get("requireOn")),
+                compileCondition(formItemSchema.get("visibleOn")),
+                compileCondition(formItemSchema.get("hiddenOn")),
+                scope,
+                isDisabled(formItemSchema),
+                validations != null,
+                hasRequiredRule,
+                rules,
+                CompiledRule.compile("isRequired", BooleanNode.TRUE, formItemSchema, bundle),
+                CompiledRows.compile(formItemSchema, bundle));
+    }
+
+    // 添加规则，返回是否是 isRequired
+    private static boolean addRule(List<CompiledRule> rules, String validateName, JsonNode validateOption,
+                                   JsonNode formItemSchema, MessageBundle bundle) {
+        CompiledRule rule = CompiledRule.compile(validateName, validateOption, formItemSchema, bundle);
+        if (rule != null) {
+            rules.add(rule);
+        }
+        return "isRequired".equals(validateName);
+    }
+
+    // "hidden": true 或者 "visible": false
+    private static boolean isDisabled(JsonNode schema) {
+        JsonNode visible = schema.get("visible");
+        JsonNode hidden = schema.get("hidden");
+        return (visible != null && !visible.asBoolean()) || (hidden != null && hidden.asBoolean());
+    }
+
+    // 空字符串的表达式等同于没配置
+    private static Condition compileCondition(JsonNode node) {
+        if (node == null || node.asText().isEmpty()) {
+            return null;
+        }
+        return Condition.compile(node.asText());
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * 数据路径的第一段，name 不带点时就是 name
+     */
+    String getPathHead() {
+        return path == null ? name : path[0];
+    }
+
+    /**
+     * 从表单数据中取出这个表单项的值，优先按完整的 name 取，没有时再按路径取
+     */
+    JsonNode resolveValue(JsonNode data) {
+        JsonNode value = data.get(name);
+        if (value != null || path == null) {
+            return value;
+        }
+        value = data;
+        for (String segment : path) {
+            value = value.get(segment);
+            if (value == null) {
+                return null;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 把用到的顶层字段加到 fields 中
+     *
+     * @return 有条件需要整个数据时返回 false
+     */
+    boolean collectConditionFields(Set<String> fields) {
+        boolean partial = collectFields(requireOn, fields) && collectFields(visibleOn, fields)
+                && collectFields(hiddenOn, fields);
+        for (Condition condition : inheritedVisibleOn) {
+            partial &= collectFields(condition, fields);
+        }
+        for (Condition condition : inheritedHiddenOn) {
+            partial &= collectFields(condition, fields);
+        }
+        return partial;
+    }
+
+    static boolean collectFields(Condition condition, Set<String> fields) {
+        if (condition == null) {
+            return true;
+        }
+        Set<String> referenced = condition.getReferencedFields();
+        if (referenced == null) {
+            return false;
+        }
+        fields.addAll(referenced);
+        return true;
+    }
+
+    /**
+     * 校验单个表单项，违反的规则会追加到 violations 中
+     *
+     * @param data         表单数据
+     * @param dataBindings 脚本执行需要的数据，为 null 时在需要执行脚本时才生成
+     * @param violations   用于收集结果
+     */
+    void validate(JsonNode data, SimpleBindings dataBindings, List<ConstraintViolation> violations) {
+        int mode = resolveMode(data, dataBindings);
+        if (mode != SKIP) {
+            validateValue(resolveValue(data), mode == RULES_AND_REQUIRED, violations);
+        }
+    }
+
+    /**
+     * 根据 requireOn、visibleOn、hiddenOn 等条件判断需要做哪些校验
+     *
+     * @return {@link #SKIP}、{@link #RULES} 或 {@link #RULES_AND_REQUIRED}
+     */
+    int resolveMode(JsonNode data, SimpleBindings dataBindings) {
+        // 将 requireOn 转成 isRequired
+        boolean hasRequireOn = false;
+        if (requireOn != null) {
+            hasRequireOn = requireOn.test(data, dataBindings);
+        }
+
+        boolean needRequire = (hasRequireOn || required) && !hasRequiredRule;
+        if (!hasValidations && !needRequire && rows == null) {
+            return SKIP;
+        }
+
+        // 先看外层容器是否显示，再看自己的 visibleOn 和 hiddenOn
+        for (Condition condition : inheritedVisibleOn) {
+            if (!condition.test(data, dataBindings)) {
+                return SKIP;
+            }
+        }
+        for (Condition condition : inheritedHiddenOn) {
+            if (condition.test(data, dataBindings)) {
+                return SKIP;
+            }
+        }
+        if (visibleOn != null && !visibleOn.test(data, dataBindings)) {
+            return SKIP;
+        }
+        if (hiddenOn != null && hiddenOn.test(data, dataBindings)) {
+            return SKIP;
+        }
+
+        if (disabled) {
+            return SKIP;
+        }
+        return needRequire ? RULES_AND_REQUIRED : RULES;
+    }
+
+    /**
+     * 只执行规则，不管条件，数组字段还会校验每一行
+     *
+     * @param itemData    字段值
+     * @param needRequire 是否追加必填校验
+     * @param violations  用于收集结果
+     */
+    void validateValue(JsonNode itemData, boolean needRequire, List<ConstraintViolation> violations) {
+        validateRules(itemData, violations);
+        if (needRequire) {
+            ConstraintViolation violation = validateRequired(itemData);
+            if (violation != null) {
+                violations.add(violation);
+            }
+        }
+        validateRows(itemData, violations);
+    }
+
+    /**
+     * 单独执行配置的规则，不包括必填和每一行的校验
+     */
+    void validateRules(JsonNode itemData, List<ConstraintViolation> violations) {
+        for (CompiledRule rule : rules) {
+            ConstraintViolation violation = rule.validate(name, itemData);
+            if (violation != null) {
+                violations.add(violation);
+            }
+        }
+    }
+
+    /**
+     * 单独校验数组字段的每一行，不是 combo、input-table 等数组字段时什么都不做
+     */
+    void validateRows(JsonNode itemData, List<ConstraintViolation> violations) {
+        if (rows != null) {
+            rows.validate(name, itemData, violations);
+        }
+    }
+
+    /**
+     * 单独执行必填校验
+     *
+     * @return 通过时返回 null
+     */
+    ConstraintViolation validateRequired(JsonNode itemData) {
+        // isRequired 被从 ValidationRules 中删除时没有必填规则
+        return requiredRule == null ? null : requiredRule.validate(name, itemData);
+    }
+
+    /**
+     * 表单项所在的容器，比如 group、fieldset、tabs 中的某个 tab，记录从外层一路继承下来的条件
+     * 编译时按容器嵌套逐层生成，校验时不需要再遍历容器
+     */
+    static final class Scope {
+        static final Scope ROOT = new Scope(new Condition[0], new Condition[0], false);
+
+        private final Condition[] visibleOn;
+        private final Condition[] hiddenOn;
+        private final boolean disabled;
+
+        private Scope(Condition[] visibleOn, Condition[] hiddenOn, boolean disabled) {
+            this.visibleOn = visibleOn;
+            this.hiddenOn = hiddenOn;
+            this.disabled = disabled;
+        }
+
+        /**
+         * 进入下一层容器
+         *
+         * @param containerSchema 容器的配置
+         */
+        Scope enter(JsonNode containerSchema) {
+            return new Scope(append(visibleOn, compileCondition(containerSchema.get("visibleOn"))),
+                    append(hiddenOn, compileCondition(containerSchema.get("hiddenOn"))),
+                    disabled || isDisabled(containerSchema));
+        }
+
+        private static Condition[] append(Condition[] conditions, Condition condition) {
+            if (condition == null) {
+                return conditions;
+            }
+            Condition[] result = Arrays.copyOf(conditions, conditions.length + 1);
+            result[conditions.length] = condition;
+            return result;
+        }
+    }
+}
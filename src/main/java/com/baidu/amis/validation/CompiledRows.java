@@ -0,0 +1,290 @@
+package com.baidu.amis.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.baidu.amis.util.ScriptBudget;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * combo、input-table、input-array 这类数组字段中每一行的校验计划
+ * 每一行按子表单项校验，报错的字段名带上行号，比如 rows[123].price，input-array 的每一项是单个值，字段名是 rows[123]
+ * 行数超过 {@link Validator#getRowParallelThreshold()} 时按块交给 {@link Validator#getRowExecutor()} 并行执行，当前线程也会参与执行
+ */
+final class CompiledRows {
+
+    // 每一行是对象的组件，子表单项在 items 中，input-table 在 columns 中
+    private static final Set<String> OBJECT_ROW_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "combo", "input-table")));
+
+    // 每一行是单个值的组件，items 就是这个值对应的表单项
+    private static final String VALUE_ROW_TYPE = "input-array";
+
+    // 每一行的表单项，对象行是各个字段，单值行只有一个 name 为空字符串的表单项
+    private final List<CompiledFormItem> items;
+
+    // 是否是单值行
+    private final boolean valueRow;
+
+    private CompiledRows(List<CompiledFormItem> items, boolean valueRow) {
+        this.items = items;
+        this.valueRow = valueRow;
+    }
+
+    /**
+     * 编译数组字段的子表单项
+     *
+     * @return 不是数组字段或者没有子表单项时返回 null
+     */
+    static CompiledRows compile(JsonNode formItemSchema, MessageBundle bundle) {
+        JsonNode type = formItemSchema.get("type");
+        if (type == null) {
+            return null;
+        }
+        String typeName = type.asText();
+        if (VALUE_ROW_TYPE.equals(typeName)) {
+            JsonNode itemSchema = formItemSchema.get("items");
+            if (itemSchema == null || !itemSchema.isObject()) {
+                return null;
+            }
+            // 每一项没有自己的名字，用空字符串代替，生成报错时只保留行号
+            ObjectNode named = itemSchema.deepCopy();
+            named.put("name", "");
+            CompiledFormItem item = CompiledFormItem.compile(named, bundle, CompiledFormItem.Scope.ROOT);
+            return new CompiledRows(Collections.singletonList(item), true);
+        }
+        if (!OBJECT_ROW_TYPES.contains(typeName)) {
+            return null;
+        }
+
+        List<CompiledFormItem> items = new ArrayList<>();
+        JsonNode body = formItemSchema.get("items");
+        if (body == null) {
+            body = formItemSchema.get("controls");
+        }
+        if (body != null) {
+            CompiledForm.addItems(items, body, bundle, CompiledFormItem.Scope.ROOT);
+        }
+        JsonNode columns = formItemSchema.get("columns");
+        if (columns != null && columns.isArray()) {
+            for (JsonNode column : columns) {
+                addColumn(items, column, bundle);
+            }
+        }
+        return items.isEmpty() ? null : new CompiledRows(Collections.unmodifiableList(items), false);
+    }
+
+    // input-table 的列，校验配置可能写在列上，也可能写在 quickEdit 里
+    private static void addColumn(List<CompiledFormItem> items, JsonNode column, MessageBundle bundle) {
+        JsonNode name = column.get("name");
+        if (name == null) {
+            return;
+        }
+        JsonNode quickEdit = column.get("quickEdit");
+        JsonNode itemSchema = column;
+        if (quickEdit != null && quickEdit.isObject()) {
+            ObjectNode merged = quickEdit.deepCopy();
+            if (!merged.has("name")) {
+                merged.set("name", name);
+            }
+            itemSchema = merged;
+        }
+        CompiledFormItem item = CompiledFormItem.compile(itemSchema, bundle, CompiledFormItem.Scope.ROOT);
+        if (item != null) {
+            items.add(item);
+        }
+    }
+
+    /**
+     * 校验数组字段的值，违反的规则会追加到 violations 中
+     *
+     * @param name       数组字段的名字，会作为报错字段名的前缀
+     * @param value      数组字段的值，不是数组时只校验对象形式的单行，比如非 multiple 的 combo
+     * @param violations 用于收集结果
+     */
+    void validate(String name, JsonNode value, List<ConstraintViolation> violations) {
+        if (value == null) {
+            return;
+        }
+        if (!value.isArray()) {
+            if (!valueRow && value.isObject()) {
+                int mark = violations.size();
+                validateRow(value, violations);
+                rename(violations, mark, name, -1);
+            }
+            return;
+        }
+
+        int size = value.size();
+        int threshold = Validator.getRowParallelThreshold();
+        if (size <= threshold) {
+            validateRows(name, value, 0, size, violations);
+            return;
+        }
+
+        // 分块并行，每块的结果单独收集，最后按行的顺序合并
+        int chunkSize = Math.max(CompiledForm.DEFAULT_BATCH_CHUNK_SIZE, threshold / 4);
+        ParallelRows parallel = new ParallelRows(name, value, size, chunkSize);
+        parallel.run(Validator.getRowExecutor());
+        parallel.collect(violations);
+    }
+
+    private void validateRows(String name, JsonNode rows, int from, int to, List<ConstraintViolation> violations) {
+        for (int i = from; i < to; i++) {
+            int mark = violations.size();
+            validateRow(rows.get(i), violations);
+            rename(violations, mark, name, i);
+        }
+    }
+
+    // 给 mark 之后新增的违反加上路径前缀，只有这一行有违反时才生成带行号的字段名，index 为 -1 时不带行号
+    private static void rename(List<ConstraintViolation> violations, int mark, String name, int index) {
+        if (violations.size() == mark) {
+            return;
+        }
+        String prefix = index < 0 ? name : name + "[" + index + "]";
+        for (int j = mark; j < violations.size(); j++) {
+            ConstraintViolation violation = violations.get(j);
+            String itemName = violation.getName();
+            violations.set(j, violation.withName(itemName.isEmpty() ? prefix : prefix + "." + itemName));
+        }
+    }
+
+    // 校验一行，行内的条件表达式以这一行的数据作为 data
+    private void validateRow(JsonNode row, List<ConstraintViolation> violations) {
+        if (valueRow) {
+            CompiledFormItem item = items.get(0);
+            int mode = item.resolveMode(row, null);
+            if (mode != CompiledFormItem.SKIP) {
+                item.validateValue(row, mode == CompiledFormItem.RULES_AND_REQUIRED, violations);
+            }
+        } else {
+            for (int i = 0; i < items.size(); i++) {
+                items.get(i).validate(row, null, violations);
+            }
+        }
+    }
+
+    /**
+     * 一次分块并行校验，块不是固定分给某个任务的，调用方线程和线程池中的任务都从同一个计数器中领取下一块
+     * 调用方线程自己也会执行，并且只等待已经被别的线程领走、正在执行的块，不会等待还在线程池队列中排队的任务，
+     * 所以即使调用方本身就运行在这个线程池中，线程池被占满时也不会互相等待导致死锁
+     */
+    private final class ParallelRows {
+        private final String name;
+
+        private final JsonNode rows;
+
+        private final int size;
+
+        private final int chunkSize;
+
+        private final int chunks;
+
+        // 下一个待领取的块
+        private final AtomicInteger next = new AtomicInteger();
+
+        private final AtomicReferenceArray<List<ConstraintViolation>> results;
+
+        // 每完成一块减一
+        private final CountDownLatch done;
+
+        // 第一个出错的块抛出的异常
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        // 发起校验的线程的请求预算，线程池中执行的块也受它限制
+        private final long deadline = ScriptBudget.currentDeadline();
+
+        private ParallelRows(String name, JsonNode rows, int size, int chunkSize) {
+            this.name = name;
+            this.rows = rows;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunks = (size + chunkSize - 1) / chunkSize;
+            this.results = new AtomicReferenceArray<>(chunks);
+            this.done = new CountDownLatch(chunks);
+        }
+
+        /**
+         * 把除第一块以外的块交给线程池，然后在当前线程中领取执行，最后等待所有块完成
+         */
+        private void run(Executor executor) {
+            for (int i = 1; i < chunks; i++) {
+                try {
+                    executor.execute(this::drainInRequest);
+                } catch (RejectedExecutionException e) {
+                    // 线程池不接受时剩下的块都由当前线程执行
+                    break;
+                }
+            }
+            drain();
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void drainInRequest() {
+            boolean budget = ScriptBudget.enter(deadline);
+            try {
+                drain();
+            } finally {
+                if (budget) {
+                    ScriptBudget.exit();
+                }
+            }
+        }
+
+        // 不断领取下一块，直到没有剩下的块，已经有块出错时剩下的块不再校验
+        private void drain() {
+            int chunk;
+            while ((chunk = next.getAndIncrement()) < chunks) {
+                try {
+                    if (failure.get() != null) {
+                        continue;
+                    }
+                    int from = chunk * chunkSize;
+                    List<ConstraintViolation> chunkViolations = new ArrayList<>();
+                    validateRows(name, rows, from, Math.min(from + chunkSize, size), chunkViolations);
+                    results.set(chunk, chunkViolations);
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        }
+
+        private void collect(List<ConstraintViolation> violations) {
+            Throwable e = failure.get();
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            for (int i = 0; i < chunks; i++) {
+                violations.addAll(results.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.baidu.amis.validation;
+
+import com.baidu.amis.metrics.Metrics;
+import com.baidu.amis.metrics.MetricsListener;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 编译后的单条校验规则，规则参数和报错信息模板都在编译时确定好了，报错信息在用到时才生成
+ */
+final class CompiledRule {
+    // 绑定好参数的规则
+    private final ValidationRule rule;
+
+    // 规则名
+    private final String code;
+
+    // 解析好的报错信息模板
+    private final MessageTemplate template;
+
+    // 模板参数，没有时为 null
+    private final String[] args;
+
+    private CompiledRule(String code, ValidationRule rule, MessageTemplate template, String[] args) {
+        this.code = code;
+        this.rule = rule;
+        this.template = template;
+        this.args = args;
+    }
+
+    /**
+     * 校验某个值，不通过时返回违反信息，通过时返回 null
+     *
+     * @param fieldName 字段名
+     * @param value     字段值
+     */
+    ConstraintViolation validate(String fieldName, JsonNode value) {
+        MetricsListener metrics = Metrics.get();
+        boolean passed;
+        if (metrics.isEnabled()) {
+            long start = System.nanoTime();
+            passed = rule.test(value);
+            metrics.onRule(code, System.nanoTime() - start, passed);
+        } else {
+            passed = rule.test(value);
+        }
+        if (passed) {
+            return null;
+        }
+        return new ConstraintViolation(fieldName, code, template, args);
+    }
+
+    /**
+     * 将 validations 中的某一项编译成规则，规则通过 {@link ValidationRules} 查找，参数在这里就解析好
+     *
+     * @param validateName   规则名
+     * @param validateOption 规则参数
+     * @param formItemSchema 表单项配置，用于读取自定义的 validationErrors
+     * @param bundle         没有自定义报错信息时使用的语言包
+     * @return 不认识的规则返回 null
+     */
+    static CompiledRule compile(String validateName, JsonNode validateOption, JsonNode formItemSchema,
+                                MessageBundle bundle) {
+        ValidationRules.Registration registration = ValidationRules.lookup(validateName);
+        if (registration == null) {
+            return null;
+        }
+        ValidationRule rule = registration.factory.create(validateOption);
+        if (rule == null) {
+            return null;
+        }
+        return build(validateName, rule, formItemSchema, bundle, registration.defaultMessage);
+    }
+
+    /**
+     * 生成规则，同时确定好报错信息的模板
+     *
+     * @param code           规则名，也用于读取 validationErrors 中的自定义信息
+     * @param rule           绑定好参数的规则
+     * @param formItemSchema 表单项的配置
+     * @param bundle         语言包
+     * @param defaultMessage 语言包中都没有时使用的模板，可以为 null
+     */
+    private static CompiledRule build(String code, ValidationRule rule, JsonNode formItemSchema,
+                                      MessageBundle bundle, MessageTemplate defaultMessage) {
+        MessageTemplate template = null;
+        JsonNode validationErrors = formItemSchema.get("validationErrors");
+        if (validationErrors != null && validationErrors.isObject()) {
+            JsonNode customValidationMessage = validationErrors.get(code);
+            if (customValidationMessage != null && !customValidationMessage.asText().isEmpty()) {
+                template = MessageTemplate.parse(customValidationMessage.asText());
+            }
+        }
+        if (template == null) {
+            template = bundle.getTemplate(code);
+        }
+        if (template == null) {
+            template = MessageBundle.ZH_CN.getTemplate(code);
+        }
+        if (template == null) {
+            template = defaultMessage;
+        }
+
+        String messageArg = rule.getMessageArg();
+        return new CompiledRule(code, rule, template, messageArg == null ? null : new String[]{messageArg});
+    }
+}
@@ -0,0 +1,74 @@
+package com.baidu.amis.validation;
+
+import java.util.Set;
+import java.util.logging.Logger;
+
+import javax.script.SimpleBindings;
+
+import com.baidu.amis.expression.Expression;
+import com.baidu.amis.expression.ExpressionException;
+import com.baidu.amis.util.JsonBindings;
+import com.baidu.amis.util.Script;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * requireOn、visibleOn、hiddenOn 以及表单 rules 中的条件表达式
+ * 优先使用内置的表达式解析器直接在 JsonNode 上求值，内置解析器不支持的写法才交给脚本引擎
+ */
+final class Condition {
+
+    private static Logger logger = Logger.getLogger("Validator");
+
+    private final String source;
+
+    // 内置解析器不支持时为 null
+    private final Expression expression;
+
+    private Condition(String source, Expression expression) {
+        this.source = source;
+        this.expression = expression;
+    }
+
+    static Condition compile(String source) {
+        Expression expression;
+        try {
+            expression = Expression.parse(source);
+        } catch (ExpressionException e) {
+            expression = null;
+        }
+        return new Condition(source, expression);
+    }
+
+    /**
+     * 执行条件判断，和脚本引擎一样，执行出错时返回 false
+     *
+     * @param data         表单数据
+     * @param dataBindings 脚本引擎需要的数据，为 null 时在需要执行脚本时才基于 data 生成
+     * @throws com.baidu.amis.util.ScriptBudgetExceededException 脚本超出了预算，不会当成 false
+     */
+    boolean test(JsonNode data, SimpleBindings dataBindings) {
+        if (expression == null) {
+            return Script.eval(source, dataBindings != null ? dataBindings : JsonBindings.of(data));
+        }
+        try {
+            return expression.test(data);
+        } catch (ExpressionException e) {
+            logger.warning(e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 条件中用到的顶层字段
+     *
+     * @return 需要整个数据时返回 null，交给脚本引擎执行的条件无法分析，也返回 null
+     */
+    Set<String> getReferencedFields() {
+        return expression == null ? null : expression.getReferencedFields();
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
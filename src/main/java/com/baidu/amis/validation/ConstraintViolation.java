@@ -1,14 +1,33 @@
 package com.baidu.amis.validation;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * 仿照 javax.validation 力度命名，但多了个字段名
+ * 报错信息是在第一次调用 {@link #getMessage()} 时才生成的，只需要规则名的场景可以直接用 {@link #getCode()}
  */
 
 public class ConstraintViolation {
+    /**
+     * 表单级别 rules 违反时的规则名
+     */
+    public static final String FORM_RULE_CODE = "rules";
+
     // 字段名
     private String name;
 
-    // 违反信息
+    // 规则名，比如 isRequired
+    private String code;
+
+    // 报错信息中的参数，比如 maxLength 的长度
+    private String[] args;
+
+    // 报错信息模板，直接传入报错信息时为 null
+    private MessageTemplate template;
+
+    // 违反信息，延迟生成
     private String message;
 
     public ConstraintViolation(String name, String message) {
@@ -16,12 +35,57 @@ public class ConstraintViolation {
         this.message = message;
     }
 
+    /**
+     * @param name     字段名
+     * @param code     规则名
+     * @param template 报错信息模板
+     * @param args     模板参数，没有时为 null
+     */
+    public ConstraintViolation(String name, String code, MessageTemplate template, String[] args) {
+        this.name = name;
+        this.code = code;
+        this.template = template;
+        this.args = args;
+    }
+
+    /**
+     * 字段名，combo、input-table 等数组字段中的行会带上行号，比如 rows[123].price，表单级别的 rules 是空字符串
+     */
     public String getName() {
         return name;
     }
 
+    /**
+     * 换一个字段名，其它信息不变，用于给数组字段中的行加上路径前缀
+     */
+    ConstraintViolation withName(String newName) {
+        ConstraintViolation copy = new ConstraintViolation(newName, code, template, args);
+        copy.message = message;
+        return copy;
+    }
+
+    /**
+     * 违反的规则名，直接通过报错信息创建的为 null
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 报错信息中的参数
+     */
+    public List<String> getArgs() {
+        return args == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(args));
+    }
+
     public String getMessage() {
-        return message;
+        // 多线程同时调用时可能会生成多次，但结果是一样的
+        String result = message;
+        if (result == null && template != null) {
+            result = template.render(args);
+            message = result;
+        }
+        return result;
     }
 
 }
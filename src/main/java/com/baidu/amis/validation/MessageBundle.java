@@ -0,0 +1,56 @@
+package com.baidu.amis.validation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 报错信息的语言包，按规则名提供模板，在编译表单时确定，校验时不会再查找
+ * 内置了 {@link #ZH_CN} 和 {@link #EN_US}，也可以通过 {@link #of(Map, MessageBundle)} 自定义
+ *
+ * <pre>
+ * CompiledForm form = Validator.compile(formSchema, MessageBundle.EN_US);
+ * </pre>
+ */
+@FunctionalInterface
+public interface MessageBundle {
+
+    /**
+     * 中文，和 amis 的 locale/zh-CN.ts 一致，也是默认的语言包
+     */
+    MessageBundle ZH_CN = of(ViolationMessage.zhCN(), null);
+
+    /**
+     * 英文
+     */
+    MessageBundle EN_US = of(ViolationMessage.enUS(), ZH_CN);
+
+    /**
+     * 获取规则对应的模板
+     *
+     * @param code 规则名，比如 isRequired、maxLength
+     * @return 没有时返回 null
+     */
+    MessageTemplate getTemplate(String code);
+
+    /**
+     * 生成自定义语言包，模板会在这里一次性解析好
+     *
+     * @param templates 规则名对应的模板
+     * @param fallback  找不到时使用的语言包，可以为 null
+     */
+    static MessageBundle of(Map<String, String> templates, MessageBundle fallback) {
+        Map<String, MessageTemplate> parsed = new HashMap<>();
+        for (Map.Entry<String, String> entry : templates.entrySet()) {
+            parsed.put(entry.getKey(), MessageTemplate.parse(entry.getValue()));
+        }
+        Map<String, MessageTemplate> immutable = Collections.unmodifiableMap(parsed);
+        return code -> {
+            MessageTemplate template = immutable.get(code);
+            if (template == null && fallback != null) {
+                return fallback.getTemplate(code);
+            }
+            return template;
+        };
+    }
+}
@@ -0,0 +1,78 @@
+package com.baidu.amis.validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 解析好的报错信息模板，和 amis 一样用 $1 表示第一个参数，$2 表示第二个，以此类推
+ * 模板只在编译表单时解析一次，渲染时只需要拼接，不需要再查找替换
+ */
+public final class MessageTemplate {
+
+    private final String template;
+
+    // 文本片段，和 argIndexes 交替拼接：texts[0] + args[argIndexes[0]] + texts[1] + ...
+    private final String[] texts;
+
+    private final int[] argIndexes;
+
+    private MessageTemplate(String template, String[] texts, int[] argIndexes) {
+        this.template = template;
+        this.texts = texts;
+        this.argIndexes = argIndexes;
+    }
+
+    /**
+     * 解析模板
+     *
+     * @param template 模板，比如 "请输入大于 $1 的值"
+     */
+    public static MessageTemplate parse(String template) {
+        List<String> texts = new ArrayList<>();
+        List<Integer> argIndexes = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < template.length() - 1; i++) {
+            char next = template.charAt(i + 1);
+            if (template.charAt(i) == '$' && next >= '1' && next <= '9') {
+                texts.add(template.substring(start, i));
+                argIndexes.add(next - '1');
+                start = i + 2;
+                i++;
+            }
+        }
+        texts.add(template.substring(start));
+
+        int[] indexes = new int[argIndexes.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = argIndexes.get(i);
+        }
+        return new MessageTemplate(template, texts.toArray(new String[0]), indexes);
+    }
+
+    /**
+     * 生成报错信息，缺少的参数会保留原来的 $n
+     *
+     * @param args 参数
+     */
+    public String render(String[] args) {
+        if (argIndexes.length == 0) {
+            return texts[0];
+        }
+        StringBuilder sb = new StringBuilder(template.length() + 16);
+        for (int i = 0; i < argIndexes.length; i++) {
+            sb.append(texts[i]);
+            int index = argIndexes[i];
+            if (args != null && index < args.length && args[index] != null) {
+                sb.append(args[index]);
+            } else {
+                sb.append('$').append(index + 1);
+            }
+        }
+        return sb.append(texts[argIndexes.length]).toString();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,74 @@
+package com.baidu.amis.validation;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 正则及每个线程复用的 Matcher，匹配时不用每次都创建新的 Matcher
+ * 内置的正则数量固定，每个正则有自己的 ThreadLocal；matchRegexp 这样随表单编译出来的正则不能这样做，
+ * 表单被缓存淘汰或者被替换后，每个长期存在的线程里都会留下它的 Matcher，所以这些正则共用每个线程中固定数量的槽位
+ */
+final class RegexMatcher {
+
+    // 共用的槽位数，必须是 2 的幂
+    private static final int SHARED_SLOTS = 32;
+
+    // 每个线程中按 Pattern 分槽的 Matcher，槽位被别的正则占用时直接替换
+    private static final ThreadLocal<Matcher[]> SHARED = ThreadLocal.withInitial(() -> new Matcher[SHARED_SLOTS]);
+
+    private final Pattern pattern;
+
+    // 共用槽位时为 null
+    private final ThreadLocal<Matcher> matchers;
+
+    private final int slot;
+
+    private RegexMatcher(Pattern pattern, boolean dedicated) {
+        this.pattern = pattern;
+        this.matchers = dedicated ? ThreadLocal.withInitial(() -> pattern.matcher("")) : null;
+        this.slot = System.identityHashCode(pattern) & (SHARED_SLOTS - 1);
+    }
+
+    /**
+     * 编译内置的正则，需要保存在静态变量中
+     */
+    static RegexMatcher compile(String regex) {
+        return new RegexMatcher(Pattern.compile(regex), true);
+    }
+
+    static RegexMatcher compile(String regex, int flags) {
+        return new RegexMatcher(Pattern.compile(regex, flags), true);
+    }
+
+    /**
+     * 随表单创建的正则，和别的正则共用每个线程中的槽位
+     */
+    static RegexMatcher shared(Pattern pattern) {
+        return new RegexMatcher(pattern, false);
+    }
+
+    Pattern pattern() {
+        return pattern;
+    }
+
+    /**
+     * 和 pattern.matcher(text).find() 一样
+     */
+    boolean find(String text) {
+        Matcher matcher = matchers != null ? matchers.get() : sharedMatcher();
+        boolean found = matcher.reset(text).find();
+        // 不再引用输入，避免线程一直持有大字符串
+        matcher.reset("");
+        return found;
+    }
+
+    private Matcher sharedMatcher() {
+        Matcher[] slots = SHARED.get();
+        Matcher matcher = slots[slot];
+        if (matcher == null || matcher.pattern() != pattern) {
+            matcher = pattern.matcher("");
+            slots[slot] = matcher;
+        }
+        return matcher;
+    }
+}
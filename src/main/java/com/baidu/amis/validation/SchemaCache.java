@@ -0,0 +1,219 @@
+package com.baidu.amis.validation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.baidu.amis.util.BoundedCache;
+import com.baidu.amis.util.JSONHelper;
+import com.baidu.amis.util.SchemaIndex;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 按 schema 内容缓存解析好的页面，同一个页面反复提交时就不用再解析整个页面 schema 了
+ * 页面解析时会建立 {@link SchemaIndex}，页面里的每个表单在第一次用到时才编译，同一个页面的多个表单共用一份解析结果
+ * 缓存同时按页面数和 schema 字符数淘汰，schema 内容变了自然就是新的缓存项，旧的会被逐渐淘汰掉
+ * schema 也可以直接以字节的形式传入，按字节内容缓存，和同样内容的字符串是不同的缓存项
+ */
+public class SchemaCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    // 默认最多缓存 6400 万字符的 schema，字节形式的 schema 按字节数计算
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    // 键是 String 或者 ByteBuffer，ByteBuffer 的 equals 和 hashCode 是按内容计算的
+    // String 的 hashCode 是缓存在对象上的，所以同一个字符串反复查找的开销很小
+    private final BoundedCache<Object, Page> cache;
+
+    private final MessageBundle bundle;
+
+    public SchemaCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_WEIGHT);
+    }
+
+    /**
+     * @param maxEntries 最多缓存多少个页面
+     * @param maxWeight  缓存的 schema 字符数上限
+     */
+    public SchemaCache(int maxEntries, long maxWeight) {
+        this(maxEntries, maxWeight, MessageBundle.ZH_CN);
+    }
+
+    /**
+     * @param maxEntries 最多缓存多少个页面
+     * @param maxWeight  缓存的 schema 字符数上限
+     * @param bundle     编译表单时使用的语言包
+     */
+    public SchemaCache(int maxEntries, long maxWeight, MessageBundle bundle) {
+        this.cache = new BoundedCache<>(maxEntries, maxWeight, (key, page) -> key instanceof String
+                ? ((String) key).length()
+                : ((ByteBuffer) key).remaining());
+        this.bundle = Objects.requireNonNull(bundle);
+    }
+
+    /**
+     * 获取编译好的表单，没有缓存时会解析 schema 并查找表单
+     *
+     * @param amisSchemaStr amis schema 的字符串
+     * @param formName      表单名，为 null 时表示 schema 本身就是表单
+     * @return 编译好的表单
+     * @throws JsonProcessingException
+     * @throws IllegalArgumentException 页面中没有这个表单
+     */
+    public CompiledForm get(String amisSchemaStr, String formName) throws JsonProcessingException {
+        return getPage(amisSchemaStr).getForm(formName);
+    }
+
+    /**
+     * 获取编译好的表单，schema 是 UTF-8 等编码的字节，查找时不会复制字节，只有第一次缓存时才复制一份
+     *
+     * @param schema   schema 所在的数组
+     * @param offset   schema 的起始位置
+     * @param length   schema 的字节数
+     * @param formName 表单名，为 null 时表示 schema 本身就是表单
+     * @return 编译好的表单
+     * @throws IOException              schema 解析失败
+     * @throws IllegalArgumentException 页面中没有这个表单
+     */
+    public CompiledForm get(byte[] schema, int offset, int length, String formName) throws IOException {
+        return get(ByteBuffer.wrap(schema, offset, length), formName);
+    }
+
+    /**
+     * 获取编译好的表单，schema 是 ByteBuffer 中 position 到 limit 之间的字节，不会改变 buffer 的 position
+     *
+     * @param schema   schema 的字节，可以是堆外的 buffer
+     * @param formName 表单名，为 null 时表示 schema 本身就是表单
+     * @return 编译好的表单
+     * @throws IOException              schema 解析失败
+     * @throws IllegalArgumentException 页面中没有这个表单
+     */
+    public CompiledForm get(ByteBuffer schema, String formName) throws IOException {
+        ByteBuffer key = schema.slice();
+        Page page = cache.get(key);
+        if (page == null) {
+            page = new Page(SchemaIndex.build(JSONHelper.toJSONNode(key)), bundle);
+            // 调用方之后可能会复用这块内存，所以缓存的键要复制一份
+            ByteBuffer owned = ByteBuffer.allocate(key.remaining());
+            owned.put(key.duplicate()).flip();
+            cache.put(owned, page);
+        }
+        return page.getForm(formName);
+    }
+
+    /**
+     * 获取页面的索引，可以用来按 id 或 name 查找组件
+     *
+     * @param amisSchemaStr amis schema 的字符串
+     * @throws JsonProcessingException
+     */
+    public SchemaIndex getIndex(String amisSchemaStr) throws JsonProcessingException {
+        return getPage(amisSchemaStr).index;
+    }
+
+    private Page getPage(String amisSchemaStr) throws JsonProcessingException {
+        Page page = cache.get(amisSchemaStr);
+        if (page == null) {
+            // 并发时可能会重复解析，但结果是一样的，不影响正确性
+            page = new Page(SchemaIndex.build(JSONHelper.toJSONNode(amisSchemaStr)), bundle);
+            cache.put(amisSchemaStr, page);
+        }
+        return page;
+    }
+
+    /**
+     * 删除某个表单的编译结果，页面的解析结果仍然保留
+     */
+    public void invalidate(String amisSchemaStr, String formName) {
+        Page page = cache.get(amisSchemaStr);
+        if (page != null) {
+            page.invalidate(formName);
+        }
+    }
+
+    /**
+     * 删除某个 schema 的缓存，包括其中所有表单
+     */
+    public void invalidate(String amisSchemaStr) {
+        cache.invalidate(amisSchemaStr);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 缓存的页面数
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * 当前缓存的 schema 字符数
+     */
+    public long weight() {
+        return cache.weight();
+    }
+
+    public long hitCount() {
+        return cache.hitCount();
+    }
+
+    public long missCount() {
+        return cache.missCount();
+    }
+
+    public long evictionCount() {
+        return cache.evictionCount();
+    }
+
+    // 解析好的页面及已经编译的表单
+    private static final class Page {
+        private final SchemaIndex index;
+
+        private final MessageBundle bundle;
+
+        private final ConcurrentHashMap<String, CompiledForm> forms = new ConcurrentHashMap<>();
+
+        // 整个 schema 就是表单的情况，ConcurrentHashMap 不支持 null 键，所以单独存
+        private volatile CompiledForm rootForm;
+
+        private Page(SchemaIndex index, MessageBundle bundle) {
+            this.index = index;
+            this.bundle = bundle;
+        }
+
+        private CompiledForm getForm(String formName) {
+            if (formName == null) {
+                CompiledForm form = rootForm;
+                if (form == null) {
+                    form = Validator.compile(index.getRoot(), bundle);
+                    rootForm = form;
+                }
+                return form;
+            }
+            return forms.computeIfAbsent(formName, name -> {
+                JsonNode form = index.getForm(name);
+                if (form == null) {
+                    throw new IllegalArgumentException("form not found: " + name);
+                }
+                return Validator.compile(form, bundle);
+            });
+        }
+
+        private void invalidate(String formName) {
+            if (formName == null) {
+                rootForm = null;
+            } else {
+                forms.remove(formName);
+            }
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package com.baidu.amis.validation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.baidu.amis.util.JSONHelper;
+import com.baidu.amis.util.SchemaIndex;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 从目录中加载 amis 页面 schema，目录下（包括子目录）每个 .json 文件就是一个页面，页面名是去掉 .json 的相对路径，比如 user/edit
+ * 加载时会把页面中所有的表单都编译好，开启 {@link #startWatching()} 后，文件变化时会在后台线程中重新编译这个文件，
+ * 编译完成后整体替换，正在进行的校验要么用旧的结果要么用新的结果，不会看到加载了一半的页面
+ *
+ * <pre>
+ * SchemaStore store = new SchemaStore(Paths.get("/data/amis/pages"));
+ * store.load();
+ * store.startWatching();
+ * List&lt;ConstraintViolation&gt; violations = store.validate("user/edit", "userForm", data);
+ * </pre>
+ */
+public class SchemaStore implements Closeable {
+
+    /**
+     * 默认超过 256K 的文件通过内存映射读取
+     */
+    public static final long DEFAULT_MMAP_THRESHOLD = 256L * 1024;
+
+    private static final String SUFFIX = ".json";
+
+    private final Path root;
+
+    private final MessageBundle bundle;
+
+    private final long mmapThreshold;
+
+    // 所有页面，每次变化都会生成一个新的不可变 Map 整体替换
+    private volatile Map<String, Page> pages = Collections.emptyMap();
+
+    // 加载失败的文件，失败时会保留之前成功加载的结果
+    private final ConcurrentHashMap<String, Exception> failures = new ConcurrentHashMap<>();
+
+    // 修改 pages 时加锁，保证后台线程和 load 的修改不会互相覆盖
+    private final Object updateLock = new Object();
+
+    // 同一时间只有一个 load 在执行，这样 load 结束时就可以清空 changes
+    private final Object loadLock = new Object();
+
+    // 每次单个页面更新或删除时加一，由 updateLock 保护
+    private long version;
+
+    // 单个页面最后一次更新或删除时的 version，load 用它判断读文件之后页面有没有被监听线程换过，由 updateLock 保护
+    private final Map<String, Long> changes = new HashMap<>();
+
+    private WatchService watchService;
+
+    private Thread watcher;
+
+    // 监听的目录
+    private final Map<WatchKey, Path> watchedDirs = new ConcurrentHashMap<>();
+
+    /**
+     * @param root 页面 schema 所在的目录
+     */
+    public SchemaStore(Path root) {
+        this(root, MessageBundle.ZH_CN, DEFAULT_MMAP_THRESHOLD);
+    }
+
+    /**
+     * @param root          页面 schema 所在的目录
+     * @param bundle        编译表单时使用的语言包
+     * @param mmapThreshold 超过这个字节数的文件通过内存映射读取
+     */
+    public SchemaStore(Path root, MessageBundle bundle, long mmapThreshold) {
+        this.root = Objects.requireNonNull(root);
+        this.bundle = Objects.requireNonNull(bundle);
+        this.mmapThreshold = mmapThreshold;
+    }
+
+    /**
+     * 重新加载整个目录，全部加载完成后才替换，加载失败的文件见 {@link #getFailures()}
+     * 加载期间监听线程更新或删除过的页面保留监听线程的结果，它读到的文件比 load 读到的更新
+     *
+     * @throws IOException 遍历目录失败
+     */
+    public void load() throws IOException {
+        synchronized (loadLock) {
+            loadAll();
+        }
+    }
+
+    private void loadAll() throws IOException {
+        long start;
+        synchronized (updateLock) {
+            start = version;
+        }
+        List<Path> files = listFiles(root);
+        Map<String, Page> loaded = new HashMap<>();
+        Map<String, Exception> errors = new HashMap<>();
+        for (Path file : files) {
+            String name = pageName(file);
+            try {
+                loaded.put(name, loadPage(file));
+            } catch (IOException | RuntimeException e) {
+                errors.put(name, e);
+            }
+        }
+        synchronized (updateLock) {
+            // 加载失败的页面保留旧的结果
+            for (String name : errors.keySet()) {
+                Page old = pages.get(name);
+                if (old != null) {
+                    loaded.put(name, old);
+                }
+            }
+            for (Map.Entry<String, Long> change : changes.entrySet()) {
+                if (change.getValue() <= start) {
+                    continue;
+                }
+                String name = change.getKey();
+                Page current = pages.get(name);
+                if (current != null) {
+                    loaded.put(name, current);
+                } else {
+                    loaded.remove(name);
+                }
+                errors.remove(name);
+                Exception failure = failures.get(name);
+                if (failure != null) {
+                    errors.put(name, failure);
+                }
+            }
+            changes.clear();
+            pages = Collections.unmodifiableMap(loaded);
+            failures.clear();
+            failures.putAll(errors);
+        }
+    }
+
+    /**
+     * 获取编译好的表单
+     *
+     * @param pageName 页面名，也就是去掉 .json 的相对路径
+     * @param formName 表单名，为 null 时表示页面本身就是表单
+     * @return 编译好的表单
+     * @throws IllegalArgumentException 没有这个页面或者页面中没有这个表单
+     */
+    public CompiledForm get(String pageName, String formName) {
+        Page page = pages.get(pageName);
+        if (page == null) {
+            throw new IllegalArgumentException("page not found: " + pageName);
+        }
+        if (formName == null) {
+            return page.rootForm;
+        }
+        CompiledForm form = page.forms.get(formName);
+        if (form == null) {
+            throw new IllegalArgumentException("form not found: " + formName);
+        }
+        return form;
+    }
+
+    /**
+     * 获取页面的索引
+     *
+     * @return 没有这个页面时返回 null
+     */
+    public SchemaIndex getIndex(String pageName) {
+        Page page = pages.get(pageName);
+        return page == null ? null : page.index;
+    }
+
+    /**
+     * 校验数据
+     *
+     * @param pageName 页面名
+     * @param formName 表单名，为 null 时表示页面本身就是表单
+     * @param data     数据的 JSON
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     */
+    public List<ConstraintViolation> validate(String pageName, String formName, JsonNode data) {
+        return get(pageName, formName).validate(data);
+    }
+
+    /**
+     * 当前所有的页面名
+     */
+    public Set<String> getPageNames() {
+        return pages.keySet();
+    }
+
+    /**
+     * 加载失败的页面及原因，这些页面仍然使用之前成功加载的结果
+     */
+    public Map<String, Exception> getFailures() {
+        return Collections.unmodifiableMap(new HashMap<>(failures));
+    }
+
+    /**
+     * 开始监听目录，文件新增、修改时在后台线程中重新编译这个文件，删除时移除对应的页面
+     *
+     * @throws IOException 注册监听失败
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watcher != null) {
+            return;
+        }
+        watchService = root.getFileSystem().newWatchService();
+        registerAll(root);
+        watcher = new Thread(this::watch, "amis-schema-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * 停止监听，已经加载的页面仍然可以使用
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher == null) {
+            return;
+        }
+        watcher.interrupt();
+        watchService.close();
+        watcher = null;
+        watchService = null;
+        watchedDirs.clear();
+    }
+
+    private void watch() {
+        WatchService service = watchService;
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path dir = watchedDirs.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                try {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                        // 事件丢失了，只能整个目录重新加载
+                        load();
+                        continue;
+                    }
+                    handle(event.kind(), dir.resolve((Path) event.context()));
+                } catch (Throwable e) {
+                    // 目录本身出错时按目录的相对路径记录，任何错误都不能让监听线程退出，否则之后的修改都不会再生效
+                    String dirName = dir == null ? "" : root.relativize(dir).toString();
+                    failures.put(dirName.replace(File.separatorChar, '/'), asException(e));
+                }
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+        }
+    }
+
+    private void handle(WatchEvent.Kind<?> kind, Path path) throws IOException {
+        if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+            if (isSchemaFile(path)) {
+                remove(pageName(path));
+            } else {
+                // 删除或者移走整个子目录时只会收到目录本身的事件，已经无法判断它是不是目录，按目录处理
+                removeDir(root.relativize(path).toString().replace(File.separatorChar, '/') + "/");
+            }
+            return;
+        }
+        if (Files.isDirectory(path)) {
+            // 新建的目录需要监听，里面可能已经有文件了
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                registerAll(path);
+                for (Path file : listFiles(path)) {
+                    reload(file);
+                }
+            }
+            return;
+        }
+        if (isSchemaFile(path)) {
+            reload(path);
+        }
+    }
+
+    /**
+     * 重新加载单个文件，失败时保留之前的结果
+     *
+     * @param file 目录中的 .json 文件
+     */
+    void reload(Path file) {
+        String name = pageName(file);
+        Page page;
+        try {
+            page = loadPage(file);
+        } catch (Throwable e) {
+            // 在监听线程中执行，不能因为单个文件出错退出
+            failures.put(name, asException(e));
+            return;
+        }
+        synchronized (updateLock) {
+            Map<String, Page> updated = new HashMap<>(pages);
+            updated.put(name, page);
+            pages = Collections.unmodifiableMap(updated);
+            failures.remove(name);
+            changes.put(name, ++version);
+        }
+    }
+
+    private void remove(String name) {
+        synchronized (updateLock) {
+            changes.put(name, ++version);
+            failures.remove(name);
+            if (!pages.containsKey(name)) {
+                return;
+            }
+            Map<String, Page> updated = new HashMap<>(pages);
+            updated.remove(name);
+            pages = Collections.unmodifiableMap(updated);
+        }
+    }
+
+    // 删除目录下所有的页面，prefix 是以 / 结尾的目录相对路径
+    private void removeDir(String prefix) {
+        synchronized (updateLock) {
+            Map<String, Page> updated = new HashMap<>(pages);
+            for (String name : pages.keySet()) {
+                if (name.startsWith(prefix)) {
+                    updated.remove(name);
+                    changes.put(name, ++version);
+                }
+            }
+            failures.keySet().removeIf(name -> name.startsWith(prefix));
+            if (updated.size() != pages.size()) {
+                pages = Collections.unmodifiableMap(updated);
+            }
+        }
+    }
+
+    // 解析并编译页面中所有的表单
+    private Page loadPage(Path file) throws IOException {
+        JsonNode schema = readJson(file);
+        // 编辑器保存时文件可能先被清空，这时读到的是空内容，不能当成新版本
+        if (schema == null || !schema.isObject()) {
+            throw new IOException("not a JSON object: " + file);
+        }
+        SchemaIndex index = SchemaIndex.build(schema);
+        Map<String, CompiledForm> forms = new HashMap<>();
+        for (String formName : index.getFormNames()) {
+            forms.put(formName, Validator.compile(index.getForm(formName), bundle));
+        }
+        return new Page(index, Collections.unmodifiableMap(forms), Validator.compile(index.getRoot(), bundle));
+    }
+
+    // 大文件通过内存映射读取，避免先拷贝到堆内
+    private JsonNode readJson(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= mmapThreshold) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                try {
+                    return JSONHelper.toJSONNode(buffer);
+                } catch (InternalError e) {
+                    // 映射之后文件被截断（编辑器保存、发布时），读到被截掉的部分时 JVM 抛出的是 InternalError
+                    throw new IOException("file truncated while reading: " + file, e);
+                }
+            }
+        }
+        return JSONHelper.toJSONNode(Files.readAllBytes(file));
+    }
+
+    // failures 中只保存 Exception，Error 包装一下
+    private static Exception asException(Throwable e) {
+        return e instanceof Exception ? (Exception) e : new IllegalStateException(e);
+    }
+
+    private void registerAll(Path dir) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path current, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = current.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirs.put(key, current);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && isSchemaFile(file)) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    private static boolean isSchemaFile(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    private String pageName(Path file) {
+        String relative = root.relativize(file).toString().replace(File.separatorChar, '/');
+        return relative.substring(0, relative.length() - SUFFIX.length());
+    }
+
+    // 加载好的页面，创建后不会再修改
+    private static final class Page {
+        private final SchemaIndex index;
+
+        private final Map<String, CompiledForm> forms;
+
+        private final CompiledForm rootForm;
+
+        private Page(SchemaIndex index, Map<String, CompiledForm> forms, CompiledForm rootForm) {
+            this.index = index;
+            this.forms = forms;
+            this.rootForm = rootForm;
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.baidu.amis.validation;
 
-import java.io.IOException;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
@@ -8,8 +7,9 @@ import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.validator.routines.EmailValidator;
 import org.apache.commons.validator.routines.UrlValidator;
 
+import com.baidu.amis.util.ConcurrentCache;
+import com.baidu.amis.util.JSONHelper;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.JsonNodeType;
 
 /**
@@ -18,6 +18,62 @@ import com.fasterxml.jackson.databind.node.JsonNodeType;
  * 目前还不清楚 js 和 java 在正则上有哪些不一致，这会导致自定义正则可能会不一致
  */
 public class ValidationFn {
+
+    /**
+     * 最多缓存多少个自定义正则
+     */
+    public static final int REGEX_CACHE_SIZE = 1024;
+
+    // 内置规则的正则只编译一次，每个线程复用各自的 Matcher
+    private static final RegexMatcher INT_PATTERN = RegexMatcher.compile("^(?:[-+]?(?:0|[1-9]\\d*))$");
+
+    private static final RegexMatcher FLOAT_PATTERN =
+            RegexMatcher.compile("^(?:[-+]?(?:\\d+))?(?:\\.\\d*)?(?:[eE][\\+\\-]?(?:\\d+))?$");
+
+    private static final RegexMatcher WORDS_PATTERN = RegexMatcher.compile("^[A-Z\\s]+$", Pattern.CASE_INSENSITIVE);
+
+    private static final RegexMatcher SPECIAL_WORDS_PATTERN =
+            RegexMatcher.compile("^[A-Z\\s\\u00C0-\\u017F]+$", Pattern.CASE_INSENSITIVE);
+
+    private static final RegexMatcher URL_PATH_PATTERN =
+            RegexMatcher.compile("^[a-z0-9_\\\\-]+$", Pattern.CASE_INSENSITIVE);
+
+    private static final RegexMatcher PHONE_NUMBER_PATTERN = RegexMatcher.compile("^[1]([3-9])[0-9]{9}$");
+
+    private static final RegexMatcher TEL_NUMBER_PATTERN =
+            RegexMatcher.compile("^(\\(\\d{3,4}\\)|\\d{3,4}-|\\s)?\\d{7,14}$");
+
+    private static final RegexMatcher ZIPCODE_PATTERN = RegexMatcher.compile("^[1-9]{1}(\\d+){5}$");
+
+    private static final RegexMatcher ID_PATTERN =
+            RegexMatcher.compile("(^[1-9]\\d{5}(18|19|([23]\\d))\\d{2}((0[1-9])|(10|11|12))"
+                    + "(([0-2][1-9])|10|20|30|31)\\d{3}[0-9Xx]$)|(^[1-9]\\d{5}\\d{2}((0[1-9])|(10|11|12))(([0-2][1-9])|10|20|30|31)"
+                    + "\\d{3}$)");
+
+    // 自定义正则来自 schema，数量不可控，所以用有上限的缓存，校验时会被大量线程同时读，所以读不加锁
+    private static final ConcurrentCache<String, Pattern> regexCache = new ConcurrentCache<>(REGEX_CACHE_SIZE);
+
+    /**
+     * 自定义正则的缓存，可以用来查看命中率或者清空
+     */
+    public static ConcurrentCache<String, Pattern> getRegexCache() {
+        return regexCache;
+    }
+
+    /**
+     * 编译正则，相同的正则只会编译一次
+     *
+     * @param regex 正则字符串
+     * @throws java.util.regex.PatternSyntaxException 正则语法错误
+     */
+    static Pattern compileRegexp(String regex) {
+        Pattern pattern = regexCache.get(regex);
+        if (pattern == null) {
+            pattern = regexCache.put(regex, Pattern.compile(regex));
+        }
+        return pattern;
+    }
+
     /**
      * 必填项是否有值
      */
@@ -56,11 +112,12 @@ public class ValidationFn {
 
     /**
      * 判断字符串是否符合正则，主要是将检查的正则字符串转成正则对象后调用 {@link #matchRegexp(JsonNode value, Pattern pattern)}
+     * 编译好的正则会缓存起来，见 {@link #compileRegexp(String)}
      *
      * @param regex 正则字符串
      */
     static boolean matchRegexp(JsonNode value, String regex) {
-        return matchRegexp(value, Pattern.compile(regex));
+        return matchRegexp(value, compileRegexp(regex));
     }
 
     /**
@@ -73,12 +130,26 @@ public class ValidationFn {
             return false;
         }
         String text = value.asText();
-        if (value.asText().equals("")) {
+        if (text.isEmpty()) {
             return false;
         }
         return pattern.matcher(text).find();
     }
 
+    /**
+     * 根据正则进行判断，和 {@link #matchRegexp(JsonNode, Pattern)} 一样，但是复用当前线程的 Matcher
+     */
+    static boolean matchRegexp(JsonNode value, RegexMatcher matcher) {
+        if (value == null) {
+            return false;
+        }
+        String text = value.asText();
+        if (text.isEmpty()) {
+            return false;
+        }
+        return matcher.find(text);
+    }
+
     /**
      * 是否是 undefined，它的值永远为 false，这是 amis 前端才需要的，转成 json 后就不会有 undefined 的数据
      *
@@ -146,45 +217,67 @@ public class ValidationFn {
      * 是否只有英文字母
      */
     static boolean isAlpha(JsonNode value) {
-        return value != null && !value.asText().isEmpty() && value.asText().chars().allMatch(Character::isLetter);
+        if (value == null) {
+            return false;
+        }
+        String text = value.asText();
+        if (text.isEmpty()) {
+            return false;
+        }
+        // 直接遍历字符，不用 chars() 创建流
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isLetter(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * 是否只有英文字母和数字
      */
     static boolean isAlphanumeric(JsonNode value) {
-        return value != null && !value.asText().isEmpty() && value.asText().chars()
-                .allMatch(Character::isLetterOrDigit);
+        if (value == null) {
+            return false;
+        }
+        String text = value.asText();
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
      * 是否是整数
      */
     static boolean isInt(JsonNode value) {
-        return matchRegexp(value, "^(?:[-+]?(?:0|[1-9]\\d*))$");
+        return matchRegexp(value, INT_PATTERN);
     }
 
     /**
      * 是否是浮点数
      */
     static boolean isFloat(JsonNode value) {
-        return matchRegexp(value, "^(?:[-+]?(?:\\d+))?(?:\\.\\d*)?(?:[eE][\\+\\-]?(?:\\d+))?$");
+        return matchRegexp(value, FLOAT_PATTERN);
     }
 
     /**
      * 是否是字母或空格
      */
     static boolean isWords(JsonNode value) {
-        Pattern pattern = Pattern.compile("^[A-Z\\s]+$", Pattern.CASE_INSENSITIVE);
-        return matchRegexp(value, pattern);
+        return matchRegexp(value, WORDS_PATTERN);
     }
 
     /**
      * 是否是字母及带重音的字母
      */
     static boolean isSpecialWords(JsonNode value) {
-        Pattern pattern = Pattern.compile("^[A-Z\\s\\u00C0-\\u017F]+$", Pattern.CASE_INSENSITIVE);
-        return matchRegexp(value, pattern);
+        return matchRegexp(value, SPECIAL_WORDS_PATTERN);
     }
 
     /**
@@ -227,35 +320,34 @@ public class ValidationFn {
      * 是否是 url 路径
      */
     static boolean isUrlPath(JsonNode value) {
-        Pattern pattern = Pattern.compile("^[a-z0-9_\\\\-]+$", Pattern.CASE_INSENSITIVE);
-        return matchRegexp(value, pattern);
+        return matchRegexp(value, URL_PATH_PATTERN);
     }
 
     /**
      * 最大值
      */
-    static boolean maximum(JsonNode value, Double compare) {
+    static boolean maximum(JsonNode value, double compare) {
         return value != null && Double.compare(value.asDouble(), compare) < 0;
     }
 
     /**
      * 小于等于
      */
-    static boolean lt(JsonNode value, Double compare) {
+    static boolean lt(JsonNode value, double compare) {
         return value != null && Double.compare(value.asDouble(), compare) <= 0;
     }
 
     /**
      * 最小值
      */
-    static boolean minimum(JsonNode value, Double compare) {
+    static boolean minimum(JsonNode value, double compare) {
         return value != null && Double.compare(value.asDouble(), compare) > 0;
     }
 
     /**
      * 大于等于
      */
-    static boolean gt(JsonNode value, Double compare) {
+    static boolean gt(JsonNode value, double compare) {
         return value != null && Double.compare(value.asDouble(), compare) >= 0;
     }
 
@@ -263,46 +355,35 @@ public class ValidationFn {
      * 字符串是否是 json 格式
      */
     static boolean isJson(JsonNode value) {
-        if (value == null) {
-            return false;
-        }
-        try {
-            final ObjectMapper mapper = new ObjectMapper();
-            mapper.readTree(value.asText());
-            return true;
-        } catch (IOException e) {
-            return false;
-        }
+        return value != null && JSONHelper.isStrictJson(value.asText());
     }
 
     /**
      * 字符串是否是手机号，这里只考虑国内的情况
      */
     static boolean isPhoneNumber(JsonNode value) {
-        return matchRegexp(value, "^[1]([3-9])[0-9]{9}$");
+        return matchRegexp(value, PHONE_NUMBER_PATTERN);
     }
 
     /**
      * 字符串是否是电话号码，这里只考虑国内的情况
      */
     static boolean isTelNumber(JsonNode value) {
-        return matchRegexp(value, "^(\\(\\d{3,4}\\)|\\d{3,4}-|\\s)?\\d{7,14}$");
+        return matchRegexp(value, TEL_NUMBER_PATTERN);
     }
 
     /**
      * 是否是邮编，只考虑国内的情况
      */
     static boolean isZipcode(JsonNode value) {
-        return matchRegexp(value, "^[1-9]{1}(\\d+){5}$");
+        return matchRegexp(value, ZIPCODE_PATTERN);
     }
 
     /**
      * 是否是身份证号，这里没做有效性验证
      */
     static boolean isId(JsonNode value) {
-        return matchRegexp(value, "(^[1-9]\\d{5}(18|19|([23]\\d))\\d{2}((0[1-9])|(10|11|12))(([0-2][1-9])"
-                + "|10|20|30|31)\\d{3}[0-9Xx]$)|(^[1-9]\\d{5}\\d{2}((0[1-9])|(10|11|12))(([0-2][1-9])|10|20|30|31)"
-                + "\\d{3}$)");
+        return matchRegexp(value, ID_PATTERN);
     }
 
     /**
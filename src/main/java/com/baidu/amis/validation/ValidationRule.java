@@ -0,0 +1,28 @@
+package com.baidu.amis.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 绑定好参数的校验规则，由 {@link ValidationRuleFactory} 在编译表单时根据 validations 中的配置生成
+ * 同一个实例会在多个线程中同时使用，所以实现需要是无状态或者线程安全的
+ */
+@FunctionalInterface
+public interface ValidationRule {
+
+    /**
+     * 校验字段值
+     *
+     * @param value 字段值，数据中没有这个字段时为 null
+     * @return 是否通过
+     */
+    boolean test(JsonNode value);
+
+    /**
+     * 报错信息模板中 $1 对应的参数，比如 maxLength 的长度
+     *
+     * @return 没有参数时返回 null
+     */
+    default String getMessageArg() {
+        return null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.baidu.amis.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 根据 validations 中的配置生成规则，在编译表单时调用，参数应该在这里解析好，而不是每次校验时再解析
+ * 通过 {@link ValidationRules#register(String, ValidationRuleFactory)} 注册
+ */
+@FunctionalInterface
+public interface ValidationRuleFactory {
+
+    /**
+     * 生成规则
+     *
+     * @param option 规则的参数，不会是 null，比如 {"maxLength": 20} 中的 20；
+     *               老的字符串写法中 "maxLength:20" 是字符串 "20"，"isEmail" 这样没有参数的是 true，required 对应的 isRequired 也是 true
+     * @return 配置不合法、需要忽略这条规则时返回 null
+     */
+    ValidationRule create(JsonNode option);
+}
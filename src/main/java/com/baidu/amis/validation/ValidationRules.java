@@ -0,0 +1,197 @@
+package com.baidu.amis.validation;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.PatternSyntaxException;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 规则名到 {@link ValidationRuleFactory} 的注册表，内置了 amis 支持的所有规则，也可以注册自定义规则或者替换内置规则
+ * 编译表单时按规则名查找，所以注册只对之后编译的表单生效，已经缓存的表单需要清理缓存
+ * 传给 {@link ValidationRuleFactory#create(JsonNode)} 的参数不会是 null，没有参数的规则传入的是 BooleanNode.TRUE
+ *
+ * <pre>
+ * ValidationRules.register("isOrderNo", option -&gt; value -&gt; value != null &amp;&amp; value.asText().startsWith("NO"),
+ *         "请输入正确的订单号");
+ * </pre>
+ */
+public final class ValidationRules {
+
+    private static final ConcurrentHashMap<String, Registration> registry = new ConcurrentHashMap<>();
+
+    static {
+        registerBuiltIn("isRequired", ValidationFn::isRequired);
+        registerBuiltIn("isExisty", ValidationFn::isExisty);
+        registerBuiltIn("isEmail", ValidationFn::isEmail);
+        registerBuiltIn("isUrl", ValidationFn::isUrl);
+        registerBuiltIn("isInt", ValidationFn::isInt);
+        registerBuiltIn("isAlpha", ValidationFn::isAlpha);
+        registerBuiltIn("isNumeric", ValidationFn::isNumeric);
+        registerBuiltIn("isAlphanumeric", ValidationFn::isAlphanumeric);
+        registerBuiltIn("isFloat", ValidationFn::isFloat);
+        registerBuiltIn("isWords", ValidationFn::isWords);
+        registerBuiltIn("isUrlPath", ValidationFn::isUrlPath);
+        registerBuiltIn("isJson", ValidationFn::isJson);
+        registerBuiltIn("notEmptyString", ValidationFn::notEmptyString);
+        registerBuiltIn("isPhoneNumber", ValidationFn::isPhoneNumber);
+        registerBuiltIn("isTelNumber", ValidationFn::isTelNumber);
+        registerBuiltIn("isZipcode", ValidationFn::isZipcode);
+        registerBuiltIn("isId", ValidationFn::isId);
+        register("matchRegexp", ValidationRules::matchRegexp);
+        register("minLength", option -> {
+            int length = option.asInt();
+            return rule(value -> ValidationFn.minLength(value, length), option.asText());
+        });
+        register("maxLength", option -> {
+            int length = option.asInt();
+            return rule(value -> ValidationFn.maxLength(value, length), option.asText());
+        });
+        register("isLength", option -> {
+            int length = option.asInt();
+            return rule(value -> ValidationFn.isLength(value, length), option.asText());
+        });
+        register("maximum", option -> {
+            double compare = option.asDouble();
+            return rule(value -> ValidationFn.maximum(value, compare), option.asText());
+        });
+        register("lt", option -> {
+            double compare = option.asDouble();
+            return rule(value -> ValidationFn.lt(value, compare), option.asText());
+        });
+        register("minimum", option -> {
+            double compare = option.asDouble();
+            return rule(value -> ValidationFn.minimum(value, compare), option.asText());
+        });
+        register("gt", option -> {
+            double compare = option.asDouble();
+            return rule(value -> ValidationFn.gt(value, compare), option.asText());
+        });
+        register("equalsField", option -> {
+            String fieldName = option.asText();
+            return rule(value -> ValidationFn.equalsField(value, fieldName), fieldName);
+        });
+        register("equals", option -> {
+            // 拷贝一份，之后调用方修改 schema 不会影响已经编译好的规则
+            JsonNode expected = option.deepCopy();
+            return rule(value -> ValidationFn.equals(value, expected), expected.asText());
+        });
+    }
+
+    private ValidationRules() {
+    }
+
+    /**
+     * 注册规则，同名的规则会被替换
+     * 报错信息按 validationErrors、编译时的语言包、默认中文语言包的顺序查找
+     *
+     * @param name    规则名，也就是 validations 中的 key
+     * @param factory 根据参数生成规则
+     */
+    public static void register(String name, ValidationRuleFactory factory) {
+        register(name, factory, null);
+    }
+
+    /**
+     * 注册规则，同时指定语言包中都没有时使用的报错信息
+     *
+     * @param name           规则名，也就是 validations 中的 key
+     * @param factory        根据参数生成规则
+     * @param defaultMessage 默认的报错信息，可以用 $1 引用 {@link ValidationRule#getMessageArg()}
+     */
+    public static void register(String name, ValidationRuleFactory factory, String defaultMessage) {
+        registry.put(Objects.requireNonNull(name), new Registration(Objects.requireNonNull(factory),
+                defaultMessage == null ? null : MessageTemplate.parse(defaultMessage)));
+    }
+
+    /**
+     * 删除规则，之后编译的表单会忽略这个规则
+     */
+    public static void unregister(String name) {
+        registry.remove(name);
+    }
+
+    /**
+     * 获取规则的生成方法
+     *
+     * @return 没有注册时返回 null
+     */
+    public static ValidationRuleFactory get(String name) {
+        Registration registration = registry.get(name);
+        return registration == null ? null : registration.factory;
+    }
+
+    /**
+     * 所有已经注册的规则名
+     */
+    public static Set<String> names() {
+        return Collections.unmodifiableSet(registry.keySet());
+    }
+
+    /**
+     * 用校验方法和报错参数生成规则，方便实现 {@link ValidationRuleFactory}
+     *
+     * @param check      校验方法
+     * @param messageArg 报错信息中 $1 对应的参数，可以为 null
+     */
+    public static ValidationRule rule(Predicate<JsonNode> check, String messageArg) {
+        return new BoundRule(check, messageArg);
+    }
+
+    static Registration lookup(String name) {
+        return registry.get(name);
+    }
+
+    private static void registerBuiltIn(String name, ValidationRule rule) {
+        // 不需要参数的规则可以共用一个实例
+        register(name, option -> rule);
+    }
+
+    private static ValidationRule matchRegexp(JsonNode option) {
+        String regexp = option.asText();
+        RegexMatcher matcher;
+        try {
+            matcher = RegexMatcher.shared(ValidationFn.compileRegexp(regexp));
+        } catch (PatternSyntaxException e) {
+            // 和之前一样，正则有问题时在校验时才报错
+            return rule(value -> ValidationFn.matchRegexp(value, regexp), regexp);
+        }
+        return rule(value -> ValidationFn.matchRegexp(value, matcher), regexp);
+    }
+
+    // 注册的规则及默认报错信息
+    static final class Registration {
+        final ValidationRuleFactory factory;
+
+        // 没有时为 null
+        final MessageTemplate defaultMessage;
+
+        private Registration(ValidationRuleFactory factory, MessageTemplate defaultMessage) {
+            this.factory = factory;
+            this.defaultMessage = defaultMessage;
+        }
+    }
+
+    private static final class BoundRule implements ValidationRule {
+        private final Predicate<JsonNode> check;
+        private final String messageArg;
+
+        private BoundRule(Predicate<JsonNode> check, String messageArg) {
+            this.check = check;
+            this.messageArg = messageArg;
+        }
+
+        @Override
+        public boolean test(JsonNode value) {
+            return check.test(value);
+        }
+
+        @Override
+        public String getMessageArg() {
+            return messageArg;
+        }
+    }
+}
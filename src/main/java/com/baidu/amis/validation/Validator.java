@@ -1,92 +1,154 @@
 package com.baidu.amis.validation;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.script.SimpleBindings;
 
 import com.baidu.amis.util.JSONHelper;
-import com.baidu.amis.util.Script;
+import com.baidu.amis.util.ScriptBudget;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.JsonNodeType;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
  * 用于校验数据是否符合 amis 表单 schema 中配置的表单校验规则
  */
 public class Validator {
 
+    // 字符串形式的 schema 会经过这个缓存，避免每次都重新解析
+    private static volatile SchemaCache schemaCache = new SchemaCache();
+
     /**
-     * 根据解析的 JSON 节点来进行校验，需要注意第一个参数必须是表单对应的 amis 配置，如果没有解析出来推荐使用后面的方法
-     *
-     * @param form 相关表单的 amis JSON 配置
-     * @param data 数据的 JSON
-     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * 数组字段默认超过多少行时并行校验
      */
-    public static List<ConstraintViolation> validate(JsonNode form, JsonNode data) {
-        JsonNode body = form.get("body");
-        // 兼容旧版的写法
-        if (body == null) {
-            body = form.get("controls");
-        }
-        ArrayList<ConstraintViolation> ret = new ArrayList<ConstraintViolation>();
+    public static final int DEFAULT_ROW_PARALLEL_THRESHOLD = 1024;
 
-        if (body == null) {
-            return ret;
-        }
+    private static volatile int rowParallelThreshold = DEFAULT_ROW_PARALLEL_THRESHOLD;
 
-        // 后面需要的数据类型
-        SimpleBindings dataBindings = new SimpleBindings();
-        if (data.isObject()) {
-            // 用于内嵌的 data
-            SimpleBindings dataInnerBindings = new SimpleBindings();
-            Iterator<Map.Entry<String, JsonNode>> it = data.fields();
-            while (it.hasNext()) {
-                Map.Entry<String, JsonNode> entry = it.next();
-                dataBindings.put(entry.getKey(), entry.getValue());
-                dataInnerBindings.put(entry.getKey(), entry.getValue());
-            }
-            dataBindings.put("data", dataInnerBindings);
+    private static volatile Executor rowExecutor = ForkJoinPool.commonPool();
+
+    // 异步校验默认使用的线程池，第一次用到时才创建
+    private static volatile Executor asyncExecutor;
+
+    /**
+     * 获取字符串 schema 的缓存，可以用来查看命中率或者在 schema 更新后主动清理
+     */
+    public static SchemaCache getSchemaCache() {
+        return schemaCache;
+    }
+
+    /**
+     * 替换默认的缓存，比如需要调整缓存大小的时候
+     */
+    public static void setSchemaCache(SchemaCache cache) {
+        schemaCache = Objects.requireNonNull(cache);
+    }
 
+    /**
+     * combo、input-table、input-array 等数组字段超过多少行时分块并行校验
+     */
+    public static int getRowParallelThreshold() {
+        return rowParallelThreshold;
+    }
+
+    /**
+     * 调整并行校验的行数阈值，行数不多时并行的调度开销比校验本身还大
+     *
+     * @param threshold 行数阈值，不能是负数
+     */
+    public static void setRowParallelThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("threshold must not be negative");
         }
+        rowParallelThreshold = threshold;
+    }
 
-        // 表单级别校验
-        JsonNode rules = form.get("rules");
-        if (rules != null && rules.isArray()) {
-            for (JsonNode ruleProps : rules) {
-                JsonNode rule = ruleProps.get("rule");
-                JsonNode message = ruleProps.get("message");
-                if (rule != null && message != null) {
-                    boolean ruleValue = Script.eval(rule.asText(), dataBindings);
-                    if (!ruleValue) {
-                        ret.add(new ConstraintViolation("", message.asText()));
-                    }
+    /**
+     * 数组字段并行校验使用的线程池，默认是公共的 ForkJoinPool
+     */
+    public static Executor getRowExecutor() {
+        return rowExecutor;
+    }
+
+    /**
+     * 替换数组字段并行校验使用的线程池
+     */
+    public static void setRowExecutor(Executor executor) {
+        rowExecutor = Objects.requireNonNull(executor);
+    }
+
+    /**
+     * 异步校验默认使用的线程池，是和 CPU 核数一样大的守护线程池
+     */
+    public static Executor getAsyncExecutor() {
+        Executor current = asyncExecutor;
+        if (current == null) {
+            synchronized (Validator.class) {
+                current = asyncExecutor;
+                if (current == null) {
+                    current = AsyncValidation.createDefaultExecutor();
+                    asyncExecutor = current;
                 }
             }
         }
+        return current;
+    }
 
-        // 只有一个表单项的情况
-        if (body.isObject()) {
-            return validateFormItem(body, data, dataBindings);
-        } else if (body.isArray()) {
-            for (JsonNode formItem : body) {
-                ret.addAll(validateFormItem(formItem, data, dataBindings));
-            }
-            return ret;
-        }
+    /**
+     * 替换异步校验默认使用的线程池，之前的线程池需要调用方自行关闭
+     */
+    public static void setAsyncExecutor(Executor executor) {
+        asyncExecutor = Objects.requireNonNull(executor);
+    }
 
-        return ret;
+    /**
+     * 将表单配置编译成可复用的校验计划，编译结果不可变且线程安全，对于需要反复校验的表单推荐缓存起来
+     * 编译和校验都只读取 form，不会修改它，编译结果也不依赖之后对 form 的修改
+     *
+     * @param form 相关表单的 amis JSON 配置
+     * @return 编译后的表单
+     */
+    public static CompiledForm compile(JsonNode form) {
+        return compile(form, MessageBundle.ZH_CN);
+    }
+
+    /**
+     * 使用指定的语言包编译表单，报错信息的模板在编译时就确定好了
+     *
+     * @param form   相关表单的 amis JSON 配置
+     * @param bundle 语言包，比如 {@link MessageBundle#EN_US}
+     * @return 编译后的表单
+     */
+    public static CompiledForm compile(JsonNode form, MessageBundle bundle) {
+        return CompiledForm.compile(form, Objects.requireNonNull(bundle));
+    }
+
+    /**
+     * 根据解析的 JSON 节点来进行校验，需要注意第一个参数必须是表单对应的 amis 配置，如果没有解析出来推荐使用后面的方法
+     *
+     * @param form 相关表单的 amis JSON 配置
+     * @param data 数据的 JSON
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     */
+    public static List<ConstraintViolation> validate(JsonNode form, JsonNode data) {
+        return compile(form).validate(data);
     }
 
     // 就是多了自动解析 JSON
     public static List<ConstraintViolation> validate(String amisSchemaStr, String data)
             throws JsonProcessingException {
-        return validate(JSONHelper.toJSONNode(amisSchemaStr), JSONHelper.toJSONNode(data));
+        return schemaCache.get(amisSchemaStr, null).validate(JSONHelper.toJSONNode(data));
     }
 
     /**
@@ -106,331 +168,217 @@ public class Validator {
 
     public static List<ConstraintViolation> validate(String amisSchemaStr, String formName, JsonNode data)
             throws JsonProcessingException {
-        JsonNode amisSchema = JSONHelper.findObject(JSONHelper.toJSONNode(amisSchemaStr),
-                (String key, JsonNode node, JsonNode parentNode) -> {
-                    if (key != null && key.equals("name")) {
-                        String type = parentNode.get("type").asText();
-                        if (Objects.equals(type, "form")) {
-                            return node.asText().equals(formName);
-                        }
-                    }
-                    return false;
-                }
-        );
-        return validate(amisSchema, data);
+        return schemaCache.get(amisSchemaStr, formName).validate(data);
     }
 
     /**
-     * 用于生成验证消息
-     * @param name 字段名
-     * @param formItemSchema 表单项的配置
-     * @param violationName 违反规则名
-     * @param defaultMessage 默认消息
-     * @param extInfo 用于某些报错辅助，比如大于多少
-     * @return
+     * 流式校验数据，适合数据量很大的提交，数据不会整体解析成 JSON 节点，见 {@link CompiledForm#validate(InputStream)}
+     *
+     * @param amisSchemaStr amis schema 的字符串
+     * @param formName      表单名，为 null 时整个 schema 就是表单
+     * @param data          需要校验的数据，校验完成后会关闭
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException schema 解析失败、数据读取失败或者数据格式错误
      */
-    private static ConstraintViolation buildConstraintViolation(String name, JsonNode formItemSchema,
-                                                                String violationName,
-                                                                String defaultMessage, String extInfo) {
-        String message = defaultMessage;
-        JsonNode validationErrors = formItemSchema.get("validationErrors");
-        if (validationErrors != null && validationErrors.isObject()) {
-            JsonNode customValidationMessage = validationErrors.get(violationName);
-            if (customValidationMessage != null && !customValidationMessage.asText().isEmpty()) {
-                message = customValidationMessage.asText();
-            }
-        }
-
-        if (extInfo != null) {
-            message = message.replace("$1", extInfo);
-        }
-
-        return new ConstraintViolation(name, message);
+    public static List<ConstraintViolation> validate(String amisSchemaStr, String formName, InputStream data)
+            throws IOException {
+        return schemaCache.get(amisSchemaStr, formName).validate(data);
     }
 
-    private static ConstraintViolation buildConstraintViolation(String name, JsonNode formItemSchema,
-                                                                String violationName,
-                                                                String defaultMessage) {
-
-        return buildConstraintViolation(name, formItemSchema, violationName, defaultMessage, null);
+    /**
+     * 流式校验数据，和前面的区别是数据为字符流
+     */
+    public static List<ConstraintViolation> validate(String amisSchemaStr, String formName, Reader data)
+            throws IOException {
+        return schemaCache.get(amisSchemaStr, formName).validate(data);
     }
 
+    /**
+     * 直接校验请求体的字节，UTF-8 数据不需要先转成字符串再解析
+     *
+     * @param amisSchemaStr amis schema 的字符串
+     * @param formName      表单名，为 null 时整个 schema 就是表单
+     * @param data          数据所在的数组
+     * @param offset        数据的起始位置
+     * @param length        数据的字节数
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException schema 解析失败或者数据格式错误
+     */
+    public static List<ConstraintViolation> validate(String amisSchemaStr, String formName,
+                                                     byte[] data, int offset, int length) throws IOException {
+        return schemaCache.get(amisSchemaStr, formName).validate(data, offset, length);
+    }
 
     /**
-                                                                 * 验证单个表单项
-                                                                 *
-                                                                 * @param formItemSchema 表单项
-                                                                 * @param data           数据
-                                                                 * @return 如果数组非空就代表验证不通过
-                                                                 */
-    public static List<ConstraintViolation> validateFormItem(JsonNode formItemSchema, JsonNode data,
-                                                             SimpleBindings dataBindings) {
-        JsonNode name = formItemSchema.get("name");
+     * schema 和数据都是字节的校验，schema 按字节内容缓存
+     *
+     * @param schema   amis schema 的字节
+     * @param formName 表单名，为 null 时整个 schema 就是表单
+     * @param data     数据所在的数组
+     * @param offset   数据的起始位置
+     * @param length   数据的字节数
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException schema 解析失败或者数据格式错误
+     */
+    public static List<ConstraintViolation> validate(byte[] schema, String formName,
+                                                     byte[] data, int offset, int length) throws IOException {
+        return schemaCache.get(schema, 0, schema.length, formName).validate(data, offset, length);
+    }
 
-        if (name == null) {
-            return new ArrayList<ConstraintViolation>();
-        }
-        JsonNode itemData = data.get(name.asText());
-        JsonNode validations = formItemSchema.get("validations");
-
-        // 将 requireOn 转成 isRequired
-        boolean hasRequireOn = false;
-        JsonNode requireOn = formItemSchema.get("requireOn");
-        if (requireOn != null && !requireOn.asText().isEmpty()) {
-            hasRequireOn = Script.eval(requireOn.asText(), dataBindings);
-        }
+    /**
+     * 校验 ByteBuffer 中的数据，比如 netty 的 ByteBuf.nioBuffer()，不会改变 buffer 的 position
+     *
+     * @param amisSchemaStr amis schema 的字符串
+     * @param formName      表单名，为 null 时整个 schema 就是表单
+     * @param data          数据，可以是堆外的 buffer
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException schema 解析失败或者数据格式错误
+     */
+    public static List<ConstraintViolation> validate(String amisSchemaStr, String formName, ByteBuffer data)
+            throws IOException {
+        return schemaCache.get(amisSchemaStr, formName).validate(data);
+    }
 
-        // required 转成 isRequired 校验
-        boolean hasRequire = false;
-        JsonNode required = formItemSchema.get("required");
-        if (required != null && required.asBoolean()) {
-            hasRequire = true;
-        }
+    /**
+     * schema 和数据都是 ByteBuffer 的校验，schema 按字节内容缓存，不会改变两个 buffer 的 position
+     *
+     * @param schema   amis schema 的字节
+     * @param formName 表单名，为 null 时整个 schema 就是表单
+     * @param data     数据，可以是堆外的 buffer
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException schema 解析失败或者数据格式错误
+     */
+    public static List<ConstraintViolation> validate(ByteBuffer schema, String formName, ByteBuffer data)
+            throws IOException {
+        return schemaCache.get(schema, formName).validate(data);
+    }
 
-        if (hasRequireOn || hasRequire) {
-            // 如果是 null 就新建一个
-            if (validations == null) {
-                ObjectMapper mapper = new ObjectMapper();
-                ObjectNode node = mapper.createObjectNode();
-                node.put("isRequired", true);
-                validations = node;
-            } else {
-                ((ObjectNode) validations).put("isRequired", true);
+    /**
+     * schema 和数据都是输入流的校验，schema 会整体读成字节后按内容缓存，数据是流式校验的
+     *
+     * @param schema   amis schema 的输入流，读完后会关闭
+     * @param formName 表单名，为 null 时整个 schema 就是表单
+     * @param data     需要校验的数据，校验完成后会关闭
+     * @return 违反规则的列表，如果列表为空意味着没有违反
+     * @throws IOException schema 解析失败、读取失败或者数据格式错误
+     */
+    public static List<ConstraintViolation> validate(InputStream schema, String formName, InputStream data)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = schema) {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, n);
             }
         }
+        return schemaCache.get(bytes.toByteArray(), 0, bytes.size(), formName).validate(data);
+    }
 
+    /**
+     * 批量校验同一个表单的大量数据，表单只会编译一次，使用公共的 ForkJoinPool 并行执行
+     *
+     * @param form    相关表单的 amis JSON 配置
+     * @param records 需要校验的数据
+     * @return 和 records 顺序一致的结果，第 i 项就是第 i 条数据违反的规则
+     */
+    public static List<List<ConstraintViolation>> validateBatch(JsonNode form,
+                                                                Collection<? extends JsonNode> records) {
+        return validateBatch(compile(form), records, ForkJoinPool.commonPool());
+    }
 
-        if (validations == null) {
-            return new ArrayList<ConstraintViolation>();
-        }
-
-        // visibleOn 和 hiddenOn
-        JsonNode visibleOn = formItemSchema.get("visibleOn");
-        if (visibleOn != null && !visibleOn.asText().isEmpty()) {
-            boolean res = Script.eval(visibleOn.asText(), dataBindings);
-            if (!res) {
-                return new ArrayList<ConstraintViolation>();
-            }
-        }
-        JsonNode hiddenOn = formItemSchema.get("hiddenOn");
-        if (hiddenOn != null && !hiddenOn.asText().isEmpty()) {
-            boolean res = Script.eval(hiddenOn.asText(), dataBindings);
-            if (res) {
-                return new ArrayList<ConstraintViolation>();
-            }
-        }
+    /**
+     * 批量校验，在指定的线程池中执行
+     *
+     * @param form     编译好的表单
+     * @param records  需要校验的数据
+     * @param executor 执行校验的线程池
+     * @return 和 records 顺序一致的结果，第 i 项就是第 i 条数据违反的规则
+     */
+    public static List<List<ConstraintViolation>> validateBatch(CompiledForm form,
+                                                                Collection<? extends JsonNode> records,
+                                                                Executor executor) {
+        return form.validateAll(records, executor, CompiledForm.DEFAULT_BATCH_CHUNK_SIZE);
+    }
 
-        // "hidden": true 或者 "visible": false 的表单项相当于禁用了，不做处理
-        JsonNode visible = formItemSchema.get("visible");
-        if (visible != null && !visible.asBoolean()) {
-            return new ArrayList<ConstraintViolation>();
-        }
-        JsonNode hidden = formItemSchema.get("hidden");
-        if (hidden != null && hidden.asBoolean()) {
-            return new ArrayList<ConstraintViolation>();
-        }
+    /**
+     * 根据 amis schema 和表单名批量校验，schema 会经过缓存
+     *
+     * @param amisSchemaStr amis schema 的字符串
+     * @param formName      表单名，为 null 时整个 schema 就是表单
+     * @param records       需要校验的数据
+     * @param executor      执行校验的线程池
+     * @return 和 records 顺序一致的结果，第 i 项就是第 i 条数据违反的规则
+     * @throws JsonProcessingException schema 解析失败
+     */
+    public static List<List<ConstraintViolation>> validateBatch(String amisSchemaStr, String formName,
+                                                                Collection<? extends JsonNode> records,
+                                                                Executor executor)
+            throws JsonProcessingException {
+        return validateBatch(schemaCache.get(amisSchemaStr, formName), records, executor);
+    }
 
-        JsonNodeType validationsNodeType = validations.getNodeType();
-        // 将老 string 写法转成新的对象方式
-        if (validationsNodeType == JsonNodeType.STRING) {
-            ObjectMapper mapper = new ObjectMapper();
-            ObjectNode validationObject = mapper.createObjectNode();
-            String[] validateWithValues = validations.asText().split(",");
-            for (String validateWithValue : validateWithValues) {
-                String[] validateAndValue = validateWithValue.split(":");
-                if (validateAndValue.length > 1) {
-                    validationObject.put(validateAndValue[0], validateAndValue[1]);
-                } else {
-                    validationObject.put(validateAndValue[0], true);
-                }
-            }
-            validations = validationObject;
-        }
+    /**
+     * 异步校验，在 {@link #getAsyncExecutor()} 中执行
+     *
+     * @param form 编译后的表单
+     * @param data 数据的 JSON
+     * @return 校验结果，cancel(true) 会中断正在执行校验的线程
+     */
+    public static CompletableFuture<List<ConstraintViolation>> validateAsync(CompiledForm form, JsonNode data) {
+        return form.validateAsync(data, getAsyncExecutor());
+    }
 
+    /**
+     * 根据 amis schema 和表单名异步校验，schema 和数据的解析也在 executor 中执行
+     *
+     * @param amisSchemaStr amis schema 的字符串
+     * @param formName      表单名，为 null 时整个 schema 就是表单
+     * @param data          数据的字符串
+     * @param executor      执行校验的线程池
+     * @return 校验结果，解析失败时以 JsonProcessingException 结束
+     */
+    public static CompletableFuture<List<ConstraintViolation>> validateAsync(String amisSchemaStr, String formName,
+                                                                             String data, Executor executor) {
+        Objects.requireNonNull(executor);
+        return AsyncValidation.submit(() -> validate(amisSchemaStr, formName, data), executor);
+    }
 
+    /**
+     * 根据 amis schema 和表单名异步校验，在 {@link #getAsyncExecutor()} 中执行
+     *
+     * @see #validateAsync(String, String, String, Executor)
+     */
+    public static CompletableFuture<List<ConstraintViolation>> validateAsync(String amisSchemaStr, String formName,
+                                                                             String data) {
+        return validateAsync(amisSchemaStr, formName, data, getAsyncExecutor());
+    }
 
-        if (validations != null && validations.isObject()) {
-
-
-            ArrayList<ConstraintViolation> violationResult = new ArrayList<ConstraintViolation>();
-            Iterator<Map.Entry<String, JsonNode>> it = validations.fields();
-            while (it.hasNext()) {
-                Map.Entry<String, JsonNode> entry = it.next();
-                String validateName = entry.getKey();
-                JsonNode validateOption = entry.getValue();
-                // 用反射会导致不好查找代码，挨个写好了
-                switch (validateName) {
-                    case "isRequired":
-                        if (!ValidationFn.isRequired(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isRequired",
-                                    ViolationMessage.isRequired));
-                        }
-                        break;
-                    case "isExisty":
-                        if (!ValidationFn.isExisty(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isExisty",
-                                    ViolationMessage.isExisty));
-                        }
-                        break;
-                    case "isEmail":
-                        if (!ValidationFn.isEmail(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isEmail",
-                                    ViolationMessage.isEmail));
-                        }
-                        break;
-                    case "isUrl":
-                        if (!ValidationFn.isUrl(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isUrl",
-                                    ViolationMessage.isUrl));
-                        }
-                        break;
-                    case "isInt":
-                        if (!ValidationFn.isInt(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isInt",
-                                    ViolationMessage.isInt));
-                        }
-                        break;
-                    case "isAlpha":
-                        if (!ValidationFn.isAlpha(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isAlpha",
-                                    ViolationMessage.isAlpha));
-                        }
-                        break;
-                    case "isNumeric":
-                        if (!ValidationFn.isNumeric(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isNumeric",
-                                    ViolationMessage.isNumeric));
-                        }
-                        break;
-                    case "isAlphanumeric":
-                        if (!ValidationFn.isAlphanumeric(itemData)) {
-                            violationResult.add(
-                                    buildConstraintViolation(name.asText(), formItemSchema, "isAlphanumeric",
-                                            ViolationMessage.isAlphanumeric));
-                        }
-                        break;
-                    case "isFloat":
-                        if (!ValidationFn.isFloat(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isFloat",
-                                    ViolationMessage.isFloat));
-                        }
-                        break;
-                    case "isWords":
-                        if (!ValidationFn.isWords(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isWords",
-                                    ViolationMessage.isWords));
-                        }
-                        break;
-                    case "isUrlPath":
-                        if (!ValidationFn.isUrlPath(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isUrlPath",
-                                    ViolationMessage.isUrlPath));
-                        }
-                        break;
-                    case "matchRegexp":
-                        if (!ValidationFn.matchRegexp(itemData, validateOption.asText())) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "matchRegexp",
-                                    ViolationMessage.matchRegexp, validateOption.asText()));
-                        }
-                        break;
-                    case "minLength":
-                        if (!ValidationFn.minLength(itemData, validateOption.asInt())) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "minLength",
-                                    ViolationMessage.minLength, validateOption.asText()));
-                        }
-                        break;
-                    case "maxLength":
-                        if (!ValidationFn.maxLength(itemData, validateOption.asInt())) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "maxLength",
-                                    ViolationMessage.maxLength, validateOption.asText()));
-                        }
-                        break;
-                    case "maximum":
-                        if (!ValidationFn.maximum(itemData, validateOption.asDouble())) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "maximum",
-                                    ViolationMessage.maximum, validateOption.asText()));
-                        }
-                        break;
-                    case "lt":
-                        if (!ValidationFn.lt(itemData, validateOption.asDouble())) {
-                            violationResult.add(
-                                    buildConstraintViolation(name.asText(), formItemSchema, "lt", ViolationMessage.lt
-                                            , validateOption.asText()));
-                        }
-                        break;
-                    case "minimum":
-                        if (!ValidationFn.minimum(itemData, validateOption.asDouble())) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "minimum",
-                                    ViolationMessage.minimum, validateOption.asText()));
-                        }
-                        break;
-                    case "gt":
-                        if (!ValidationFn.gt(itemData, validateOption.asDouble())) {
-                            violationResult.add(
-                                    buildConstraintViolation(name.asText(), formItemSchema, "gt", ViolationMessage.gt
-                                            , validateOption.asText()));
-                        }
-                        break;
-                    case "isJson":
-                        if (!ValidationFn.isJson(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isJson",
-                                    ViolationMessage.isJson));
-                        }
-                        break;
-                    case "isLength":
-                        if (!ValidationFn.isLength(itemData, validateOption.asInt())) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isLength",
-                                    ViolationMessage.isLength, validateOption.asText()));
-                        }
-                        break;
-                    case "notEmptyString":
-                        if (!ValidationFn.notEmptyString(itemData)) {
-                            violationResult.add(
-                                    buildConstraintViolation(name.asText(), formItemSchema, "notEmptyString",
-                                            ViolationMessage.notEmptyString));
-                        }
-                        break;
-                    case "equalsField":
-                        if (!ValidationFn.equalsField(itemData, validateOption.asText())) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "equalsField",
-                                    ViolationMessage.equalsField, validateOption.asText()));
-                        }
-                        break;
-                    case "equals":
-                        if (!ValidationFn.equals(itemData, validateOption)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isEmail",
-                                    ViolationMessage.equals, validateOption.asText()));
-                        }
-                        break;
-                    case "isPhoneNumber":
-                        if (!ValidationFn.isPhoneNumber(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isPhoneNumber",
-                                    ViolationMessage.isPhoneNumber));
-                        }
-                        break;
-                    case "isTelNumber":
-                        if (!ValidationFn.isTelNumber(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isTelNumber",
-                                    ViolationMessage.isTelNumber));
-                        }
-                        break;
-                    case "isZipcode":
-                        if (!ValidationFn.isZipcode(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isZipcode",
-                                    ViolationMessage.isZipcode));
-                        }
-                        break;
-                    case "isId":
-                        if (!ValidationFn.isId(itemData)) {
-                            violationResult.add(buildConstraintViolation(name.asText(), formItemSchema, "isId",
-                                    ViolationMessage.isId));
-                        }
-                        break;
-                }
+    /**
+     * 验证单个表单项，不会修改 formItemSchema，同一份 schema 可以在多个线程中同时使用
+     *
+     * @param formItemSchema 表单项
+     * @param data           数据
+     * @return 如果数组非空就代表验证不通过，通过时是共享的不可变空列表
+     */
+    public static List<ConstraintViolation> validateFormItem(JsonNode formItemSchema, JsonNode data,
+                                                             SimpleBindings dataBindings) {
+        CompiledFormItem item = CompiledFormItem.compile(formItemSchema, MessageBundle.ZH_CN,
+                CompiledFormItem.Scope.ROOT);
+        if (item == null) {
+            return Collections.emptyList();
+        }
+        ArrayList<ConstraintViolation> violationResult = ViolationBuffer.acquire();
+        boolean budget = ScriptBudget.enter();
+        try {
+            item.validate(data, dataBindings, violationResult);
+            return ViolationBuffer.toResult(violationResult);
+        } finally {
+            if (budget) {
+                ScriptBudget.exit();
             }
-            return violationResult;
+            ViolationBuffer.release(violationResult);
         }
-        return new ArrayList<ConstraintViolation>();
     }
 
 }
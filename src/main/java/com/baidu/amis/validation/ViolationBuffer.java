@@ -0,0 +1,71 @@
+package com.baidu.amis.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 每个线程复用的违反列表，校验通过时直接返回共享的空列表，这样大部分都通过的校验不需要分配结果列表
+ * acquire 和 release 必须成对出现，嵌套调用时内层会拿到新建的列表
+ *
+ * <pre>
+ * ArrayList&lt;ConstraintViolation&gt; buffer = ViolationBuffer.acquire();
+ * try {
+ *     ...
+ *     return ViolationBuffer.toResult(buffer);
+ * } finally {
+ *     ViolationBuffer.release(buffer);
+ * }
+ * </pre>
+ */
+final class ViolationBuffer {
+
+    // 超过这个数量时不再复用，避免线程一直持有很大的数组
+    private static final int MAX_RETAINED = 256;
+
+    private static final ThreadLocal<ViolationBuffer> BUFFERS = ThreadLocal.withInitial(ViolationBuffer::new);
+
+    private ArrayList<ConstraintViolation> list = new ArrayList<>();
+
+    private boolean inUse;
+
+    private ViolationBuffer() {
+    }
+
+    /**
+     * 获取当前线程的列表，列表是空的
+     */
+    static ArrayList<ConstraintViolation> acquire() {
+        ViolationBuffer buffer = BUFFERS.get();
+        if (buffer.inUse) {
+            return new ArrayList<>();
+        }
+        buffer.inUse = true;
+        return buffer.list;
+    }
+
+    /**
+     * 根据列表生成结果
+     *
+     * @return 没有违反时是不可变的空列表，否则是一份新的列表
+     */
+    static List<ConstraintViolation> toResult(ArrayList<ConstraintViolation> list) {
+        return list.isEmpty() ? Collections.emptyList() : new ArrayList<>(list);
+    }
+
+    /**
+     * 归还列表，需要放在 finally 中，保证出错时也能归还
+     */
+    static void release(ArrayList<ConstraintViolation> list) {
+        ViolationBuffer buffer = BUFFERS.get();
+        if (buffer.list != list) {
+            return;
+        }
+        if (list.size() > MAX_RETAINED) {
+            buffer.list = new ArrayList<>();
+        } else {
+            list.clear();
+        }
+        buffer.inUse = false;
+    }
+}
@@ -1,7 +1,11 @@
 package com.baidu.amis.validation;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * 默认验证信息，拷贝自 amis 的 locale/zh-CN.ts
+ * 这里只是原始的模板，实际使用的是 {@link MessageBundle} 中解析好的版本
  */
 public class ViolationMessage {
     static final String equals = "输入的数据与 $1 不一致";
@@ -31,4 +35,74 @@ public class ViolationMessage {
     static final String minimum = "当前输入值低于最小值 $1";
     static final String minLength = "请输入更多的内容，至少输入 $1 个字符";
     static final String notEmptyString = "请不要全输入空白字符";
+
+    /**
+     * 中文模板，键是规则名
+     */
+    static Map<String, String> zhCN() {
+        Map<String, String> messages = new LinkedHashMap<>();
+        messages.put("equals", equals);
+        messages.put("equalsField", equalsField);
+        messages.put("gt", gt);
+        messages.put("isAlpha", isAlpha);
+        messages.put("isAlphanumeric", isAlphanumeric);
+        messages.put("isEmail", isEmail);
+        messages.put("isFloat", isFloat);
+        messages.put("isId", isId);
+        messages.put("isInt", isInt);
+        messages.put("isJson", isJson);
+        messages.put("isLength", isLength);
+        messages.put("isNumeric", isNumeric);
+        messages.put("isPhoneNumber", isPhoneNumber);
+        messages.put("isRequired", isRequired);
+        messages.put("isTelNumber", isTelNumber);
+        messages.put("isUrl", isUrl);
+        messages.put("isUrlPath", isUrlPath);
+        messages.put("isWords", isWords);
+        messages.put("isZipcode", isZipcode);
+        messages.put("isExisty", isExisty);
+        messages.put("lt", lt);
+        messages.put("matchRegexp", matchRegexp);
+        messages.put("maximum", maximum);
+        messages.put("maxLength", maxLength);
+        messages.put("minimum", minimum);
+        messages.put("minLength", minLength);
+        messages.put("notEmptyString", notEmptyString);
+        return messages;
+    }
+
+    /**
+     * 英文模板，键是规则名
+     */
+    static Map<String, String> enUS() {
+        Map<String, String> messages = new LinkedHashMap<>();
+        messages.put("equals", "The value must be the same as $1");
+        messages.put("equalsField", "The value must be the same as the value of $1");
+        messages.put("gt", "Please enter a value greater than $1");
+        messages.put("isAlpha", "Please enter letters");
+        messages.put("isAlphanumeric", "Please enter letters or numbers");
+        messages.put("isEmail", "Invalid Email format");
+        messages.put("isFloat", "Please enter a floating point number");
+        messages.put("isId", "Please enter a valid ID card number");
+        messages.put("isInt", "Please enter an integer");
+        messages.put("isJson", "Invalid JSON format");
+        messages.put("isLength", "Please enter content with a length of $1");
+        messages.put("isNumeric", "Please enter a number");
+        messages.put("isPhoneNumber", "Please enter a valid mobile phone number");
+        messages.put("isRequired", "This is required");
+        messages.put("isTelNumber", "Please enter a valid telephone number");
+        messages.put("isUrl", "Invalid URL format");
+        messages.put("isUrlPath", "Only letters, numbers, `-` and `_` are allowed");
+        messages.put("isWords", "Please enter words");
+        messages.put("isZipcode", "Please enter a valid zip code");
+        messages.put("isExisty", "The value does not exist");
+        messages.put("lt", "Please enter a value less than $1");
+        messages.put("matchRegexp", "Invalid format, please enter content matching $1");
+        messages.put("maximum", "The value exceeds the maximum of $1");
+        messages.put("maxLength", "Please enter no more than $1 characters");
+        messages.put("minimum", "The value is below the minimum of $1");
+        messages.put("minLength", "Please enter at least $1 characters");
+        messages.put("notEmptyString", "Please do not enter only whitespace");
+        return messages;
+    }
 }
@@ -0,0 +1,97 @@
+package com.baidu.amis.expression
+
+import com.baidu.amis.util.JSONHelper
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+internal class BytecodeCompilerTest {
+    private val data = JSONHelper.toJSONNode(
+        """
+        {
+          "type": "a",
+          "count": 5,
+          "text": "10",
+          "empty": "",
+          "flag": true,
+          "nothing": null,
+          "user": {
+            "name": "amis",
+            "tags": ["x", "y"]
+          },
+          "list": [1, 2, 3]
+        }
+    """.trimIndent()
+    )
+
+    // 编译后的结果要和解释执行完全一致
+    @Test
+    fun testSameAsInterpreter() {
+        val expressions = listOf(
+            "data.type == 'a' && data.count > 3",
+            "this.type == 'b' || data.count >= 5",
+            "type === 'a'",
+            "data.user.tags[1] == 'y'",
+            "data.user['tags'].length == 2",
+            "data.list[0] + data.list[2] == 4",
+            "!data.missing",
+            "!(data.flag && data.empty)",
+            "data.text == 10",
+            "data.text !== 10",
+            "data.nothing == undefined",
+            "1 + 2 * 3 == 7",
+            "'a' + 1",
+            "data.count - data.text",
+            "data.count > 3 ? data.empty : 'small'",
+            "data.empty || 'default'",
+            "data.flag && data.count",
+            "data.count <= 4",
+            "'10' < '9'",
+            "typeof data.count == 'number'",
+            "typeof notExists == 'undefined'",
+            "parseInt('12px') == 12",
+            "isNaN(Number('abc'))",
+            "Math.max(1, data.count, 3, 4, 5, 6, 7) == 7",
+            "data.user.name.indexOf('mi') == 1",
+            "data.user.tags.includes('x')",
+            "-data.count + 5",
+            "0.1 + 0.2 > 0.3",
+            "true",
+            "false",
+            "null"
+        )
+        for (source in expressions) {
+            val node = Parser.parse(source)
+            val interpreted = ExpressionRuntime.toBoolean(node.eval(data))
+            val compiled = BytecodeCompiler.compile(node).test(data)
+            assertEquals(compiled, interpreted, source)
+        }
+    }
+
+    @Test
+    fun testRuntimeError() {
+        val predicate = BytecodeCompiler.compile(Parser.parse("data.missing.a == 1"))
+        assertFailsWith<ExpressionException> { predicate.test(data) }
+    }
+
+    @Test
+    fun testThreshold() {
+        val threshold = Expression.getCompileThreshold()
+        try {
+            Expression.setCompileThreshold(3)
+            val expression = Expression.parse("data.count > 3")
+            repeat(2) { assertEquals(expression.test(data), true) }
+            assertEquals(expression.isCompiled(), false)
+            assertEquals(expression.test(data), true)
+            assertEquals(expression.isCompiled(), true)
+            assertEquals(expression.test(data), true)
+
+            Expression.setCompileThreshold(-1)
+            val notCompiled = Expression.parse("data.count > 3")
+            repeat(10) { notCompiled.test(data) }
+            assertEquals(notCompiled.isCompiled(), false)
+        } finally {
+            Expression.setCompileThreshold(threshold)
+        }
+    }
+}
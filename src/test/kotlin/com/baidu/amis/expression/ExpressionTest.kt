@@ -0,0 +1,140 @@
+package com.baidu.amis.expression
+
+import com.baidu.amis.util.JSONHelper
+import org.junit.jupiter.api.Test
+import java.util.Locale
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+internal class ExpressionTest {
+    private val data = JSONHelper.toJSONNode(
+        """
+        {
+          "type": "a",
+          "count": 5,
+          "text": "10",
+          "empty": "",
+          "flag": true,
+          "nothing": null,
+          "user": {
+            "name": "amis",
+            "tags": ["x", "y"]
+          },
+          "list": [1, 2, 3]
+        }
+    """.trimIndent()
+    )
+
+    private fun test(source: String): Boolean = Expression.parse(source).test(data)
+
+    private fun eval(source: String): Any? = Expression.parse(source).evaluate(data)
+
+    @Test
+    fun testPropertyAccess() {
+        assertEquals(test("data.type == 'a' && data.count > 3"), true)
+        assertEquals(test("this.type == \"a\""), true)
+        assertEquals(test("type === 'a'"), true)
+        assertEquals(test("data.user.name == 'amis'"), true)
+        assertEquals(test("data.user.tags[1] == 'y'"), true)
+        assertEquals(test("data.user['tags'].length == 2"), true)
+        assertEquals(test("data.list[0] + data.list[2] == 4"), true)
+        assertEquals(eval("data.missing"), ExpressionRuntime.UNDEFINED)
+        assertEquals(test("!data.missing"), true)
+    }
+
+    @Test
+    fun testLooseEquals() {
+        assertEquals(test("data.text == 10"), true)
+        assertEquals(test("data.text === 10"), false)
+        assertEquals(test("data.flag == 1"), true)
+        assertEquals(test("data.nothing == undefined"), true)
+        assertEquals(test("data.nothing === undefined"), false)
+        assertEquals(test("data.empty == 0"), true)
+        assertEquals(test("NaN == NaN"), false)
+    }
+
+    @Test
+    fun testOperators() {
+        assertEquals(eval("1 + 2 * 3"), 7.0)
+        assertEquals(eval("(1 + 2) * 3"), 9.0)
+        assertEquals(eval("'a' + 1"), "a1")
+        assertEquals(eval("data.count + data.text"), "510")
+        assertEquals(eval("data.count - data.text"), -5.0)
+        assertEquals(eval("7 % 3"), 1.0)
+        assertEquals(eval("-data.count"), -5.0)
+        assertEquals(eval("data.count > 3 ? 'big' : 'small'"), "big")
+        assertEquals(eval("data.empty || 'default'"), "default")
+        assertEquals(eval("data.flag && data.count"), 5.0)
+        assertEquals(test("'b' > 'a'"), true)
+        assertEquals(test("'10' < '9'"), true)
+        assertEquals(test("data.count >= 5 && data.count <= 5"), true)
+        assertEquals(eval("typeof data.count"), "number")
+        assertEquals(eval("typeof notExists"), "undefined")
+    }
+
+    @Test
+    fun testFunctions() {
+        assertEquals(eval("parseInt('12px')"), 12.0)
+        assertEquals(eval("parseFloat('1.5e2abc')"), 150.0)
+        assertEquals(test("isNaN(Number('abc'))"), true)
+        assertEquals(eval("String(1.5)"), "1.5")
+        assertEquals(eval("String(100)"), "100")
+        assertEquals(eval("Math.max(1, data.count, 3)"), 5.0)
+        assertEquals(eval("Math.round(2.5)"), 3.0)
+        assertEquals(eval("Math.PI * 2"), Math.PI * 2)
+        assertEquals(eval("Math.SQRT1_2 + Math.LOG10E"), 0.7071067811865476 + 0.4342944819032518)
+        assertEquals(test("data.user.name.indexOf('mi') == 1"), true)
+        assertEquals(test("data.user.tags.indexOf('y') > -1"), true)
+        assertEquals(eval("data.user.tags.join('-')"), "x-y")
+        assertEquals(eval("' A '.trim().toLowerCase()"), "a")
+    }
+
+    @Test
+    fun testJsStringSemantics() {
+        // js 的空白包括全角空格和不换行空格，控制字符不算
+        assertEquals(eval("'\u3000amis\u00A0'.trim()"), "amis")
+        assertEquals(eval("Number('\u3000 12\u00A0')"), 12.0)
+        assertEquals(test("isNaN(Number('\u0001 12'))"), true)
+        assertEquals(eval("parseInt('\u3000 12px')"), 12.0)
+
+        // 大小写转换不受默认语言环境影响
+        val locale = Locale.getDefault()
+        Locale.setDefault(Locale("tr", "TR"))
+        try {
+            assertEquals(eval("'TITLE'.toLowerCase()"), "title")
+            assertEquals(eval("'title'.toUpperCase()"), "TITLE")
+        } finally {
+            Locale.setDefault(locale)
+        }
+    }
+
+    @Test
+    fun testRuntimeError() {
+        assertFailsWith<ExpressionException> { test("notExists == 1") }
+        assertFailsWith<ExpressionException> { test("data.missing.a == 1") }
+    }
+
+    @Test
+    fun testUnsupported() {
+        // 这些写法需要交给脚本引擎
+        assertFailsWith<ExpressionException> { Expression.parse("a = 1") }
+        assertFailsWith<ExpressionException> { Expression.parse("new Date()") }
+        assertFailsWith<ExpressionException> { Expression.parse("a.map(function (x) { return x })") }
+        assertFailsWith<ExpressionException> { Expression.parse("a++") }
+        assertFailsWith<ExpressionException> { Expression.parse("JSON.stringify(a)") }
+        assertFailsWith<ExpressionException> { Expression.parse("a == 1;") }
+        assertFailsWith<ExpressionException> { Expression.parse("Math.sqrt(a) > 1") }
+        assertFailsWith<ExpressionException> { Expression.parse("Math.max") }
+        assertFailsWith<ExpressionException> { Expression.parse("Math['PI'] > 3") }
+        assertFailsWith<ExpressionException> { Expression.parse("Math.trim()") }
+    }
+
+    @Test
+    fun testReferencedFields() {
+        val expression = Expression.parse("data.a.b > 1 && c || this['d'] == typeof e")
+        assertEquals(expression.referencedFields, setOf("a", "c", "d", "e"))
+        assertEquals(Expression.parse("Math.max(1, 2) > 1").referencedFields, setOf<String>())
+        assertEquals(Expression.parse("data[a] == 1").referencedFields, null)
+        assertEquals(Expression.parse("typeof data == 'object'").referencedFields, null)
+    }
+}
@@ -0,0 +1,53 @@
+package com.baidu.amis.jfr
+
+import com.baidu.amis.util.JSONHelper
+import com.baidu.amis.validation.Validator
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordingFile
+import org.junit.jupiter.api.Test
+import java.nio.file.Files
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+internal class JfrEventsTest {
+    @Test
+    fun testEvents() {
+        // 运行时没有 jdk.jfr 时不需要测试
+        if (!JfrEvents.isAvailable()) {
+            return
+        }
+        val form = JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "name": "jfrForm",
+                "body": [
+                  {"type": "input-text", "name": "a", "required": true},
+                  {"type": "input-text", "name": "b", "validations": {"isNumeric": true}}
+                ]
+              }
+            """.trimIndent()
+        )
+        val compiledForm = Validator.compile(form)
+        val file = Files.createTempFile("amis", ".jfr")
+        try {
+            Recording().use { recording ->
+                recording.enable("com.baidu.amis.Validation")
+                recording.enable("com.baidu.amis.JsonParse")
+                recording.start()
+                compiledForm.validate(JSONHelper.toJSONNode("""{"b": "x"}"""))
+                recording.stop()
+                recording.dump(file)
+            }
+            val events = RecordingFile.readAllEvents(file)
+            val validation = events.filter { it.eventType.name == "com.baidu.amis.Validation" }
+            assertEquals(validation.size, 1)
+            assertEquals(validation[0].getString("formName"), "jfrForm")
+            assertEquals(validation[0].getInt("fieldCount"), 2)
+            assertEquals(validation[0].getInt("violationCount"), 2)
+            assertTrue(events.any { it.eventType.name == "com.baidu.amis.JsonParse" && it.getBoolean("success") })
+        } finally {
+            Files.deleteIfExists(file)
+        }
+    }
+}
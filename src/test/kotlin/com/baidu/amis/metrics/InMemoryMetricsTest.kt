@@ -0,0 +1,64 @@
+package com.baidu.amis.metrics
+
+import com.baidu.amis.util.JSONHelper
+import com.baidu.amis.validation.Validator
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+internal class InMemoryMetricsTest {
+    @Test
+    fun testValidationMetrics() {
+        val form = JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "name": "myForm",
+                "body": [
+                  {"type": "input-text", "name": "email", "validations": {"isEmail": true}},
+                  {"type": "input-text", "name": "text", "requireOn": "this.email.length > 3"}
+                ]
+              }
+            """.trimIndent()
+        )
+        val compiledForm = Validator.compile(form)
+        val metrics = InMemoryMetrics()
+        Metrics.set(metrics)
+        try {
+            compiledForm.validate(JSONHelper.toJSONNode("""{"email": "a@b.com", "text": "x"}"""))
+            compiledForm.validate(JSONHelper.toJSONNode("""{"email": "x"}"""))
+        } finally {
+            Metrics.set(MetricsListener.NOOP)
+        }
+        // 关闭后不再统计
+        compiledForm.validate(JSONHelper.toJSONNode("""{"email": "x"}"""))
+
+        val email = metrics.snapshot("rule.isEmail")!!
+        assertEquals(email.count, 2)
+        assertEquals(email.failureCount, 1)
+        val formStat = metrics.snapshot("form.myForm")!!
+        assertEquals(formStat.count, 2)
+        assertEquals(formStat.failureCount, 1)
+        assertTrue(formStat.maxNanos >= formStat.getPercentileNanos(0.5))
+        assertEquals(metrics.snapshot("parse")!!.count, 2)
+        assertTrue(metrics.dump().contains("rule.isEmail count=2 failures=1"))
+        assertNull(metrics.snapshot("missing"))
+    }
+
+    @Test
+    fun testPercentile() {
+        val metrics = InMemoryMetrics()
+        for (i in 1..100) {
+            metrics.record("test", i * 1000L, false)
+        }
+        val snapshot = metrics.snapshot("test")!!
+        assertEquals(snapshot.count, 100)
+        assertEquals(snapshot.meanNanos, 50500)
+        assertEquals(snapshot.maxNanos, 100000)
+        // 桶的上限不会超过真实值的 2 倍
+        val p50 = snapshot.getPercentileNanos(0.5)
+        assertTrue(p50 in 50000..100000)
+        assertEquals(snapshot.getPercentileNanos(1.0), 100000)
+    }
+}
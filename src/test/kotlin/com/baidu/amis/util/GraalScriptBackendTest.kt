@@ -0,0 +1,57 @@
+package com.baidu.amis.util
+
+import org.junit.jupiter.api.Test
+import java.util.concurrent.TimeUnit
+import javax.script.SimpleBindings
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+internal class GraalScriptBackendTest {
+    // 运行时没有 GraalJS 时不需要测试
+    private fun backend(): GraalScriptBackend? = try {
+        GraalScriptBackend(1, 16).takeIf { it.isAvailable }
+    } catch (e: LinkageError) {
+        null
+    }
+
+    private fun bindings(json: String) = SimpleBindings(JSONHelper.toJSONNode(json).fields().asSequence()
+        .associateTo(mutableMapOf<String, Any>()) { it.key to it.value })
+
+    @Test
+    fun testContextReset() {
+        val backend = backend() ?: return
+        backend.use {
+            // 只有一个 Context，两次执行一定用的是同一个
+            assertEquals(it.eval("print == 'secret'", bindings("""{"print": "secret"}""")), true)
+            assertEquals(it.eval("typeof print == 'function'", bindings("{}")), true)
+
+            // 脚本定义和修改的全局变量
+            assertEquals(it.eval("(x = 1, escape = 2, true)", bindings("{}")), true)
+            assertEquals(it.eval("typeof x == 'undefined' && typeof escape == 'function'", bindings("{}")), true)
+
+            // 内置对象被冻结，修改不会生效
+            assertEquals(it.eval("(Math.max = function () { return 0 }, Array.prototype.x = 1, true)", bindings("{}")), true)
+            assertEquals(it.eval("Math.max(1, 2) == 2 && [].x === undefined", bindings("{}")), true)
+        }
+    }
+
+    @Test
+    fun testBorrowTimeout() {
+        val backend = backend() ?: return
+        backend.use {
+            // 唯一的 Context 被死循环占着
+            val busy = Thread { it.eval("while (true) {}", bindings("{}"), TimeUnit.SECONDS.toNanos(2)) }
+            busy.isDaemon = true
+            busy.setUncaughtExceptionHandler { _, _ -> }
+            busy.start()
+            Thread.sleep(100)
+            val start = System.nanoTime()
+            assertFailsWith<ScriptBudgetExceededException> {
+                it.eval("true", bindings("{}"), TimeUnit.MILLISECONDS.toNanos(50))
+            }
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000)
+            busy.join()
+        }
+    }
+}
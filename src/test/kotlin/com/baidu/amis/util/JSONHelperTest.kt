@@ -51,4 +51,37 @@ internal class JSONHelperTest {
         }
         assertEquals(amisNode.get("type").asText(), "form")
     }
-}
\ No newline at end of file
+
+    @Test
+    fun testToJSONNode() {
+        // 支持注释、不带引号的字段名和单引号
+        val json = """
+            {
+              // 注释
+              a: 'text',
+              "b": [1, 2]
+            }
+        """.trimIndent()
+        val expected = JSONHelper.toJSONNode(json)
+        assertEquals(expected.get("a").asText(), "text")
+        assertEquals(JSONHelper.toJSONNode(json.toByteArray()), expected)
+        assertEquals(JSONHelper.toJSONNode(json.byteInputStream()), expected)
+        val padded = ("xx" + json + "yy").toByteArray()
+        assertEquals(JSONHelper.toJSONNode(padded, 2, padded.size - 4), expected)
+        val direct = java.nio.ByteBuffer.allocateDirect(json.toByteArray().size)
+        direct.put(json.toByteArray()).flip()
+        assertEquals(JSONHelper.toJSONNode(direct), expected)
+        assertEquals(direct.position(), 0)
+        assertEquals(JSONHelper.toJSONNode(json.reader()), expected)
+        assertEquals(JSONHelper.toJSONNode("").isMissingNode, true)
+    }
+
+    @Test
+    fun testIsStrictJson() {
+        assertEquals(JSONHelper.isStrictJson("""{"a": [1, {"b": null}]}"""), true)
+        assertEquals(JSONHelper.isStrictJson("1"), true)
+        assertEquals(JSONHelper.isStrictJson("{a: 1}"), false)
+        assertEquals(JSONHelper.isStrictJson("{\"a\": "), false)
+        assertEquals(JSONHelper.isStrictJson("abc"), false)
+    }
+}
@@ -0,0 +1,43 @@
+package com.baidu.amis.util
+
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+
+internal class JsonBindingsTest {
+    @Test
+    fun testBindings() {
+        val data = JSONHelper.toJSONNode(
+            """
+            {
+              "a": {"b": 2, "c": [1, 2.5, "x", true, null]},
+              "big": 12345678901,
+              "flag": false
+            }
+        """.trimIndent()
+        )
+        val bindings = JsonBindings.of(data)
+        assertEquals(bindings["big"], 12345678901.0)
+        assertEquals(bindings["flag"], false)
+        assertEquals(bindings.containsKey("data"), true)
+        assertEquals(bindings.containsKey("missing"), false)
+
+        val a = bindings["a"] as Map<*, *>
+        assertEquals(a["b"], 2)
+        assertEquals(a["c"], listOf(1, 2.5, "x", true, null))
+        // data 指向的是同一份数据
+        assertEquals((bindings["data"] as Map<*, *>)["a"], a)
+        assertEquals(bindings.keys, setOf("a", "big", "flag", "data"))
+
+        // 脚本引擎写入的变量不会影响原始数据
+        bindings["nashorn.global"] = "global"
+        assertEquals(bindings["nashorn.global"], "global")
+        assertEquals(data.has("nashorn.global"), false)
+    }
+
+    @Test
+    fun testScriptIdentifiers() {
+        assertEquals(ScriptIdentifiers.of("this.type == 'mobile' && data.a.b > 1e5").toList(),
+            listOf("this", "type", "mobile", "data", "a", "b"))
+        assertEquals(ScriptIdentifiers.of("\$x + _y").toList(), listOf("\$x", "_y"))
+    }
+}
@@ -0,0 +1,72 @@
+package com.baidu.amis.util
+
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+internal class SchemaIndexTest {
+    private val page = JSONHelper.toJSONNode(
+        """
+        {
+          "type": "page",
+          "body": [
+            {
+              "name": "noType",
+              "label": "没有 type 的组件"
+            },
+            {
+              "type": "form",
+              "name": "myForm",
+              "id": "form1",
+              "body": [
+                {
+                  "type": "input-text",
+                  "name": "a"
+                }
+              ]
+            },
+            {
+              "type": "tabs",
+              "tabs": [
+                {
+                  "title": "a/b",
+                  "body": {
+                    "type": "form",
+                    "name": "otherForm",
+                    "body": [
+                      {
+                        "type": "input-text",
+                        "name": "a",
+                        "id": "inputA"
+                      }
+                    ]
+                  }
+                }
+              ]
+            }
+          ]
+        }
+    """.trimIndent()
+    )
+
+    @Test
+    fun testForms() {
+        val index = SchemaIndex.build(page)
+        assertEquals(index.formNames, setOf("myForm", "otherForm"))
+        assertEquals(index.getForm("myForm").get("id").asText(), "form1")
+        assertEquals(index.getFormEntry("otherForm").path, "/body/2/tabs/0/body")
+        assertEquals(page.at(index.getFormEntry("otherForm").path), index.getForm("otherForm"))
+        // 没有 type 的同级 name 不会报错，也不会当成表单
+        assertNull(index.getForm("noType"))
+        assertNull(index.getForm("notExists"))
+    }
+
+    @Test
+    fun testComponents() {
+        val index = SchemaIndex.build(page)
+        assertEquals(index.getById("inputA").path, "/body/2/tabs/0/body/body/0")
+        assertEquals(index.getByName("a").map { it.path }, listOf("/body/1/body/0", "/body/2/tabs/0/body/body/0"))
+        assertEquals(index.getByName("noType").size, 1)
+        assertEquals(index.getByName("notExists").size, 0)
+    }
+}
@@ -0,0 +1,145 @@
+package com.baidu.amis.util
+
+import com.baidu.amis.metrics.InMemoryMetrics
+import com.baidu.amis.metrics.Metrics
+import com.baidu.amis.metrics.MetricsListener
+import com.baidu.amis.validation.Validator
+import org.junit.jupiter.api.Test
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.TimeUnit
+import javax.script.SimpleBindings
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+internal class ScriptBudgetTest {
+    // 按脚本内容模拟各种执行情况，都能响应中断，这样不依赖具体的脚本引擎
+    private val backend = object : ScriptBackend {
+        override fun eval(script: String, dataBindings: SimpleBindings): Boolean {
+            lastThread = Thread.currentThread()
+            when {
+                script.contains("while (true)") -> while (!Thread.currentThread().isInterrupted) {
+                }
+                script.contains("slow") -> try {
+                    Thread.sleep(30)
+                } catch (e: InterruptedException) {
+                    return false
+                }
+            }
+            return true
+        }
+
+        override fun isAvailable() = true
+    }
+
+    private val previous = Script.getBackend()
+
+    @Volatile
+    private var lastThread: Thread? = null
+
+    // 内置解析器不支持 function，这些条件都会交给脚本引擎
+    private fun form(vararg conditions: String) = Validator.compile(
+        JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "body": [${conditions.withIndex().joinToString(",") { (i, condition) ->
+                    """{"type": "input-text", "name": "f$i", "requireOn": "(function () { $condition })()"}"""
+                }}]
+              }
+            """.trimIndent()
+        )
+    )
+
+    private fun withBackend(block: () -> Unit) {
+        Script.setBackend(backend)
+        try {
+            block()
+        } finally {
+            ScriptBudget.setExpressionTimeout(0, TimeUnit.MILLISECONDS)
+            ScriptBudget.setRequestTimeout(0, TimeUnit.MILLISECONDS)
+            Script.setBackend(previous)
+            Metrics.set(MetricsListener.NOOP)
+        }
+    }
+
+    @Test
+    fun testExpressionTimeout() = withBackend {
+        val data = JSONHelper.toJSONNode("{}")
+        // 没有预算时正常执行
+        assertEquals(form("return true").validate(data).size, 1)
+
+        ScriptBudget.setExpressionTimeout(50, TimeUnit.MILLISECONDS)
+        assertEquals(form("return true").validate(data).size, 1)
+
+        val metrics = InMemoryMetrics()
+        Metrics.set(metrics)
+        val before = ScriptBudget.getExceededCount(ScriptBudgetExceededException.Kind.EXPRESSION_TIMEOUT)
+        val start = System.nanoTime()
+        val error = assertFailsWith<ScriptBudgetExceededException> { form("while (true) {}").validate(data) }
+        assertEquals(error.kind, ScriptBudgetExceededException.Kind.EXPRESSION_TIMEOUT)
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 5)
+        assertEquals(ScriptBudget.getExceededCount(ScriptBudgetExceededException.Kind.EXPRESSION_TIMEOUT), before + 1)
+        assertEquals(metrics.snapshot("script.budget.expression_timeout")!!.count, 1)
+        assertEquals(metrics.snapshot("script")!!.failureCount, 1)
+
+        // 超时的工作线程被丢弃，之后的脚本在别的线程中执行
+        val abandoned = lastThread!!
+        abandoned.join(5000)
+        assertEquals(abandoned.isAlive, false)
+        assertEquals(form("return true").validate(data).size, 1)
+        assertTrue(lastThread !== abandoned)
+    }
+
+    @Test
+    fun testRequestTimeout() = withBackend {
+        ScriptBudget.setRequestTimeout(50, TimeUnit.MILLISECONDS)
+        val data = JSONHelper.toJSONNode("{}")
+        val compiledForm = form("slow", "slow", "slow", "slow")
+        val before = ScriptBudget.getExceededCount(ScriptBudgetExceededException.Kind.REQUEST_TIMEOUT)
+        val error = assertFailsWith<ScriptBudgetExceededException> { compiledForm.validate(data) }
+        assertEquals(error.kind, ScriptBudgetExceededException.Kind.REQUEST_TIMEOUT)
+        assertEquals(ScriptBudget.getExceededCount(ScriptBudgetExceededException.Kind.REQUEST_TIMEOUT), before + 1)
+
+        // 每次校验重新计算，预算之内的校验不受影响
+        assertEquals(form("slow").validate(data).size, 1)
+
+        // 异步校验以同样的异常结束
+        val future = compiledForm.validateAsync(data)
+        val cause = assertFailsWith<ExecutionException> { future.get() }
+        assertTrue(cause.cause is ScriptBudgetExceededException)
+    }
+
+    @Test
+    fun testRequestTimeoutInRows() = withBackend {
+        ScriptBudget.setRequestTimeout(50, TimeUnit.MILLISECONDS)
+        val compiledForm = Validator.compile(
+            JSONHelper.toJSONNode(
+                """
+                  {
+                    "type": "form",
+                    "body": [{
+                      "type": "combo",
+                      "name": "rows",
+                      "multiple": true,
+                      "items": [{"type": "input-text", "name": "a", "requireOn": "(function () { slow })()"}]
+                    }]
+                  }
+                """.trimIndent()
+            )
+        )
+        // 分成两块，一块在当前线程执行，另一块交给线程池，两块都要受请求预算的限制
+        val data = JSONHelper.toJSONNode("""{"rows": [${(0 until 512).joinToString(",") { "{}" }}]}""")
+        val threshold = Validator.getRowParallelThreshold()
+        Validator.setRowParallelThreshold(10)
+        try {
+            val start = System.nanoTime()
+            val error = assertFailsWith<ScriptBudgetExceededException> { compiledForm.validate(data) }
+            assertEquals(error.kind, ScriptBudgetExceededException.Kind.REQUEST_TIMEOUT)
+            // 没有预算时每块要执行 256 * 30 毫秒
+            assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 2)
+        } finally {
+            Validator.setRowParallelThreshold(threshold)
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.baidu.amis.validation
+
+import com.baidu.amis.util.JSONHelper
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+
+internal class MessageBundleTest {
+    private val form = JSONHelper.toJSONNode(
+        """
+          {
+            "type": "form",
+            "body": [
+              {
+                "type": "input-text",
+                "name": "a",
+                "required": true,
+                "validations": {
+                  "maxLength": 3,
+                  "equals": "abc"
+                },
+                "validationErrors": {
+                  "equals": "必须是 $1"
+                }
+              }
+            ]
+          }
+        """.trimIndent()
+    )
+
+    @Test
+    fun testTemplate() {
+        val template = MessageTemplate.parse("从 $1 到 $2，$3")
+        assertEquals(template.render(arrayOf("1", "9")), "从 1 到 9，$3")
+        assertEquals(MessageTemplate.parse("$").render(null), "$")
+        assertEquals(MessageTemplate.parse("没有参数").render(arrayOf("1")), "没有参数")
+    }
+
+    @Test
+    fun testCodeAndArgs() {
+        val result = Validator.compile(form).validate(JSONHelper.toJSONNode("""{"a": "abcd"}"""))
+        assertEquals(result.map { it.code }, listOf("maxLength", "equals"))
+        assertEquals(result[0].args, listOf("3"))
+        assertEquals(result[0].message, "请控制内容长度, 不要输入 3 个以上字符")
+        // 自定义信息按规则名读取
+        assertEquals(result[1].message, "必须是 abc")
+    }
+
+    @Test
+    fun testBundle() {
+        val enForm = Validator.compile(form, MessageBundle.EN_US)
+        val result = enForm.validate(JSONHelper.toJSONNode("{}"))
+        assertEquals(result.map { it.code }, listOf("maxLength", "equals", "isRequired"))
+        assertEquals(result[0].message, "Please enter no more than 3 characters")
+        assertEquals(result[2].message, "This is required")
+
+        val custom = MessageBundle.of(mapOf("isRequired" to "\$1 必填"), MessageBundle.ZH_CN)
+        val customResult = Validator.compile(form, custom).validate(JSONHelper.toJSONNode("{}"))
+        assertEquals(customResult[0].message, ViolationMessage.maxLength.replace("$1", "3"))
+        assertEquals(customResult[2].message, "\$1 必填")
+    }
+}
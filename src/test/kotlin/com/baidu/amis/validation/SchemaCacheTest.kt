@@ -0,0 +1,105 @@
+package com.baidu.amis.validation
+
+import com.baidu.amis.util.JSONHelper
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+
+internal class SchemaCacheTest {
+    private val pageSchema = """
+        {
+          "type": "page",
+          "body": [
+            {
+              "type": "form",
+              "name": "formA",
+              "body": [
+                {
+                  "type": "input-text",
+                  "name": "a",
+                  "validations": {
+                    "isNumeric": true
+                  }
+                }
+              ]
+            },
+            {
+              "type": "form",
+              "name": "formB",
+              "body": [
+                {
+                  "type": "input-text",
+                  "name": "b",
+                  "required": true
+                }
+              ]
+            }
+          ]
+        }
+    """.trimIndent()
+
+    @Test
+    fun testHitAndMiss() {
+        val cache = SchemaCache()
+        val formA = cache.get(pageSchema, "formA")
+        assertSame(cache.get(pageSchema, "formA"), formA)
+        // 内容相同但不是同一个字符串对象也能命中
+        assertSame(cache.get(StringBuilder(pageSchema).toString(), "formA"), formA)
+        // 同一个页面的其它表单不用再解析页面
+        cache.get(pageSchema, "formB")
+
+        assertEquals(cache.hitCount(), 3)
+        assertEquals(cache.missCount(), 1)
+        assertEquals(cache.size(), 1)
+        assertEquals(cache.weight(), pageSchema.length.toLong())
+
+        val result = formA.validate(JSONHelper.toJSONNode("""{"a": "x"}"""))
+        assertEquals(result[0].message, ViolationMessage.isNumeric)
+        val resultB = cache.get(pageSchema, "formB").validate(JSONHelper.toJSONNode("{}"))
+        assertEquals(resultB[0].message, ViolationMessage.isRequired)
+        assertFailsWith<IllegalArgumentException> { cache.get(pageSchema, "formC") }
+    }
+
+    @Test
+    fun testEviction() {
+        val otherSchema = pageSchema.replace("formB", "formC")
+        val cache = SchemaCache(1, Long.MAX_VALUE)
+        cache.get(pageSchema, "formA")
+        cache.get(otherSchema, "formA")
+        assertEquals(cache.size(), 1)
+        assertEquals(cache.evictionCount(), 1)
+
+        // 按权重淘汰，只放得下一个 schema
+        val weightCache = SchemaCache(100, pageSchema.length.toLong() + 1)
+        weightCache.get(pageSchema, "formA")
+        weightCache.get(otherSchema, "formA")
+        assertEquals(weightCache.size(), 1)
+        assertEquals(weightCache.evictionCount(), 1)
+
+        // 淘汰最久没有访问的
+        val thirdSchema = pageSchema.replace("formB", "formD")
+        val lruCache = SchemaCache(2, Long.MAX_VALUE)
+        val formA = lruCache.get(pageSchema, "formA")
+        val otherA = lruCache.get(otherSchema, "formA")
+        Thread.sleep(5)
+        assertSame(lruCache.get(pageSchema, "formA"), formA)
+        lruCache.get(thirdSchema, "formA")
+        assertSame(lruCache.get(pageSchema, "formA"), formA)
+        assertNotSame(lruCache.get(otherSchema, "formA"), otherA)
+    }
+
+    @Test
+    fun testInvalidate() {
+        val cache = SchemaCache()
+        val formA = cache.get(pageSchema, "formA")
+        cache.get(pageSchema, "formB")
+        cache.invalidate(pageSchema, "formA")
+        assertEquals(cache.size(), 1)
+        assertNotSame(cache.get(pageSchema, "formA"), formA)
+        cache.invalidate(pageSchema)
+        assertEquals(cache.size(), 0)
+        assertEquals(cache.weight(), 0)
+    }
+}
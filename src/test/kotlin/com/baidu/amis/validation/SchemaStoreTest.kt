@@ -0,0 +1,106 @@
+package com.baidu.amis.validation
+
+import com.baidu.amis.util.JSONHelper
+import org.junit.jupiter.api.Test
+import java.nio.file.Files
+import java.nio.file.Path
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNotSame
+import kotlin.test.assertSame
+
+internal class SchemaStoreTest {
+    private fun page(validation: String) = """
+        {
+          "type": "page",
+          "body": {
+            "type": "form",
+            "name": "myForm",
+            "body": [
+              {"type": "input-text", "name": "a", "validations": {"$validation": true}}
+            ]
+          }
+        }
+    """.trimIndent()
+
+    private fun waitFor(condition: () -> Boolean) {
+        val deadline = System.currentTimeMillis() + 20000
+        while (!condition() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50)
+        }
+    }
+
+    @Test
+    fun testLoadAndWatch() {
+        val dir = Files.createTempDirectory("amis-schema")
+        Files.createDirectories(dir.resolve("user"))
+        Files.write(dir.resolve("home.json"), page("isNumeric").toByteArray())
+        Files.write(dir.resolve("user/edit.json"), page("isEmail").toByteArray())
+        Files.write(dir.resolve("readme.txt"), "ignored".toByteArray())
+
+        // 阈值为 0 时所有文件都通过内存映射读取
+        val store = SchemaStore(dir, MessageBundle.ZH_CN, 0)
+        store.load()
+        assertEquals(store.pageNames, setOf("home", "user/edit"))
+        val data = JSONHelper.toJSONNode("""{"a": "x"}""")
+        assertEquals(store.validate("home", "myForm", data)[0].code, "isNumeric")
+        assertEquals(store.validate("user/edit", "myForm", data)[0].code, "isEmail")
+        assertFailsWith<IllegalArgumentException> { store.get("missing", null) }
+        assertFailsWith<IllegalArgumentException> { store.get("home", "missing") }
+
+        store.startWatching()
+        try {
+            val old = store.get("home", "myForm")
+            Files.write(dir.resolve("home.json"), page("isInt").toByteArray())
+            waitFor { store.get("home", "myForm") !== old }
+            assertEquals(store.validate("home", "myForm", data)[0].code, "isInt")
+
+            // 格式错误时保留旧的结果
+            val current = store.get("home", "myForm")
+            Files.write(dir.resolve("home.json"), "{".toByteArray())
+            waitFor { store.failures.containsKey("home") }
+            assertSame(store.get("home", "myForm"), current)
+
+            Files.write(dir.resolve("new.json"), page("isUrl").toByteArray())
+            waitFor { store.pageNames.contains("new") }
+            assertEquals(store.validate("new", "myForm", data)[0].code, "isUrl")
+
+            // 单个文件出任何错监听线程都不能退出，比如嵌套太深的 JSON
+            Files.write(dir.resolve("deep.json"), ("[".repeat(100000) + "]".repeat(100000)).toByteArray())
+            waitFor { store.failures.containsKey("deep") }
+            Files.write(dir.resolve("deep.json"), page("isAlpha").toByteArray())
+            waitFor { store.pageNames.contains("deep") }
+            assertEquals(store.validate("deep", "myForm", JSONHelper.toJSONNode("""{"a": "1"}"""))[0].code, "isAlpha")
+
+            // 整个子目录被移走时只会收到目录本身的删除事件
+            Files.createDirectories(dir.resolve("shop"))
+            Files.write(dir.resolve("shop/list.json"), page("isUrl").toByteArray())
+            waitFor { store.pageNames.contains("shop/list") }
+            assertEquals(store.pageNames.contains("shop/list"), true)
+            val moved = Files.createTempDirectory("amis-moved")
+            Files.move(dir.resolve("shop"), moved.resolve("shop"))
+            waitFor { !store.pageNames.contains("shop/list") }
+            assertEquals(store.pageNames.contains("shop/list"), false)
+            deleteAll(moved)
+
+            Files.delete(dir.resolve("user/edit.json"))
+            waitFor { !store.pageNames.contains("user/edit") }
+            assertEquals(store.pageNames, setOf("home", "new", "deep"))
+        } finally {
+            store.close()
+        }
+
+        // 重新加载整个目录
+        Files.write(dir.resolve("home.json"), page("isNumeric").toByteArray())
+        val before = store.get("new", "myForm")
+        store.load()
+        assertEquals(store.failures.size, 0)
+        assertNotSame(store.get("new", "myForm"), before)
+        assertEquals(store.validate("home", "myForm", data)[0].code, "isNumeric")
+        deleteAll(dir)
+    }
+
+    private fun deleteAll(dir: Path) {
+        Files.walk(dir).sorted(Comparator.reverseOrder()).forEach { Files.delete(it) }
+    }
+}
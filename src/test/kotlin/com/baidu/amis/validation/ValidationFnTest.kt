@@ -48,4 +48,47 @@ internal class ValidationFnTest {
         assertEquals(ValidationFn.maximum(TextNode("30"), 20.0), false)
     }
 
+    @Test
+    fun testMatchRegexp() {
+        assertEquals(ValidationFn.isInt(TextNode("-12")), true)
+        assertEquals(ValidationFn.isInt(TextNode("1.2")), false)
+        assertEquals(ValidationFn.isPhoneNumber(TextNode("13800138000")), true)
+
+        val cache = ValidationFn.getRegexCache()
+        val hits = cache.hitCount()
+        assertEquals(ValidationFn.matchRegexp(TextNode("abc"), "^a\\w+$"), true)
+        assertEquals(ValidationFn.matchRegexp(TextNode("xbc"), "^a\\w+$"), false)
+        assertEquals(ValidationFn.compileRegexp("^a\\w+$"), ValidationFn.compileRegexp("^a\\w+$"))
+        assertEquals(cache.hitCount() - hits >= 3, true)
+
+        // 超出上限时淘汰别的项，刚写入的保留
+        val small = com.baidu.amis.util.ConcurrentCache<String, Int>(2)
+        small.put("a", 1)
+        small.put("b", 2)
+        assertEquals(small.put("b", 3), 2)
+        small.put("c", 4)
+        assertEquals(small.size(), 2)
+        assertEquals(small.get("c"), 4)
+        assertEquals(small.evictionCount(), 1)
+        // 按写入顺序淘汰，不会总是淘汰同一个位置的键
+        assertEquals(small.get("a"), null)
+        small.put("d", 5)
+        assertEquals(small.get("b"), null)
+        assertEquals(small.get("c"), 4)
+        small.invalidate("c")
+        small.put("e", 6)
+        small.put("f", 7)
+        assertEquals(small.get("d"), null)
+        assertEquals(small.size(), 2)
+
+        // 表单里的正则共用固定数量的槽位，槽位冲突时不会用错 Matcher
+        val shared = (0 until 100).map { RegexMatcher.shared(java.util.regex.Pattern.compile("^a$it$")) }
+        for (round in 0 until 2) {
+            shared.forEachIndexed { i, matcher ->
+                assertEquals(matcher.find("a$i"), true)
+                assertEquals(matcher.find("a${i + 1}"), false)
+            }
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+package com.baidu.amis.validation
+
+import com.baidu.amis.util.JSONHelper
+import com.fasterxml.jackson.databind.node.BooleanNode
+import org.junit.jupiter.api.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+internal class ValidationRulesTest {
+    private fun form(validations: String, errors: String = "{}") = JSONHelper.toJSONNode(
+        """
+          {
+            "type": "form",
+            "body": [
+              {"type": "input-text", "name": "code", "validations": $validations, "validationErrors": $errors}
+            ]
+          }
+        """.trimIndent()
+    )
+
+    @Test
+    fun testCustomRule() {
+        // 参数在编译时解析一次
+        var created = 0
+        ValidationRules.register("digitSum", { option ->
+            created++
+            val mod = option.asInt()
+            ValidationRules.rule({ value ->
+                value != null && value.asText().sumOf { it - '0' } % mod == 0
+            }, option.asText())
+        }, "各位数字之和需要是 $1 的倍数")
+        try {
+            val compiledForm = Validator.compile(form("""{"digitSum": 10}"""))
+            assertEquals(created, 1)
+            assertEquals(compiledForm.validate(JSONHelper.toJSONNode("""{"code": "1234"}""")).size, 0)
+            val result = compiledForm.validate(JSONHelper.toJSONNode("""{"code": "1235"}"""))
+            assertEquals(created, 1)
+            assertEquals(result[0].code, "digitSum")
+            assertEquals(result[0].message, "各位数字之和需要是 10 的倍数")
+            assertEquals(result[0].args, listOf("10"))
+
+            // 老的字符串写法和自定义报错信息
+            val custom = Validator.compile(form("\"digitSum:3\"", """{"digitSum": "不对"}"""))
+            assertEquals(custom.validate(JSONHelper.toJSONNode("""{"code": "124"}"""))[0].message, "不对")
+        } finally {
+            ValidationRules.unregister("digitSum")
+        }
+        assertNull(ValidationRules.get("digitSum"))
+        assertEquals(Validator.compile(form("""{"digitSum": 10}""")).validate(
+            JSONHelper.toJSONNode("""{"code": "1235"}""")).size, 0)
+    }
+
+    @Test
+    fun testReplaceBuiltIn() {
+        val original = ValidationRules.get("isEmail")!!
+        ValidationRules.register("isEmail") { _ -> ValidationRule { it != null && it.asText().endsWith("@baidu.com") } }
+        try {
+            val compiledForm = Validator.compile(form("""{"isEmail": true}"""))
+            val result = compiledForm.validate(JSONHelper.toJSONNode("""{"code": "a@qq.com"}"""))
+            // 内置规则的报错信息仍然来自语言包
+            assertEquals(result[0].message, "Email 格式不正确")
+        } finally {
+            ValidationRules.register("isEmail", original)
+        }
+        assertEquals(ValidationRules.names().contains("matchRegexp"), true)
+    }
+
+    @Test
+    fun testOptionNotNull() {
+        val original = ValidationRules.get("isRequired")!!
+        val options = mutableListOf<Any?>()
+        ValidationRules.register("isRequired") { option ->
+            options.add(option)
+            original.create(option)
+        }
+        try {
+            // required 生成的 isRequired 和字符串写法中没有参数的规则都传入 true
+            Validator.compile(form("\"isRequired,maxLength:3\""))
+        } finally {
+            ValidationRules.register("isRequired", original)
+        }
+        assertEquals(options, listOf<Any?>(BooleanNode.TRUE, BooleanNode.TRUE))
+    }
+}
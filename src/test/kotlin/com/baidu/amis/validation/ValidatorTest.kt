@@ -1,5 +1,6 @@
 package com.baidu.amis.validation
 
+import com.baidu.amis.util.JSONHelper
 import org.junit.jupiter.api.Test
 import kotlin.test.assertEquals
 
@@ -1111,4 +1112,543 @@ internal class ValidatorTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    fun testCompile() {
+        val form = JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "body": [
+                  {
+                    "type": "input-text",
+                    "name": "a",
+                    "required": true,
+                    "validations": {
+                      "maxLength": 3
+                    },
+                    "validationErrors": {
+                      "maxLength": "最多 $1 个字"
+                    }
+                  }
+                ]
+              }
+            """.trimIndent()
+        )
+        val schemaBefore = form.toString()
+        val compiledForm = Validator.compile(form)
+
+        // 编译结果可以反复使用
+        val result1 = compiledForm.validate(JSONHelper.toJSONNode("""{"a": "abcd"}"""))
+        assertEquals(result1.size, 1)
+        assertEquals(result1[0].message, "最多 3 个字")
+
+        val result2 = compiledForm.validate(JSONHelper.toJSONNode("""{}"""))
+        assertEquals(result2.size, 2)
+        assertEquals(result2[1].message, ViolationMessage.isRequired)
+
+        val result3 = compiledForm.validate(JSONHelper.toJSONNode("""{"a": "ab"}"""))
+        assertEquals(result3.size, 0)
+
+        // 编译和校验都不会修改原始配置
+        assertEquals(form.toString(), schemaBefore)
+    }
+
+    @Test
+    fun testStreaming() {
+        val form = JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "rules": [
+                  {
+                    "rule": "!(data.a && data.b)",
+                    "message": "a 和 b 不能同时有值"
+                  }
+                ],
+                "body": [
+                  {
+                    "type": "input-text",
+                    "name": "text",
+                    "validations": {
+                      "isNumeric": true
+                    },
+                    "hiddenOn": "this.mode == 'hide'"
+                  },
+                  {
+                    "type": "input-text",
+                    "name": "need",
+                    "requireOn": "data.mode == 'strict'"
+                  },
+                  {
+                    "type": "input-text",
+                    "name": "a"
+                  }
+                ]
+              }
+            """.trimIndent()
+        )
+        val compiledForm = Validator.compile(form)
+        val rows = (1..1000).joinToString(",") { """{"id": $it}""" }
+        val payloads = listOf(
+            """{"text": "x", "a": 1, "b": 2, "rows": [$rows], "mode": "strict"}""",
+            """{"text": "x", "rows": [$rows], "mode": "hide"}""",
+            """{"text": "1", "need": "", "text": "y"}""",
+            """[1, 2]""",
+            ""
+        )
+        for (payload in payloads) {
+            val expected = compiledForm.validate(JSONHelper.toJSONNode(payload)).map { it.name + it.message }
+            val streamed = compiledForm.validate(payload.reader()).map { it.name + it.message }
+            assertEquals(streamed, expected, payload)
+        }
+
+        val result = Validator.validate(form.toString(), null, payloads[0].byteInputStream())
+        assertEquals(result.size, 3)
+        assertEquals(result[0].message, "a 和 b 不能同时有值")
+    }
+
+    @Test
+    fun testValidateBatch() {
+        val form = JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "body": [
+                  {
+                    "type": "input-text",
+                    "name": "age",
+                    "required": true,
+                    "validations": {
+                      "isInt": true
+                    }
+                  }
+                ]
+              }
+            """.trimIndent()
+        )
+        val records = (0 until 1000).map {
+            JSONHelper.toJSONNode(if (it % 3 == 0) """{"age": "x$it"}""" else """{"age": "$it"}""")
+        }
+        val pool = java.util.concurrent.ForkJoinPool(4)
+        try {
+            val results = Validator.validateBatch(Validator.compile(form), records, pool)
+            assertEquals(results.size, records.size)
+            for ((index, result) in results.withIndex()) {
+                assertEquals(result.size, if (index % 3 == 0) 1 else 0)
+            }
+        } finally {
+            pool.shutdown()
+        }
+        assertEquals(Validator.validateBatch(form, listOf()).size, 0)
+    }
+
+    @Test
+    fun testNestedContainers() {
+        val form = JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "body": [
+                  {
+                    "type": "group",
+                    "body": [
+                      {"type": "input-text", "name": "a", "required": true}
+                    ]
+                  },
+                  {
+                    "type": "fieldset",
+                    "hiddenOn": "data.mode == 'simple'",
+                    "body": [
+                      {
+                        "type": "collapse",
+                        "body": {"type": "input-text", "name": "b", "required": true}
+                      }
+                    ]
+                  },
+                  {
+                    "type": "tabs",
+                    "tabs": [
+                      {
+                        "title": "基本",
+                        "body": [{"type": "input-text", "name": "c", "required": true}]
+                      },
+                      {
+                        "title": "高级",
+                        "visibleOn": "data.mode == 'advanced'",
+                        "body": [{"type": "input-text", "name": "d", "required": true}]
+                      }
+                    ]
+                  },
+                  {
+                    "type": "panel",
+                    "hidden": true,
+                    "body": [{"type": "input-text", "name": "e", "required": true}]
+                  },
+                  {
+                    "type": "input-text",
+                    "name": "user.email",
+                    "validations": {
+                      "isEmail": true
+                    }
+                  }
+                ]
+              }
+            """.trimIndent()
+        )
+        val compiledForm = Validator.compile(form)
+        val payloads = listOf(
+            """{}""",
+            """{"mode": "simple", "a": 1, "c": 1, "user": {"email": "a@b.com"}}""",
+            """{"mode": "advanced", "a": 1, "b": 1, "c": 1, "user": {"email": "x"}}""",
+            """{"user": {"email": "x"}, "user.email": "a@b.com", "a": 1, "b": 1, "c": 1}"""
+        )
+        val expectedNames = listOf(
+            listOf("a", "b", "c", "user.email"),
+            listOf(),
+            listOf("d", "user.email"),
+            listOf()
+        )
+        for ((index, payload) in payloads.withIndex()) {
+            val result = compiledForm.validate(JSONHelper.toJSONNode(payload))
+            assertEquals(result.map { it.name }, expectedNames[index], payload)
+            val streamed = compiledForm.validate(payload.reader())
+            assertEquals(streamed.map { it.name + it.message }, result.map { it.name + it.message }, payload)
+        }
+    }
+
+    @Test
+    fun testRows() {
+        val form = JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "body": [
+                  {
+                    "type": "combo",
+                    "name": "rows",
+                    "multiple": true,
+                    "items": [
+                      {"type": "input-text", "name": "price", "validations": {"isNumeric": true}},
+                      {"type": "input-text", "name": "note", "requireOn": "data.price > 100"},
+                      {
+                        "type": "input-array",
+                        "name": "tags",
+                        "items": {"type": "input-text", "validations": {"maxLength": 3}}
+                      }
+                    ]
+                  },
+                  {
+                    "type": "input-table",
+                    "name": "table",
+                    "columns": [
+                      {"name": "qty", "quickEdit": {"type": "input-number", "required": true}}
+                    ]
+                  }
+                ]
+              }
+            """.trimIndent()
+        )
+        val compiledForm = Validator.compile(form)
+        val rows = (0 until 3000).joinToString(",") {
+            when {
+                it == 123 -> """{"price": "x"}"""
+                it == 500 -> """{"price": 200}"""
+                it == 2999 -> """{"price": 1, "tags": ["ok", "long"]}"""
+                else -> """{"price": $it, "note": "n"}"""
+            }
+        }
+        val payload = """{"rows": [$rows], "table": [{"qty": 1}, {}]}"""
+        val expected = listOf("rows[123].price", "rows[500].note", "rows[2999].tags[1]", "table[1].qty")
+
+        val threshold = Validator.getRowParallelThreshold()
+        try {
+            for (value in listOf(100000, 10)) {
+                Validator.setRowParallelThreshold(value)
+                val result = compiledForm.validate(JSONHelper.toJSONNode(payload))
+                assertEquals(result.map { it.name }, expected)
+                assertEquals(result[0].code, "isNumeric")
+                val streamed = compiledForm.validate(payload.reader())
+                assertEquals(streamed.map { it.name + it.message }, result.map { it.name + it.message })
+            }
+
+            // 调用方本身运行在只有一个线程的行线程池中，也不会互相等待
+            val pool = java.util.concurrent.Executors.newFixedThreadPool(1)
+            val rowExecutor = Validator.getRowExecutor()
+            Validator.setRowExecutor(pool)
+            try {
+                val nested = pool.submit<List<ConstraintViolation>> {
+                    compiledForm.validate(JSONHelper.toJSONNode(payload))
+                }
+                assertEquals(nested.get(10, java.util.concurrent.TimeUnit.SECONDS).map { it.name }, expected)
+            } finally {
+                Validator.setRowExecutor(rowExecutor)
+                pool.shutdown()
+            }
+        } finally {
+            Validator.setRowParallelThreshold(threshold)
+        }
+    }
+
+    @Test
+    fun testStreamingOrder() {
+        // 数组至少要有两行才算填写，这样必填和行的错误可以同时出现
+        val original = ValidationRules.get("isRequired")!!
+        ValidationRules.register("isRequired") { option ->
+            val rule = original.create(option)
+            ValidationRule { rule.test(it) && (!it.isArray || it.size() >= 2) }
+        }
+        val compiledForm = try {
+            Validator.compile(
+                JSONHelper.toJSONNode(
+                    """
+                      {
+                        "type": "form",
+                        "body": [
+                          {
+                            "type": "combo",
+                            "name": "rows",
+                            "multiple": true,
+                            "required": true,
+                            "items": [
+                              {"type": "input-text", "name": "price", "validations": {"isNumeric": true}}
+                            ]
+                          }
+                        ]
+                      }
+                    """.trimIndent()
+                )
+            )
+        } finally {
+            ValidationRules.register("isRequired", original)
+        }
+        val payload = """{"rows": [{"price": "x"}]}"""
+        val expected = listOf("rows", "rows[0].price")
+        assertEquals(compiledForm.validate(JSONHelper.toJSONNode(payload)).map { it.name }, expected)
+        assertEquals(compiledForm.validate(payload.reader()).map { it.name }, expected)
+    }
+
+    @Test
+    fun testBytes() {
+        val schema = """
+            {
+              "type": "form",
+              "body": [
+                {"type": "input-text", "name": "text", "validations": {"isNumeric": true}},
+                {"type": "input-text", "name": "need", "required": true}
+              ]
+            }
+        """.trimIndent()
+        val data = """{"text": "中文"}"""
+        val expected = Validator.validate(schema, data).map { it.name + it.message }
+        assertEquals(expected.size, 2)
+
+        val schemaBytes = schema.toByteArray()
+        val padded = ("[]" + data).toByteArray()
+        val dataBytes = data.toByteArray()
+        val direct = java.nio.ByteBuffer.allocateDirect(dataBytes.size)
+        direct.put(dataBytes).flip()
+
+        val results = listOf(
+            Validator.validate(schema, null, padded, 2, padded.size - 2),
+            Validator.validate(schemaBytes, null, padded, 2, padded.size - 2),
+            Validator.validate(schema, null, direct),
+            Validator.validate(java.nio.ByteBuffer.wrap(schemaBytes), null, java.nio.ByteBuffer.wrap(dataBytes)),
+            Validator.validate(schemaBytes.inputStream(), null, dataBytes.inputStream())
+        )
+        for (result in results) {
+            assertEquals(result.map { it.name + it.message }, expected)
+        }
+        assertEquals(direct.position(), 0)
+
+        // 同样内容的字节 schema 只解析一次，修改原数组不影响缓存
+        val cache = SchemaCache()
+        val first = cache.get(schemaBytes, 0, schemaBytes.size, null)
+        assertEquals(cache.get(java.nio.ByteBuffer.wrap(schema.toByteArray()), null) === first, true)
+        schemaBytes.fill(' '.code.toByte())
+        assertEquals(cache.get(schema.toByteArray(), 0, schema.toByteArray().size, null) === first, true)
+    }
+
+    @Test
+    fun testSuccessPathAllocation() {
+        val form = JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "rules": [{"rule": "data.type != 'none'", "message": "类型不能为 none"}],
+                "body": [
+                  {"type": "input-text", "name": "a", "required": true, "validations": {"maxLength": 20}},
+                  {"type": "input-text", "name": "b", "validations": {"isInt": true}},
+                  {"type": "input-text", "name": "c", "requireOn": "this.type == 'mobile'",
+                   "validations": {"isPhoneNumber": true}},
+                  {"type": "input-text", "name": "d", "hiddenOn": "data.type == 'hidden'",
+                   "validations": {"matchRegexp": "^[A-Z]{2}\\d{4}$"}},
+                  {"type": "group", "body": [{"type": "input-text", "name": "e", "validations": {"isAlpha": true}}]}
+                ]
+              }
+            """.trimIndent()
+        )
+        val compiledForm = Validator.compile(form)
+        val data = JSONHelper.toJSONNode(
+            """{"type": "mobile", "a": "amis", "b": "42", "c": "13800138000", "d": "AB1234", "e": "abc"}"""
+        )
+        val result = compiledForm.validate(data)
+        assertEquals(result.size, 0)
+        // 通过时返回共享的空列表
+        assertEquals(compiledForm.validate(data) === result, true)
+
+        val bean = java.lang.management.ManagementFactory.getThreadMXBean()
+        if (bean !is com.sun.management.ThreadMXBean || !bean.isThreadAllocatedMemorySupported) {
+            return
+        }
+        val threadId = Thread.currentThread().id
+        repeat(20000) { compiledForm.validate(data) }
+        val iterations = 10000
+        val before = bean.getThreadAllocatedBytes(threadId)
+        for (i in 0 until iterations) {
+            compiledForm.validate(data)
+        }
+        val bytesPerOp = (bean.getThreadAllocatedBytes(threadId) - before).toDouble() / iterations
+        // JIT、GC、覆盖率工具都会影响这个数字，这里只检查没有退化到每次都创建中间对象，精确的数字用 AllocationBenchmark 查看
+        assertEquals(bytesPerOp < 1024, true, "allocated $bytesPerOp bytes per validation")
+    }
+
+    @Test
+    fun testConcurrentValidation() {
+        val form = JSONHelper.toJSONNode(
+            """
+              {
+                "type": "form",
+                "body": [
+                  {"type": "input-text", "name": "type"},
+                  {"type": "input-text", "name": "phone", "requireOn": "data.type == 'mobile'",
+                   "validations": {"isPhoneNumber": true}},
+                  {"type": "input-text", "name": "code", "required": true, "validations": "isAlphanumeric,maxLength:6"},
+                  {"type": "input-text", "name": "flag", "validations": {"equals": "on"}}
+                ]
+              }
+            """.trimIndent()
+        )
+        val original = form.deepCopy<com.fasterxml.jackson.databind.JsonNode>()
+        val compiledForm = Validator.compile(form)
+        val phoneItem = form.get("body").get(1)
+        val records = listOf(
+            """{"type": "mobile", "phone": "13800138000", "code": "ab12", "flag": "on"}""",
+            """{"type": "mobile", "code": "ab12", "flag": "on"}""",
+            """{"type": "email", "code": "ab-1234", "flag": "off"}""",
+            """{"type": "email", "phone": "x", "code": "a"}"""
+        ).map { JSONHelper.toJSONNode(it) }
+        // 单线程的结果作为基准
+        val expected = records.map { data -> compiledForm.validate(data).map { it.name to it.message } }
+        val expectedItem = records.map { data -> Validator.validateFormItem(phoneItem, data, null).size }
+        assertEquals(expected[0].size, 0)
+        assertEquals(expected[1].map { it.first }.contains("phone"), true)
+        assertEquals(expectedItem[1] > 0, true)
+
+        val threads = 16
+        val iterations = 2000
+        val pool = java.util.concurrent.Executors.newFixedThreadPool(threads)
+        val start = java.util.concurrent.CountDownLatch(1)
+        try {
+            val futures = (0 until threads).map { t ->
+                pool.submit<Int> {
+                    start.await()
+                    var mismatches = 0
+                    for (i in 0 until iterations) {
+                        val index = (i + t) % records.size
+                        val result = compiledForm.validate(records[index]).map { it.name to it.message }
+                        if (result != expected[index]) {
+                            mismatches++
+                        }
+                        // 未编译的接口直接使用共享的 schema
+                        if (Validator.validateFormItem(phoneItem, records[index], null).size != expectedItem[index]) {
+                            mismatches++
+                        }
+                    }
+                    mismatches
+                }
+            }
+            start.countDown()
+            for (future in futures) {
+                assertEquals(future.get(), 0)
+            }
+        } finally {
+            pool.shutdown()
+        }
+        // 校验过程中 schema 没有被修改
+        assertEquals(form, original)
+
+        // 编译后修改 schema 不影响已经编译好的结果
+        (form.get("body").get(3).get("validations") as com.fasterxml.jackson.databind.node.ObjectNode)
+            .put("equals", "off")
+        assertEquals(compiledForm.validate(records[0]).size, 0)
+    }
+
+    @Test
+    fun testValidateAsync() {
+        val schema = """
+            {
+              "type": "form",
+              "body": [
+                {"type": "input-text", "name": "code", "validations": {"isInt": true, "slow": true}}
+              ]
+            }
+        """.trimIndent()
+        val started = java.util.concurrent.CountDownLatch(1)
+        val release = java.util.concurrent.CountDownLatch(1)
+        val interrupted = java.util.concurrent.atomic.AtomicBoolean()
+        val threads = java.util.Collections.synchronizedList(mutableListOf<String>())
+        // 值为 block 时一直等到被释放或者被中断
+        ValidationRules.register("slow") { _ ->
+            ValidationRule { value ->
+                threads.add(Thread.currentThread().name)
+                if (value?.asText() == "block") {
+                    started.countDown()
+                    try {
+                        release.await()
+                    } catch (e: InterruptedException) {
+                        interrupted.set(true)
+                    }
+                }
+                true
+            }
+        }
+        val pool = java.util.concurrent.Executors.newSingleThreadExecutor { Thread(it, "async-test") }
+        try {
+            val compiledForm = Validator.compile(JSONHelper.toJSONNode(schema))
+            val ok = compiledForm.validateAsync(JSONHelper.toJSONNode("""{"code": "1"}"""), pool)
+            assertEquals(ok.get().size, 0)
+            assertEquals(threads, listOf("async-test"))
+            val failed = Validator.validateAsync(schema, null, """{"code": "a"}""", pool)
+            assertEquals(failed.get()[0].code, "isInt")
+
+            // 正在执行的任务被取消时中断执行线程，排队中的任务不再执行
+            threads.clear()
+            val running = compiledForm.validateAsync(JSONHelper.toJSONNode("""{"code": "block"}"""), pool)
+            val queued = compiledForm.validateAsync(JSONHelper.toJSONNode("""{"code": "2"}"""), pool)
+            started.await()
+            queued.cancel(true)
+            running.cancel(true)
+            assertEquals(running.isCancelled, true)
+            // 取消留下的中断状态不会影响线程池中的下一个任务
+            val next = pool.submit<Boolean> { Thread.currentThread().isInterrupted }
+            assertEquals(next.get(), false)
+            assertEquals(interrupted.get(), true)
+            assertEquals(threads, listOf("async-test"))
+
+            // 解析失败时 future 以异常结束
+            val error = Validator.validateAsync(schema, null, "{", pool)
+            val cause = kotlin.runCatching { error.get() }.exceptionOrNull()
+            assertEquals(cause?.cause is com.fasterxml.jackson.core.JsonProcessingException, true)
+        } finally {
+            release.countDown()
+            pool.shutdown()
+            ValidationRules.unregister("slow")
+        }
+
+        // 默认的线程池
+        val result = Validator.validateAsync(Validator.compile(JSONHelper.toJSONNode(schema)),
+            JSONHelper.toJSONNode("""{"code": "a"}"""))
+        assertEquals(result.get(10, java.util.concurrent.TimeUnit.SECONDS).size, 1)
+    }
+}